@@ -14,23 +14,79 @@ repositories {
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.test {
     useJUnitPlatform()
 }
 
+// JMH benchmarks: ./gradlew jmh, or e.g. ./gradlew jmh -PjmhArgs="IntegratorBenchmark -p n=1000"
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks headless; results go to build/reports/jmh/results.json."
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    // gc profiler reports allocation rate (gc.alloc.rate.norm) next to throughput
+    args("-rf", "json", "-rff", results.get().asFile.absolutePath, "-prof", "gc")
+    providers.gradleProperty("jmhArgs").orNull?.let { args(it.trim().split(Regex("\\s+"))) }
+    doFirst { results.get().asFile.parentFile.mkdirs() }
+}
+
 java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(17))
     }
 }
 
+// Opt-in SIMD force kernel: ./gradlew run -PvectorApi=true
+val vectorApi = providers.gradleProperty("vectorApi").map { it.toBoolean() }.getOrElse(false)
+val vectorModuleArgs = listOf("--add-modules", "jdk.incubator.vector")
+
+if (vectorApi) {
+    sourceSets.main {
+        java.srcDir("src/vector/java")
+    }
+    tasks.withType<JavaCompile>().configureEach {
+        options.compilerArgs.addAll(vectorModuleArgs)
+    }
+    tasks.withType<JavaExec>().configureEach {
+        jvmArgs(vectorModuleArgs)
+    }
+    tasks.withType<Test>().configureEach {
+        jvmArgs(vectorModuleArgs)
+    }
+}
+
 javafx {
     version = "21"
     modules = listOf("javafx.controls", "javafx.graphics")
 }
 
+// Headless batch runner without JavaFX on the classpath:
+// ./gradlew runHeadless --args="--preset solarSystem --dt 3600 --steps 100000"
+tasks.register<JavaExec>("runHeadless") {
+    group = "application"
+    description = "Runs the simulation from the command line, without JavaFX."
+    classpath = sourceSets.main.get().output +
+            configurations.runtimeClasspath.get().filter { !it.name.startsWith("javafx") }
+    mainClass.set("dev.andreisima.Main")
+}
+
 application {
     mainClass.set("dev.andreisima.orbitsim.ui.MainApp")
+    if (vectorApi) {
+        applicationDefaultJvmArgs = vectorModuleArgs
+    }
 }
@@ -0,0 +1,47 @@
+package dev.andreisima.orbitsim.bench;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Vector2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link SystemState#computeBarycenter()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarycenterBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int n;
+
+    @Param({"DISK", "PLUMMER"})
+    public Distributions distribution;
+
+    private SystemState state;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = distribution.create(n, 42);
+    }
+
+    @Benchmark
+    public Vector2D computeBarycenter() {
+        return state.computeBarycenter();
+    }
+}
@@ -0,0 +1,74 @@
+package dev.andreisima.orbitsim.bench;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+
+/**
+ * Initial conditions used by the benchmarks, built by the seeded
+ * {@link PresetFactory} generators so runs are comparable.
+ */
+public enum Distributions {
+    /** A star with n - 1 planetesimals on near-circular orbits. */
+    DISK {
+        @Override
+        public SystemState create(int n, long seed) {
+            return PresetFactory.protoplanetaryDisk(n - 1, seed, 0.01);
+        }
+
+        @Override
+        public double dt() {
+            return 3600; // one hour
+        }
+    },
+    /** The solar system with n - 9 main-belt asteroids. */
+    BELT {
+        @Override
+        public SystemState create(int n, long seed) {
+            return PresetFactory.asteroidBelt(Math.max(0, n - 9), seed, 0.01);
+        }
+
+        @Override
+        public double dt() {
+            return 3600;
+        }
+    },
+    /** Equal-mass Plummer sphere projected onto the plane, in virial equilibrium. */
+    PLUMMER {
+        @Override
+        public SystemState create(int n, long seed) {
+            return PresetFactory.plummerSphere(n, seed, 1.0);
+        }
+
+        @Override
+        public double dt() {
+            return 1e10; // a small fraction of the ~1e13 s crossing time
+        }
+    },
+    /** Two disk galaxies with central black holes, n - 2 stars in total. */
+    GALAXIES {
+        @Override
+        public SystemState create(int n, long seed) {
+            return PresetFactory.collidingGalaxies(n - 2, seed, 0.05);
+        }
+
+        @Override
+        public double dt() {
+            return 3e13; // about a million years; disk orbits take ~1e16 s
+        }
+    };
+
+    public abstract SystemState create(int n, long seed);
+
+    /** A time step suited to the system's dynamical time scale, in seconds. */
+    public abstract double dt();
+
+    /** Builds one of the hand-made presets by name. */
+    public static SystemState preset(String name) {
+        return switch (name) {
+            case "sunEarthMoon" -> PresetFactory.sunEarthMoon();
+            case "solarSystem" -> PresetFactory.solarSystem();
+            case "binaryStars" -> PresetFactory.binaryStars();
+            default -> throw new IllegalArgumentException("Unknown preset: " + name);
+        };
+    }
+}
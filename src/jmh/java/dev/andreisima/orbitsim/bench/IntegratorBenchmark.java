@@ -0,0 +1,52 @@
+package dev.andreisima.orbitsim.bench;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.LeapfrogIntegrator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steps per second of {@link LeapfrogIntegrator#step} for each force solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntegratorBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int n;
+
+    @Param({"DISK", "PLUMMER"})
+    public Distributions distribution;
+
+    @Param({"DIRECT", "BARNES_HUT"})
+    public Solvers solver;
+
+    private SystemState state;
+    private LeapfrogIntegrator integrator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        state = distribution.create(n, 42);
+        integrator = new LeapfrogIntegrator(solver.create());
+    }
+
+    @Benchmark
+    public void step() {
+        integrator.step(state, distribution.dt());
+    }
+}
@@ -0,0 +1,63 @@
+package dev.andreisima.orbitsim.bench;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.BarnesHutForceSolver;
+import dev.andreisima.orbitsim.core.physics.CollisionMode;
+import dev.andreisima.orbitsim.core.physics.LeapfrogIntegrator;
+import dev.andreisima.orbitsim.core.physics.PhysicsEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full {@link PhysicsEngine#step} (integration, trails and collisions) with
+ * and without merging. Uses Barnes–Hut so that large N stays dominated by
+ * the collision pass rather than by direct summation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhysicsEngineBenchmark {
+    @Param({"10", "1000", "10000", "100000"})
+    public int n;
+
+    @Param({"DISK", "PLUMMER"})
+    public Distributions distribution;
+
+    @Param({"MERGE", "IGNORE"})
+    public CollisionMode collisionMode;
+
+    private SystemState state;
+    private PhysicsEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUpEngine() {
+        engine = new PhysicsEngine(new LeapfrogIntegrator(new BarnesHutForceSolver(0.5)));
+        engine.setCollisionMode(collisionMode);
+    }
+
+    // merging removes bodies, so start every iteration from the same N
+    @Setup(Level.Iteration)
+    public void setUpState() {
+        state = distribution.create(n, 42);
+    }
+
+    @Benchmark
+    public void step() {
+        engine.step(state, distribution.dt());
+    }
+}
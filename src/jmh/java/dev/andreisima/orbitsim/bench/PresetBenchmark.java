@@ -0,0 +1,47 @@
+package dev.andreisima.orbitsim.bench;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.LeapfrogIntegrator;
+import dev.andreisima.orbitsim.core.physics.PhysicsEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PhysicsEngine#step} on the hand-made presets, as the UI runs them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PresetBenchmark {
+    @Param({"sunEarthMoon", "solarSystem", "binaryStars"})
+    public String preset;
+
+    private SystemState state;
+    private PhysicsEngine engine;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        state = Distributions.preset(preset);
+        engine = new PhysicsEngine(new LeapfrogIntegrator());
+    }
+
+    @Benchmark
+    public void step() {
+        engine.step(state, 3600);
+    }
+}
@@ -0,0 +1,36 @@
+package dev.andreisima.orbitsim.bench;
+
+import dev.andreisima.orbitsim.core.physics.BarnesHutForceSolver;
+import dev.andreisima.orbitsim.core.physics.DirectForceSolver;
+import dev.andreisima.orbitsim.core.physics.ForceSolver;
+import dev.andreisima.orbitsim.core.physics.ForceSolverFactory;
+import dev.andreisima.orbitsim.core.physics.ParallelDirectForceSolver;
+import dev.andreisima.orbitsim.core.physics.ParticleMeshForceSolver;
+
+/**
+ * Force solvers selectable through a benchmark {@code @Param}.
+ */
+public enum Solvers {
+    DIRECT {
+        @Override
+        public ForceSolver create() { return new DirectForceSolver(); }
+    },
+    PARALLEL {
+        @Override
+        public ForceSolver create() { return new ParallelDirectForceSolver(); }
+    },
+    VECTOR {
+        @Override
+        public ForceSolver create() { return ForceSolverFactory.vectorized(); }
+    },
+    BARNES_HUT {
+        @Override
+        public ForceSolver create() { return new BarnesHutForceSolver(0.5); }
+    },
+    PARTICLE_MESH {
+        @Override
+        public ForceSolver create() { return new ParticleMeshForceSolver(); }
+    };
+
+    public abstract ForceSolver create();
+}
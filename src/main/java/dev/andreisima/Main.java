@@ -1,17 +1,33 @@
 package dev.andreisima;
 
-//TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
-// click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
-public class Main {
-    public static void main(String[] args) {
-        //TIP Press <shortcut actionId="ShowIntentionActions"/> with your caret at the highlighted text
-        // to see how IntelliJ IDEA suggests fixing it.
-        System.out.printf("Hello and welcome!");
+import dev.andreisima.orbitsim.cli.BatchRunner;
+import dev.andreisima.orbitsim.cli.CliOptions;
+import dev.andreisima.orbitsim.core.diagnostics.DriftLimitExceededException;
 
-        for (int i = 1; i <= 5; i++) {
-            //TIP Press <shortcut actionId="Debug"/> to start debugging your code. We have set one <icon src="AllIcons.Debugger.Db_set_breakpoint"/> breakpoint
-            // for you, but you can always add more by pressing <shortcut actionId="ToggleLineBreakpoint"/>.
-            System.out.println("i = " + i);
+/**
+ * Headless entry point: runs a simulation from the command line without
+ * JavaFX. The interactive app is {@code dev.andreisima.orbitsim.ui.MainApp}.
+ */
+public class Main {
+    public static void main(String[] args) throws Exception {
+        CliOptions options;
+        try {
+            options = CliOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(CliOptions.usage());
+            System.exit(2);
+            return;
+        }
+        if (options.isHelp()) {
+            System.out.print(CliOptions.usage());
+            return;
+        }
+        try {
+            new BatchRunner(options, System.out).run();
+        } catch (DriftLimitExceededException e) {
+            System.err.println("aborted: " + e.getMessage());
+            System.exit(3);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package dev.andreisima.orbitsim.cli;
+
+import dev.andreisima.orbitsim.core.diagnostics.ConservationMonitor;
+import dev.andreisima.orbitsim.core.diagnostics.ConservationSample;
+import dev.andreisima.orbitsim.core.io.BinaryCheckpoint;
+import dev.andreisima.orbitsim.core.io.TrajectoryWriter;
+import dev.andreisima.orbitsim.core.metrics.Metrics;
+import dev.andreisima.orbitsim.core.metrics.MetricsExporter;
+import dev.andreisima.orbitsim.core.metrics.MetricsSampler;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.PhysicsEngine;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+/**
+ * Advances a system as fast as the CPU allows, without any UI, and reports
+ * throughput.
+ */
+public class BatchRunner {
+    private final CliOptions options;
+    private final PrintStream out;
+
+    public BatchRunner(CliOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public void run() throws Exception {
+        SystemState state = options.createState();
+        boolean measured = options.metrics != null || options.jmx;
+        Metrics metrics = measured ? new Metrics() : null;
+        PhysicsEngine engine = new PhysicsEngine(options.createIntegrator(metrics));
+        engine.setCollisionMode(options.collisionMode);
+        engine.setTrailLength(0); // nobody is looking at trails here
+        engine.setMetrics(metrics);
+        TrajectoryWriter trajectory = null;
+        if (options.trajectory != null) {
+            trajectory = new TrajectoryWriter(options.trajectory, options.trajectoryEvery, options.compress);
+            engine.setTrajectorySink(trajectory);
+        }
+        ConservationMonitor monitor = null;
+        if (options.conservation != null || options.maxDrift != null) {
+            monitor = new ConservationMonitor(options.conservationEvery);
+            if (options.maxDrift != null) {
+                monitor.setDriftLimit(options.maxDrift, options.onDrift);
+            }
+            engine.setConservationMonitor(monitor);
+        }
+        MetricsSampler sampler = null;
+        MetricsExporter exporter = null;
+        PrintWriter conservationLog = null;
+        try {
+            if (options.conservation != null) {
+                PrintWriter log = new PrintWriter(Files.newBufferedWriter(options.conservation, StandardCharsets.UTF_8));
+                conservationLog = log;
+                log.println(ConservationSample.csvHeader());
+                monitor.addListener(sample -> log.println(sample.toCsv()));
+            }
+            if (measured) {
+                sampler = new MetricsSampler(metrics);
+                if (options.metrics != null) {
+                    exporter = MetricsExporter.open(options.metrics);
+                    sampler.addListener(exporter);
+                }
+                if (options.jmx) {
+                    sampler.registerMBean();
+                }
+                sampler.start(options.metricsInterval);
+            }
+            advance(state, engine);
+        } finally {
+            if (trajectory != null) trajectory.close();
+            if (sampler != null) {
+                sampler.close();
+                // the last, partial window
+                sampler.sample();
+            }
+            if (exporter != null) exporter.close();
+            if (conservationLog != null) conservationLog.close();
+            if (monitor != null) report(monitor);
+        }
+        if (options.checkpoint != null) {
+            BinaryCheckpoint.write(state, options.checkpoint);
+            out.printf(Locale.ROOT, "checkpoint written to %s%n", options.checkpoint);
+        }
+    }
+
+    private void report(ConservationMonitor monitor) {
+        ConservationSample last = monitor.latest();
+        if (last == null) return;
+        out.printf(Locale.ROOT, "conservation: energy drift=%.3e (max %.3e) angular momentum drift=%.3e%s%n",
+                last.getEnergyDrift(), monitor.getMaxDrift(), last.getAngularMomentumDrift(),
+                monitor.isFlagged() ? " FLAGGED: drift limit exceeded" : "");
+    }
+
+    private void advance(SystemState state, PhysicsEngine engine) throws IOException {
+        out.printf(Locale.ROOT, "bodies=%d massive=%d dt=%.6g s steps=%d integrator=%s solver=%s collisions=%s%n",
+                state.size(), state.getMassiveCount(), options.dt, options.steps, options.integrator, options.solver, options.collisionMode);
+
+        long start = System.nanoTime();
+        long last = start;
+        for (long step = 1; step <= options.steps; step++) {
+            engine.step(state, options.dt);
+            if (options.every > 0 && step % options.every == 0) {
+                long now = System.nanoTime();
+                double rate = options.every / ((now - last) / 1e9);
+                last = now;
+                out.printf(Locale.ROOT, "step=%d t=%.6g s bodies=%d steps/s=%.1f%n",
+                        step, state.getTime(), state.size(), rate);
+            }
+            if (options.checkpointEvery > 0 && step % options.checkpointEvery == 0 && step < options.steps) {
+                BinaryCheckpoint.write(state, options.checkpoint);
+            }
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        out.printf(Locale.ROOT, "done: %d steps in %.3f s wall, %.1f steps/s, simulated %.6g s, %d bodies%n",
+                options.steps, wall, options.steps / wall, state.getTime(), state.size());
+    }
+}
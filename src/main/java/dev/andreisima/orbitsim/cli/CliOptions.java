@@ -0,0 +1,268 @@
+package dev.andreisima.orbitsim.cli;
+
+import dev.andreisima.orbitsim.core.diagnostics.ConservationMonitor;
+import dev.andreisima.orbitsim.core.io.BinaryCheckpoint;
+import dev.andreisima.orbitsim.core.io.CsvStateReader;
+import dev.andreisima.orbitsim.core.io.JsonStateReader;
+import dev.andreisima.orbitsim.core.metrics.Metrics;
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.BarnesHutForceSolver;
+import dev.andreisima.orbitsim.core.physics.BlockTimestepIntegrator;
+import dev.andreisima.orbitsim.core.physics.CollisionMode;
+import dev.andreisima.orbitsim.core.physics.DirectForceSolver;
+import dev.andreisima.orbitsim.core.physics.EncounterRegularizer;
+import dev.andreisima.orbitsim.core.physics.ForceSolver;
+import dev.andreisima.orbitsim.core.physics.ForceSolverFactory;
+import dev.andreisima.orbitsim.core.physics.HermiteIntegrator;
+import dev.andreisima.orbitsim.core.physics.Integrator;
+import dev.andreisima.orbitsim.core.physics.LeapfrogIntegrator;
+import dev.andreisima.orbitsim.core.physics.ParallelDirectForceSolver;
+import dev.andreisima.orbitsim.core.physics.ParticleMeshForceSolver;
+import dev.andreisima.orbitsim.core.physics.TimedForceSolver;
+import dev.andreisima.orbitsim.core.physics.WisdomHolmanIntegrator;
+import dev.andreisima.orbitsim.core.physics.YoshidaIntegrator;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Command-line options for the headless runner.
+ */
+public class CliOptions {
+    private static final String USAGE = """
+            Usage: orbitsim [options]
+              --preset NAME        sunEarthMoon | solarSystem | binaryStars (default solarSystem),
+                                   or a generated system: belt | disk | plummer | galaxies
+              --n N                bodies in a generated system (default 10000)
+              --seed S             random seed of a generated system (default 42)
+              --dispersion D       velocity dispersion of a generated system (default 0.01, plummer 1)
+              --input FILE         load initial conditions from CSV or .json instead of a preset
+              --restore FILE       resume from a binary checkpoint instead of a preset
+              --test-particles T   comma-separated body types (e.g. asteroid) that feel gravity but exert none
+              --dt SECONDS         time step (default 3600)
+              --steps N            number of steps to run (default 10000)
+              --every K            print a progress line every K steps, 0 for none (default 1000)
+              --integrator NAME    leapfrog | yoshida | wh | hermite | block (default leapfrog)
+              --regularize K       leapfrog/yoshida: advance bound pairs with a period under K steps
+                                   along Kepler orbits (e.g. 100)
+              --eta VALUE          block time-step accuracy parameter (default 0.02)
+              --solver NAME        leapfrog/yoshida/wh force solver: direct | parallel | vector | barnes-hut | pm (default direct)
+              --theta VALUE        Barnes-Hut opening angle (default 0.5)
+              --grid N             particle-mesh cells per side, a power of two (default 256)
+              --collisions MODE    merge | ignore (default merge)
+              --checkpoint FILE    write a binary checkpoint at the end of the run
+              --checkpoint-every K also checkpoint every K steps (default 0, only at the end)
+              --trajectory FILE    record bodies to a trajectory file (index in FILE.idx)
+              --trajectory-every K record every K steps (default 100)
+              --compress           delta-encode and deflate trajectory frames
+              --metrics FILE       log phase timings and rates, CSV or JSON lines if FILE ends in .json/.jsonl
+              --metrics-interval MS  metrics sampling period in milliseconds (default 1000)
+              --jmx                publish live metrics as the MBean dev.andreisima.orbitsim:type=Metrics
+              --conservation FILE  write energy, momentum and angular momentum samples as CSV
+              --conservation-every K  sample conserved quantities every K steps (default 100)
+              --max-drift X        limit on the relative energy drift |E - E0| / |E0|
+              --on-drift ACTION    abort | flag when the limit is passed (default abort)
+              --help               show this message
+            """;
+    private static final Set<String> PRESETS = Set.of(
+            "sunEarthMoon", "solarSystem", "binaryStars", "belt", "disk", "plummer", "galaxies");
+    private static final Set<String> INTEGRATORS = Set.of(
+            "leapfrog", "yoshida", "wh", "wisdom-holman", "hermite", "block");
+    private static final Set<String> SOLVERS = Set.of(
+            "direct", "parallel", "vector", "barnes-hut", "pm", "particle-mesh");
+
+    String preset = "solarSystem";
+    int n = 10_000;
+    long seed = 42;
+    Double dispersion;
+    Path input;
+    Path restore;
+    Set<BodyType> testParticles = EnumSet.noneOf(BodyType.class);
+    double dt = 3600;
+    long steps = 10_000;
+    long every = 1_000;
+    String integrator = "leapfrog";
+    Double regularize;
+    double eta = 0.02;
+    String solver = "direct";
+    double theta = 0.5;
+    int grid = ParticleMeshForceSolver.DEFAULT_GRID_SIZE;
+    CollisionMode collisionMode = CollisionMode.MERGE;
+    Path checkpoint;
+    long checkpointEvery;
+    Path trajectory;
+    int trajectoryEvery = 100;
+    boolean compress;
+    Path metrics;
+    long metricsInterval = 1000;
+    boolean jmx;
+    Path conservation;
+    long conservationEvery = 100;
+    Double maxDrift;
+    ConservationMonitor.Action onDrift = ConservationMonitor.Action.ABORT;
+    boolean help;
+
+    public static String usage() {
+        return USAGE;
+    }
+
+    public boolean isHelp() {
+        return help;
+    }
+
+    /** Parses the arguments; throws {@link IllegalArgumentException} on bad input. */
+    public static CliOptions parse(String[] args) {
+        CliOptions o = new CliOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help", "-h" -> o.help = true;
+                case "--preset" -> o.preset = name(value(args, ++i, arg), PRESETS, "preset");
+                case "--n" -> o.n = (int) positive(Integer.parseInt(value(args, ++i, arg)), arg);
+                case "--seed" -> o.seed = Long.parseLong(value(args, ++i, arg));
+                case "--dispersion" -> o.dispersion = Double.parseDouble(value(args, ++i, arg));
+                case "--input" -> o.input = Path.of(value(args, ++i, arg));
+                case "--restore" -> o.restore = Path.of(value(args, ++i, arg));
+                case "--test-particles" -> {
+                    for (String type : value(args, ++i, arg).split(",")) {
+                        o.testParticles.add(BodyType.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+                    }
+                }
+                case "--dt" -> o.dt = positive(Double.parseDouble(value(args, ++i, arg)), arg);
+                case "--steps" -> o.steps = (long) positive(Long.parseLong(value(args, ++i, arg)), arg);
+                case "--every" -> o.every = Long.parseLong(value(args, ++i, arg));
+                case "--integrator" -> o.integrator = name(value(args, ++i, arg).toLowerCase(Locale.ROOT), INTEGRATORS, "integrator");
+                case "--regularize" -> o.regularize = positive(Double.parseDouble(value(args, ++i, arg)), arg);
+                case "--eta" -> o.eta = positive(Double.parseDouble(value(args, ++i, arg)), arg);
+                case "--solver" -> o.solver = name(value(args, ++i, arg).toLowerCase(Locale.ROOT), SOLVERS, "solver");
+                case "--theta" -> o.theta = nonNegative(Double.parseDouble(value(args, ++i, arg)), arg);
+                case "--grid" -> o.grid = gridSize(Integer.parseInt(value(args, ++i, arg)), arg);
+                case "--collisions" -> o.collisionMode = CollisionMode.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                case "--checkpoint" -> o.checkpoint = Path.of(value(args, ++i, arg));
+                case "--checkpoint-every" -> o.checkpointEvery = Long.parseLong(value(args, ++i, arg));
+                case "--trajectory" -> o.trajectory = Path.of(value(args, ++i, arg));
+                case "--trajectory-every" -> o.trajectoryEvery = (int) positive(Integer.parseInt(value(args, ++i, arg)), arg);
+                case "--compress" -> o.compress = true;
+                case "--metrics" -> o.metrics = Path.of(value(args, ++i, arg));
+                case "--metrics-interval" -> o.metricsInterval = (long) positive(Long.parseLong(value(args, ++i, arg)), arg);
+                case "--jmx" -> o.jmx = true;
+                case "--conservation" -> o.conservation = Path.of(value(args, ++i, arg));
+                case "--conservation-every" -> o.conservationEvery = (long) positive(Long.parseLong(value(args, ++i, arg)), arg);
+                case "--max-drift" -> o.maxDrift = positive(Double.parseDouble(value(args, ++i, arg)), arg);
+                case "--on-drift" -> o.onDrift = ConservationMonitor.Action.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (o.checkpointEvery > 0 && o.checkpoint == null) {
+            throw new IllegalArgumentException("--checkpoint-every needs --checkpoint");
+        }
+        if (o.regularize != null && !o.integrator.equals("leapfrog") && !o.integrator.equals("yoshida")) {
+            throw new IllegalArgumentException("--regularize needs the leapfrog or yoshida integrator");
+        }
+        return o;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    private static double positive(double v, String option) {
+        if (!(v > 0)) {
+            throw new IllegalArgumentException(option + " must be > 0");
+        }
+        return v;
+    }
+
+    private static double nonNegative(double v, String option) {
+        if (!(v >= 0)) {
+            throw new IllegalArgumentException(option + " must be >= 0");
+        }
+        return v;
+    }
+
+    private static String name(String v, Set<String> names, String kind) {
+        if (!names.contains(v)) {
+            throw new IllegalArgumentException("Unknown " + kind + ": " + v);
+        }
+        return v;
+    }
+
+    private static int gridSize(int v, String option) {
+        if (v < 16 || Integer.bitCount(v) != 1) {
+            throw new IllegalArgumentException(option + " must be a power of two >= 16");
+        }
+        return v;
+    }
+
+    SystemState createState() throws IOException {
+        SystemState state = loadState();
+        for (BodyType type : testParticles) {
+            state.setTestParticleType(type, true);
+        }
+        return state;
+    }
+
+    private SystemState loadState() throws IOException {
+        if (restore != null) {
+            return BinaryCheckpoint.read(restore);
+        }
+        if (input != null) {
+            return input.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                    ? JsonStateReader.read(input)
+                    : CsvStateReader.read(input);
+        }
+        return switch (preset) {
+            case "sunEarthMoon" -> PresetFactory.sunEarthMoon();
+            case "solarSystem" -> PresetFactory.solarSystem();
+            case "binaryStars" -> PresetFactory.binaryStars();
+            case "belt" -> PresetFactory.asteroidBelt(n, seed, dispersion(0.01));
+            case "disk" -> PresetFactory.protoplanetaryDisk(n, seed, dispersion(0.01));
+            case "plummer" -> PresetFactory.plummerSphere(n, seed, dispersion(1.0));
+            case "galaxies" -> PresetFactory.collidingGalaxies(n, seed, dispersion(0.05));
+            default -> throw new IllegalArgumentException("Unknown preset: " + preset);
+        };
+    }
+
+    private double dispersion(double fallback) {
+        return dispersion != null ? dispersion : fallback;
+    }
+
+    ForceSolver createForceSolver() {
+        return switch (solver) {
+            case "direct" -> new DirectForceSolver();
+            case "parallel" -> new ParallelDirectForceSolver();
+            case "vector" -> ForceSolverFactory.vectorized();
+            case "barnes-hut" -> new BarnesHutForceSolver(theta);
+            case "pm", "particle-mesh" -> new ParticleMeshForceSolver(grid);
+            default -> throw new IllegalArgumentException("Unknown solver: " + solver);
+        };
+    }
+
+    /** Integrator for the options; its force solver reports to {@code metrics} unless that is null. */
+    Integrator createIntegrator(Metrics metrics) {
+        return switch (integrator) {
+            case "leapfrog" -> new LeapfrogIntegrator(timed(createForceSolver(), metrics), createRegularizer());
+            case "yoshida" -> new YoshidaIntegrator(timed(createForceSolver(), metrics), createRegularizer());
+            case "wh", "wisdom-holman" -> new WisdomHolmanIntegrator(timed(createForceSolver(), metrics));
+            case "hermite" -> new HermiteIntegrator();
+            case "block" -> new BlockTimestepIntegrator(eta, 12);
+            default -> throw new IllegalArgumentException("Unknown integrator: " + integrator);
+        };
+    }
+
+    private EncounterRegularizer createRegularizer() {
+        return regularize != null ? new EncounterRegularizer(regularize) : null;
+    }
+
+    private static ForceSolver timed(ForceSolver solver, Metrics metrics) {
+        return metrics != null ? new TimedForceSolver(solver, metrics) : solver;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.andreisima.orbitsim.core.diagnostics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+
+/**
+ * Conserved quantities of a state, computed straight from its arrays without
+ * allocating. Potential energy uses the same softening as the force solvers,
+ * so that it is the potential whose gradient they integrate.
+ * <p>
+ * Only massive bodies are counted. Test particles exert no force, so the
+ * massive bodies form a closed system on their own, while a test particle
+ * moving in their changing field conserves nothing in particular.
+ */
+public final class Conservation {
+    private Conservation() {
+    }
+
+    /** Total kinetic energy, sum of m v^2 / 2. */
+    public static double kineticEnergy(SystemState state) {
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        double sum = 0;
+        for (int i = 0; i < state.getMassiveCount(); i++) {
+            sum += m[i] * (vx[i] * vx[i] + vy[i] * vy[i]);
+        }
+        return 0.5 * sum;
+    }
+
+    /**
+     * Softened potential energy, -G m_i m_j / sqrt(r^2 + eps^2) over all
+     * pairs, by direct summation. O(n^2): prefer the value the force solver
+     * left behind, see {@link dev.andreisima.orbitsim.core.physics.PhysicsEngine#getPotentialEnergy}.
+     */
+    public static double potentialEnergy(SystemState state) {
+        int n = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] m = state.getMass();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double xi = x[i], yi = y[i];
+            double poti = 0;
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                poti += m[j] / Math.sqrt(dx * dx + dy * dy + epsSq);
+            }
+            sum += m[i] * poti;
+        }
+        return -Constants.G * sum;
+    }
+
+    /** Total linear momentum, written to {@code out[0]} (x) and {@code out[1]} (y). */
+    public static void momentum(SystemState state, double[] out) {
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        double px = 0, py = 0;
+        for (int i = 0; i < state.getMassiveCount(); i++) {
+            px += m[i] * vx[i];
+            py += m[i] * vy[i];
+        }
+        out[0] = px;
+        out[1] = py;
+    }
+
+    /** Total angular momentum about the origin, sum of m (x vy - y vx). */
+    public static double angularMomentum(SystemState state) {
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        double sum = 0;
+        for (int i = 0; i < state.getMassiveCount(); i++) {
+            sum += m[i] * (x[i] * vy[i] - y[i] * vx[i]);
+        }
+        return sum;
+    }
+}
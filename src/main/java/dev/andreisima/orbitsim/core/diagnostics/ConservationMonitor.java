@@ -0,0 +1,152 @@
+package dev.andreisima.orbitsim.core.diagnostics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tracks energy, linear and angular momentum every few steps and keeps the
+ * most recent samples as a time series. Attach it with
+ * {@link dev.andreisima.orbitsim.core.physics.PhysicsEngine#setConservationMonitor};
+ * the engine takes the reference sample before the first step.
+ * <p>
+ * Kinetic energy and the momenta are one O(n) pass. The potential is taken
+ * from the force solver's last evaluation when that was at the current
+ * positions, and otherwise summed directly, which is O(n^2); sample sparsely
+ * with large systems and solvers that do not report it.
+ * <p>
+ * Merges and accretion lose energy by design, so the reference is reset
+ * whenever the body count changes.
+ */
+public class ConservationMonitor {
+    /** What to do when the energy drift passes the limit. */
+    public enum Action {
+        /** Mark the run as flagged and keep going. */
+        FLAG,
+        /** Throw {@link DriftLimitExceededException} out of the step. */
+        ABORT
+    }
+
+    private static final int DEFAULT_HISTORY = 4096;
+
+    private final long every;
+    private final int history;
+    private double limit = Double.POSITIVE_INFINITY;
+    private Action action = Action.FLAG;
+
+    private final ArrayDeque<ConservationSample> series = new ArrayDeque<>();
+    private final List<Consumer<ConservationSample>> listeners = new CopyOnWriteArrayList<>();
+    private volatile ConservationSample latest;
+    private volatile boolean flagged;
+    private volatile double maxDrift;
+
+    // reference values, simulation thread only
+    private int referenceBodies = -1;
+    private double referenceEnergy;
+    private double referenceAngularMomentum;
+    private final double[] momentum = new double[2];
+
+    /** Samples every {@code every} steps, keeping the last 4096 samples. */
+    public ConservationMonitor(long every) {
+        this(every, DEFAULT_HISTORY);
+    }
+
+    /** Samples every {@code every} steps, keeping the last {@code history} samples. */
+    public ConservationMonitor(long every, int history) {
+        if (every < 1) {
+            throw new IllegalArgumentException("sampling interval must be >= 1");
+        }
+        if (history < 1) {
+            throw new IllegalArgumentException("history must be >= 1");
+        }
+        this.every = every;
+        this.history = history;
+    }
+
+    /** Flags or aborts the run once |(E - E0) / E0| exceeds {@code maxRelativeDrift}. */
+    public void setDriftLimit(double maxRelativeDrift, Action action) {
+        if (!(maxRelativeDrift > 0)) {
+            throw new IllegalArgumentException("drift limit must be > 0");
+        }
+        this.limit = maxRelativeDrift;
+        this.action = action;
+    }
+
+    public void addListener(Consumer<ConservationSample> listener) {
+        listeners.add(listener);
+    }
+
+    public long getEvery() { return every; }
+
+    /** Whether a reference sample has been taken. */
+    public boolean hasReference() { return referenceBodies >= 0; }
+
+    public boolean isDue(long step) { return step % every == 0; }
+
+    /** Latest sample, or null before the first. */
+    public ConservationSample latest() { return latest; }
+
+    /** Whether the drift has passed the limit at any sample so far. */
+    public boolean isFlagged() { return flagged; }
+
+    /** Largest |energy drift| seen so far. */
+    public double getMaxDrift() { return maxDrift; }
+
+    /** Copy of the retained samples, oldest first. */
+    public synchronized List<ConservationSample> getSeries() {
+        return new ArrayList<>(series);
+    }
+
+    /**
+     * Measures the state now.
+     *
+     * @param solverPotential potential energy reported by the force solver at
+     *                        the current positions, or NaN to compute it here
+     * @throws DriftLimitExceededException if the limit is passed and the action is ABORT
+     */
+    public ConservationSample sample(SystemState state, long step, double solverPotential) {
+        boolean fromSolver = !Double.isNaN(solverPotential);
+        double kinetic = Conservation.kineticEnergy(state);
+        double potential = fromSolver ? solverPotential : Conservation.potentialEnergy(state);
+        double angular = Conservation.angularMomentum(state);
+        Conservation.momentum(state, momentum);
+        double energy = kinetic + potential;
+
+        boolean rebaselined = state.size() != referenceBodies;
+        if (rebaselined) {
+            referenceBodies = state.size();
+            referenceEnergy = energy;
+            referenceAngularMomentum = angular;
+        }
+        ConservationSample sample = new ConservationSample(step, state.getTime(), state.size(),
+                kinetic, potential, momentum[0], momentum[1], angular,
+                relative(energy, referenceEnergy), relative(angular, referenceAngularMomentum),
+                fromSolver, rebaselined);
+
+        synchronized (this) {
+            if (series.size() == history) series.removeFirst();
+            series.addLast(sample);
+        }
+        latest = sample;
+        double drift = Math.abs(sample.getEnergyDrift());
+        if (drift > maxDrift) maxDrift = drift;
+        for (Consumer<ConservationSample> listener : listeners) {
+            listener.accept(sample);
+        }
+        if (drift > limit) {
+            flagged = true;
+            if (action == Action.ABORT) {
+                throw new DriftLimitExceededException(sample, limit);
+            }
+        }
+        return sample;
+    }
+
+    private static double relative(double value, double reference) {
+        return reference == 0 ? value - reference : (value - reference) / Math.abs(reference);
+    }
+}
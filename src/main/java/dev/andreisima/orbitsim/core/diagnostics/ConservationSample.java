@@ -0,0 +1,70 @@
+package dev.andreisima.orbitsim.core.diagnostics;
+
+import java.util.Locale;
+
+/**
+ * Conserved quantities at one point of a run, and how far they have drifted
+ * from the reference taken at the first sample (or after the body count last
+ * changed, since merges and accretion are inelastic).
+ */
+public class ConservationSample {
+    private final long step;
+    private final double time;
+    private final int bodies;
+    private final double kineticEnergy;
+    private final double potentialEnergy;
+    private final double momentumX;
+    private final double momentumY;
+    private final double angularMomentum;
+    private final double energyDrift;
+    private final double angularMomentumDrift;
+    private final boolean potentialFromSolver;
+    private final boolean rebaselined;
+
+    ConservationSample(long step, double time, int bodies, double kineticEnergy, double potentialEnergy,
+                       double momentumX, double momentumY, double angularMomentum,
+                       double energyDrift, double angularMomentumDrift,
+                       boolean potentialFromSolver, boolean rebaselined) {
+        this.step = step;
+        this.time = time;
+        this.bodies = bodies;
+        this.kineticEnergy = kineticEnergy;
+        this.potentialEnergy = potentialEnergy;
+        this.momentumX = momentumX;
+        this.momentumY = momentumY;
+        this.angularMomentum = angularMomentum;
+        this.energyDrift = energyDrift;
+        this.angularMomentumDrift = angularMomentumDrift;
+        this.potentialFromSolver = potentialFromSolver;
+        this.rebaselined = rebaselined;
+    }
+
+    public long getStep() { return step; }
+    public double getTime() { return time; }
+    public int getBodies() { return bodies; }
+    public double getKineticEnergy() { return kineticEnergy; }
+    public double getPotentialEnergy() { return potentialEnergy; }
+    public double getTotalEnergy() { return kineticEnergy + potentialEnergy; }
+    public double getMomentumX() { return momentumX; }
+    public double getMomentumY() { return momentumY; }
+    public double getAngularMomentum() { return angularMomentum; }
+    /** (E - E0) / |E0|. */
+    public double getEnergyDrift() { return energyDrift; }
+    /** (L - L0) / |L0|, or the absolute change if L0 is 0. */
+    public double getAngularMomentumDrift() { return angularMomentumDrift; }
+    /** Whether the potential came from the force solver rather than a separate pass. */
+    public boolean isPotentialFromSolver() { return potentialFromSolver; }
+    /** Whether the reference was reset at this sample. */
+    public boolean isRebaselined() { return rebaselined; }
+
+    /** Column names matching {@link #toCsv()}. */
+    public static String csvHeader() {
+        return "step,time,bodies,kinetic,potential,total,energy_drift,px,py,angular_momentum,angular_drift,rebaselined";
+    }
+
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%.9g,%d,%.17g,%.17g,%.17g,%.6e,%.17g,%.17g,%.17g,%.6e,%b",
+                step, time, bodies, kineticEnergy, potentialEnergy, getTotalEnergy(), energyDrift,
+                momentumX, momentumY, angularMomentum, angularMomentumDrift, rebaselined);
+    }
+}
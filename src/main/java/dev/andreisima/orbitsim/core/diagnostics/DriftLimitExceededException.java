@@ -0,0 +1,25 @@
+package dev.andreisima.orbitsim.core.diagnostics;
+
+import java.util.Locale;
+
+/**
+ * Thrown from a physics step when the relative energy drift passes the limit
+ * set on a {@link ConservationMonitor} whose action is
+ * {@link ConservationMonitor.Action#ABORT}.
+ */
+public class DriftLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient ConservationSample sample;
+
+    public DriftLimitExceededException(ConservationSample sample, double limit) {
+        super(String.format(Locale.ROOT, "energy drift %.3e exceeds %.3e at step %d (t=%.6g s)",
+                sample.getEnergyDrift(), limit, sample.getStep(), sample.getTime()));
+        this.sample = sample;
+    }
+
+    /** The sample that crossed the limit. */
+    public ConservationSample getSample() {
+        return sample;
+    }
+}
@@ -0,0 +1,90 @@
+package dev.andreisima.orbitsim.core.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses decimal numbers straight from bytes.
+ * <p>
+ * Numbers with at most 15 significant digits and a moderate exponent are
+ * converted with one exact multiplication or division by a power of ten,
+ * which gives the correctly rounded result (Clinger's fast path). Everything
+ * else, including NaN, Infinity and malformed input, goes through
+ * {@link Double#parseDouble}, so the result always matches it.
+ */
+final class AsciiNumbers {
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private AsciiNumbers() {
+    }
+
+    /** Parses {@code b[from, to)}; throws {@link NumberFormatException} if it is not a number. */
+    static double parseDouble(byte[] b, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exp10 = 0;
+        boolean any = false;
+        for (; i < to && b[i] >= '0' && b[i] <= '9'; i++) {
+            mantissa = mantissa * 10 + (b[i] - '0');
+            if (mantissa != 0) digits++;
+            any = true;
+        }
+        if (i < to && b[i] == '.') {
+            for (i++; i < to && b[i] >= '0' && b[i] <= '9'; i++) {
+                mantissa = mantissa * 10 + (b[i] - '0');
+                if (mantissa != 0) digits++;
+                exp10--;
+                any = true;
+            }
+        }
+        if (any && i < to && (b[i] == 'e' || b[i] == 'E')) {
+            int j = i + 1;
+            boolean expNegative = false;
+            if (j < to && (b[j] == '-' || b[j] == '+')) {
+                expNegative = b[j] == '-';
+                j++;
+            }
+            int e = 0;
+            int start = j;
+            for (; j < to && b[j] >= '0' && b[j] <= '9' && e < 10_000; j++) {
+                e = e * 10 + (b[j] - '0');
+            }
+            if (j > start) {
+                exp10 += expNegative ? -e : e;
+                i = j;
+            }
+        }
+        if (any && i == to && digits <= 15) {
+            double v = mantissa;
+            if (mantissa == 0) {
+                return negative ? -0.0 : 0.0;
+            }
+            if (exp10 >= 0 && exp10 <= 22) {
+                v *= POW10[exp10];
+                return negative ? -v : v;
+            }
+            if (exp10 < 0 && exp10 >= -22) {
+                v /= POW10[-exp10];
+                return negative ? -v : v;
+            }
+            // a short mantissa can absorb part of a larger exponent exactly
+            if (exp10 > 22 && exp10 - 22 <= 15 - digits) {
+                v = v * POW10[exp10 - 22] * POW10[22];
+                return negative ? -v : v;
+            }
+        }
+        return Double.parseDouble(new String(b, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+}
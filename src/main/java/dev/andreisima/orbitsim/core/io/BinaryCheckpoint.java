@@ -0,0 +1,262 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves and restores a {@link SystemState} in a compact binary format.
+ * <p>
+ * Layout, little-endian:
+ * <pre>
+ * header   int magic 'ORBS', int version, int count, int flags, double time,
+ *          long massive (if flags has TEST_PARTICLES, else reserved: every body is massive)
+ * arrays   double mass[count], radius[count], x[count], y[count], vx[count], vy[count]
+ * types    byte ordinal[count]
+ * ids      (version 2) int next id, int id[count]
+ * names    (if flags has NAMES) per body: int length (-1 for null), UTF-8 bytes
+ * </pre>
+ * The arrays are copied to and from the file through memory-mapped regions
+ * with bulk transfers, so large states save and load at close to disk speed.
+ * Writes go to a temporary file that replaces the target only once complete,
+ * so a crash mid-write leaves the previous checkpoint intact. Version 1
+ * files, which have no ids, still load; their bodies get fresh ids.
+ */
+public final class BinaryCheckpoint {
+    public static final int MAGIC = 0x5342524F; // "ORBS" read as little-endian bytes
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int FLAG_NAMES = 1;
+    private static final int FLAG_TEST_PARTICLES = 2;
+    /** Largest region mapped at once; a mapping must stay below 2 GB. */
+    private static final long MAX_MAP_BYTES = 1L << 30;
+    private static final int NAME_BUFFER_BYTES = 1 << 16;
+
+    private BinaryCheckpoint() {
+    }
+
+    public static void write(SystemState state, Path file) throws IOException {
+        int n = state.size();
+        boolean names = false;
+        for (int i = 0; i < n && !names; i++) {
+            names = state.getName(i) != null;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int massive = state.getMassiveCount();
+            int flags = (names ? FLAG_NAMES : 0) | (massive < n ? FLAG_TEST_PARTICLES : 0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(flags)
+                    .putDouble(state.getTime()).putLong(massive < n ? massive : 0).flip();
+            writeFully(ch, header, 0);
+
+            long pos = HEADER_BYTES;
+            double[][] arrays = {state.getMass(), state.getRadius(), state.getX(), state.getY(),
+                    state.getVx(), state.getVy()};
+            for (double[] a : arrays) {
+                writeDoubles(ch, pos, a, n);
+                pos += 8L * n;
+            }
+
+            byte[] types = new byte[n];
+            for (int i = 0; i < n; i++) {
+                types[i] = (byte) state.getType(i).ordinal();
+            }
+            writeFully(ch, ByteBuffer.wrap(types), pos);
+            pos += n;
+
+            ByteBuffer ids = ByteBuffer.allocate(4 + 4 * n).order(ByteOrder.LITTLE_ENDIAN);
+            ids.putInt(state.getNextId());
+            for (int i = 0; i < n; i++) {
+                ids.putInt(state.getId(i));
+            }
+            ids.flip();
+            pos += writeFully(ch, ids, pos);
+
+            if (names) {
+                writeNames(ch, pos, state);
+            }
+            ch.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SystemState read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, header, 0, file);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + ": not a checkpoint file");
+            }
+            int version = header.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException(file + ": unsupported checkpoint version " + version);
+            }
+            int n = header.getInt();
+            int flags = header.getInt();
+            double time = header.getDouble();
+            long massive = (flags & FLAG_TEST_PARTICLES) != 0 ? header.getLong() : n;
+            if (massive < 0 || massive > n) {
+                throw new IOException(file + ": bad massive body count " + massive);
+            }
+            long bulk = HEADER_BYTES + 49L * n; // six doubles and a byte per body
+            if (version > 1) {
+                bulk += 4 + 4L * n;
+            }
+            if (n < 0 || ch.size() < bulk) {
+                throw new IOException(file + ": truncated checkpoint");
+            }
+
+            byte[] types = new byte[n];
+            readFully(ch, ByteBuffer.wrap(types), HEADER_BYTES + 48L * n, file);
+            int[] ids = null;
+            int nextId = 0;
+            if (version > 1) {
+                ByteBuffer buf = ByteBuffer.allocate(4 + 4 * n).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(ch, buf, HEADER_BYTES + 49L * n, file);
+                buf.flip();
+                nextId = buf.getInt();
+                ids = new int[n];
+                buf.asIntBuffer().get(ids);
+            }
+            String[] names = (flags & FLAG_NAMES) != 0 ? readNames(ch, bulk, n, file) : null;
+
+            BodyType[] typeValues = BodyType.values();
+            SystemState state = new SystemState();
+            state.ensureCapacity(n);
+            for (int i = 0; i < n; i++) {
+                int t = types[i];
+                if (t < 0 || t >= typeValues.length) {
+                    throw new IOException(file + ": bad body type " + t + " at index " + i);
+                }
+                state.addBody(names == null ? null : names[i], typeValues[t], 0, 0, 0, 0, 0, 0, i >= massive);
+            }
+            long pos = HEADER_BYTES;
+            double[][] arrays = {state.getMass(), state.getRadius(), state.getX(), state.getY(),
+                    state.getVx(), state.getVy()};
+            for (double[] a : arrays) {
+                readDoubles(ch, pos, a, n);
+                pos += 8L * n;
+            }
+            if (ids != null) {
+                try {
+                    state.restoreIds(ids, nextId);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ": " + e.getMessage(), e);
+                }
+            }
+            state.setTime(time);
+            state.markModified();
+            return state;
+        }
+    }
+
+    private static void writeDoubles(FileChannel ch, long pos, double[] a, int n) throws IOException {
+        int perMap = (int) (MAX_MAP_BYTES / 8);
+        for (int off = 0; off < n; off += perMap) {
+            int len = Math.min(perMap, n - off);
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, pos + 8L * off, 8L * len);
+            map.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(a, off, len);
+            map.force();
+        }
+    }
+
+    private static void readDoubles(FileChannel ch, long pos, double[] a, int n) throws IOException {
+        int perMap = (int) (MAX_MAP_BYTES / 8);
+        for (int off = 0; off < n; off += perMap) {
+            int len = Math.min(perMap, n - off);
+            DoubleBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, pos + 8L * off, 8L * len)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            in.get(a, off, len);
+        }
+    }
+
+    private static void writeNames(FileChannel ch, long pos, SystemState state) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(NAME_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < state.size(); i++) {
+            String name = state.getName(i);
+            byte[] bytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+            int need = 4 + (bytes == null ? 0 : bytes.length);
+            if (buf.remaining() < need) {
+                buf.flip();
+                pos += writeFully(ch, buf, pos);
+                buf.clear();
+                if (buf.capacity() < need) {
+                    buf = ByteBuffer.allocate(need).order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            buf.putInt(bytes == null ? -1 : bytes.length);
+            if (bytes != null) buf.put(bytes);
+        }
+        buf.flip();
+        writeFully(ch, buf, pos);
+    }
+
+    private static String[] readNames(FileChannel ch, long pos, int n, Path file) throws IOException {
+        String[] names = new String[n];
+        ByteBuffer buf = ByteBuffer.allocate(NAME_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.flip();
+        for (int i = 0; i < n; i++) {
+            if (buf.remaining() < 4) {
+                pos = refill(ch, buf, pos, 4, file);
+            }
+            int length = buf.getInt();
+            if (length < 0) continue;
+            if (buf.remaining() < length) {
+                if (buf.capacity() < length) {
+                    ByteBuffer bigger = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                    bigger.put(buf).flip();
+                    buf = bigger;
+                }
+                pos = refill(ch, buf, pos, length, file);
+            }
+            names[i] = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+        }
+        return names;
+    }
+
+    /** Keeps the unread bytes and reads more until at least {@code need} are available. */
+    private static long refill(FileChannel ch, ByteBuffer buf, long pos, int need, Path file) throws IOException {
+        buf.compact();
+        while (buf.position() < need) {
+            int r = ch.read(buf, pos);
+            if (r < 0) {
+                throw new IOException(file + ": truncated name table");
+            }
+            pos += r;
+        }
+        buf.flip();
+        return pos;
+    }
+
+    private static int writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            total += ch.write(buf, pos + total);
+        }
+        return total;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos, Path file) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, pos);
+            if (r < 0) throw new EOFException(file + ": truncated checkpoint");
+            pos += r;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.andreisima.orbitsim.core.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Buffered byte reader for the streaming loaders. Parsers look at the bytes
+ * in {@link #buf} between {@link #pos} and {@link #limit} directly and call
+ * {@link #fill} when they need more, so no per-line objects are made.
+ */
+final class ByteInput implements Closeable {
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    byte[] buf = new byte[BUFFER_BYTES];
+    int pos;
+    int limit;
+    private boolean eof;
+    private long discarded; // bytes dropped from the front of buf so far
+
+    ByteInput(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    /** Offset in the file of {@code buf[pos]}. */
+    long offset() {
+        return discarded + pos;
+    }
+
+    /**
+     * Reads more data, keeping everything from {@code keepFrom} on (which
+     * moves to the front of the buffer; the shift is returned so callers can
+     * adjust saved indices). Grows the buffer if it is full. Returns -1 at
+     * end of input.
+     */
+    int fill(int keepFrom) throws IOException {
+        if (eof) return -1;
+        int shift = keepFrom;
+        if (shift > 0) {
+            System.arraycopy(buf, shift, buf, 0, limit - shift);
+            limit -= shift;
+            pos -= shift;
+            discarded += shift;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, 2 * buf.length);
+        }
+        int r = channel.read(ByteBuffer.wrap(buf, limit, buf.length - limit));
+        if (r < 0) {
+            eof = true;
+            return -1;
+        }
+        limit += r;
+        return shift;
+    }
+
+    /** Next byte, or -1 at end of input. */
+    int read() throws IOException {
+        if (pos == limit && fill(pos) < 0) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    /** Next byte without consuming it, or -1 at end of input. */
+    int peek() throws IOException {
+        if (pos == limit && fill(pos) < 0) return -1;
+        return buf[pos] & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,185 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Reads initial conditions from a CSV file with one body per line, either
+ * as a state vector (8 columns) or as Keplerian elements around a primary
+ * listed earlier in the file (9 columns):
+ * <pre>
+ * name,type,mass,radius,x,y,vx,vy
+ * Sun,STAR,1.9885e30,6.9634e8,0,0,0,0
+ * name,type,mass,radius,primary,a,e,omega,M
+ * Ceres,ASTEROID,9.39e20,4.7e5,Sun,4.14e11,0.0785,73.6,291.4
+ * </pre>
+ * SI units throughout; the argument of periapsis {@code omega} and the mean
+ * anomaly {@code M} are in degrees. Blank lines, lines starting with
+ * {@code #} and header lines starting with {@code name} are skipped. A field
+ * in double quotes may contain commas, with {@code ""} standing for a quote.
+ * <p>
+ * The file is parsed as bytes in large blocks, straight into the state's
+ * arrays, so the only object made per row is the body's name.
+ */
+public final class CsvStateReader {
+    private static final int MAX_COLUMNS = 9;
+
+    private CsvStateReader() {
+    }
+
+    public static SystemState read(Path file) throws IOException {
+        StateBuilder builder = new StateBuilder();
+        int[] start = new int[MAX_COLUMNS + 1];
+        int[] end = new int[MAX_COLUMNS + 1];
+        boolean[] quoted = new boolean[MAX_COLUMNS + 1];
+        try (ByteInput in = new ByteInput(file)) {
+            boolean sized = false;
+            int lineNumber = 0;
+            while (true) {
+                // find the end of the line, reading more as needed
+                int lineEnd = in.pos;
+                while (true) {
+                    while (lineEnd < in.limit && in.buf[lineEnd] != '\n') lineEnd++;
+                    if (lineEnd < in.limit) break;
+                    int shift = in.fill(in.pos);
+                    if (shift < 0) break;
+                    lineEnd -= shift;
+                    if (!sized) {
+                        builder.state.ensureCapacity(estimateRows(in));
+                        sized = true;
+                    }
+                }
+                if (in.pos >= in.limit) break;
+                lineNumber++;
+                byte[] b = in.buf;
+                int from = in.pos;
+                int to = Math.min(lineEnd, in.limit);
+                in.pos = Math.min(lineEnd + 1, in.limit);
+
+                while (from < to && b[from] <= ' ') from++;
+                while (to > from && b[to - 1] <= ' ') to--;
+                if (from == to || b[from] == '#' || startsWithName(b, from, to)) {
+                    continue;
+                }
+                try {
+                    int columns = split(b, from, to, start, end, quoted);
+                    if (columns != 8 && columns != 9) {
+                        throw new IllegalArgumentException("expected 8 or 9 columns, found " + columns);
+                    }
+                    addRow(builder, b, start, end, quoted, columns);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return builder.state;
+    }
+
+    private static void addRow(StateBuilder builder, byte[] b, int[] start, int[] end, boolean[] quoted,
+                               int columns) {
+        String name = text(b, start[0], end[0], quoted[0]);
+        BodyType type = StateBuilder.type(b, start[1], end[1]);
+        double mass = number(b, start, end, 2);
+        double radius = number(b, start, end, 3);
+        if (columns == 8) {
+            builder.cartesian(name, type, mass, radius,
+                    number(b, start, end, 4), number(b, start, end, 5),
+                    number(b, start, end, 6), number(b, start, end, 7));
+        } else if (quoted[4] && indexOf(b, start[4], end[4], (byte) '"') >= 0) {
+            byte[] primary = text(b, start[4], end[4], true).getBytes(StandardCharsets.UTF_8);
+            builder.kepler(name, type, mass, radius, primary, 0, primary.length,
+                    number(b, start, end, 5), number(b, start, end, 6),
+                    number(b, start, end, 7), number(b, start, end, 8));
+        } else {
+            builder.kepler(name, type, mass, radius, b, start[4], end[4],
+                    number(b, start, end, 5), number(b, start, end, 6),
+                    number(b, start, end, 7), number(b, start, end, 8));
+        }
+    }
+
+    private static double number(byte[] b, int[] start, int[] end, int column) {
+        return AsciiNumbers.parseDouble(b, start[column], end[column]);
+    }
+
+    /** Field text; in a quoted field, {@code ""} stands for one quote. */
+    private static String text(byte[] b, int from, int to, boolean quoted) {
+        String s = new String(b, from, to - from, StandardCharsets.UTF_8);
+        return quoted && s.indexOf('"') >= 0 ? s.replace("\"\"", "\"") : s;
+    }
+
+    private static int indexOf(byte[] b, int from, int to, byte c) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == c) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Splits on commas into trimmed field bounds; returns the column count
+     * (capped past the maximum). The bounds of a quoted field exclude the
+     * quotes, and {@code quoted} marks it.
+     */
+    private static int split(byte[] b, int from, int to, int[] start, int[] end, boolean[] quoted) {
+        int columns = 0;
+        int i = from;
+        while (true) {
+            while (i < to && b[i] <= ' ') i++;
+            int fs, fe;
+            boolean q = i < to && b[i] == '"';
+            if (q) {
+                fs = ++i;
+                while (true) {
+                    if (i == to) throw new IllegalArgumentException("unterminated quoted field");
+                    if (b[i] == '"') {
+                        if (i + 1 < to && b[i + 1] == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fe = i++;
+                while (i < to && b[i] <= ' ') i++;
+                if (i < to && b[i] != ',') {
+                    throw new IllegalArgumentException("unexpected text after quoted field " + (columns + 1));
+                }
+            } else {
+                fs = i;
+                while (i < to && b[i] != ',') i++;
+                fe = i;
+                while (fe > fs && b[fe - 1] <= ' ') fe--;
+            }
+            if (columns < start.length) {
+                start[columns] = fs;
+                end[columns] = fe;
+                quoted[columns] = q;
+            }
+            columns++;
+            if (i == to) return columns;
+            i++; // the comma
+        }
+    }
+
+    /** True for a header line, whose first column is {@code name}. */
+    private static boolean startsWithName(byte[] b, int from, int to) {
+        return to - from >= 4 && (b[from] | 0x20) == 'n' && (b[from + 1] | 0x20) == 'a'
+                && (b[from + 2] | 0x20) == 'm' && (b[from + 3] | 0x20) == 'e'
+                && (to - from == 4 || b[from + 4] == ',' || b[from + 4] == ' ');
+    }
+
+    /** Row count guessed from the line length in the first block, so storage grows at most once more. */
+    private static int estimateRows(ByteInput in) throws IOException {
+        int lines = 0;
+        for (int i = in.pos; i < in.limit; i++) {
+            if (in.buf[i] == '\n') lines++;
+        }
+        if (lines == 0) return 16;
+        double bytesPerLine = (double) (in.limit - in.pos) / lines;
+        return (int) Math.min(Integer.MAX_VALUE - 8, in.size() / bytesPerLine * 1.05 + 16);
+    }
+}
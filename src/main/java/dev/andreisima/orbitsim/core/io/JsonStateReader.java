@@ -0,0 +1,302 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads initial conditions from JSON: an array of body objects, or an
+ * object whose single {@code "bodies"} member is such an array.
+ * <pre>
+ * [
+ *   {"name": "Sun", "type": "STAR", "mass": 1.9885e30, "radius": 6.9634e8, "x": 0, "y": 0, "vx": 0, "vy": 0},
+ *   {"name": "Ceres", "type": "ASTEROID", "mass": 9.39e20, "radius": 4.7e5,
+ *    "primary": "Sun", "a": 4.14e11, "e": 0.0785, "omega": 73.6, "M": 291.4}
+ * ]
+ * </pre>
+ * Keys and units are those of {@link CsvStateReader}; a body with a
+ * {@code primary} is placed from its orbital elements. Missing numbers
+ * default to 0 and unknown members are skipped. Parsing is streaming and
+ * byte based, like the CSV reader.
+ */
+public final class JsonStateReader {
+    private static final byte[][] KEYS = keys("name", "type", "mass", "radius", "x", "y", "vx", "vy",
+            "primary", "a", "e", "omega", "M", "bodies");
+    private static final int NAME = 0, TYPE = 1, MASS = 2, RADIUS = 3, X = 4, Y = 5, VX = 6, VY = 7,
+            PRIMARY = 8, A = 9, E = 10, OMEGA = 11, M = 12, BODIES = 13;
+    /** Numeric members, indexed by key, in the order above. */
+    private static final int NUMBERS = M + 1;
+
+    private final ByteInput in;
+    private final Path file;
+    private final StateBuilder builder = new StateBuilder();
+    // one body's members, reused for every object
+    private final double[] values = new double[NUMBERS];
+    private String name;
+    private BodyType type;
+    private byte[] primary = new byte[64];
+    private int primaryLength = -1;
+    // decoded string or number text
+    private byte[] text = new byte[64];
+    private int textLength;
+
+    private JsonStateReader(ByteInput in, Path file) {
+        this.in = in;
+        this.file = file;
+    }
+
+    public static SystemState read(Path file) throws IOException {
+        try (ByteInput in = new ByteInput(file)) {
+            JsonStateReader reader = new JsonStateReader(in, file);
+            reader.document();
+            return reader.builder.state;
+        }
+    }
+
+    private void document() throws IOException {
+        int c = skipSpace();
+        if (c == '[') {
+            bodies();
+        } else if (c == '{') {
+            in.read();
+            boolean found = false;
+            boolean seen = false;
+            if (skipSpace() == '}') {
+                in.read();
+            } else {
+                do {
+                    int key = key();
+                    if (key == BODIES) {
+                        if (seen) throw error("duplicate \"bodies\" member");
+                        seen = true;
+                    }
+                    if (key == BODIES && skipSpace() == '[') {
+                        bodies();
+                        found = true;
+                    } else {
+                        skipValue();
+                    }
+                } while (comma('}'));
+            }
+            if (!found) throw error("no \"bodies\" array");
+        } else {
+            throw error("expected '[' or '{'");
+        }
+        if (skipSpace() != -1) throw error("unexpected content after the document");
+    }
+
+    private void bodies() throws IOException {
+        in.read(); // '['
+        if (skipSpace() == ']') {
+            in.read();
+            return;
+        }
+        long offset = in.offset();
+        do {
+            if (builder.state.size() == 1) {
+                // size the storage from the length of the first object
+                long perBody = Math.max(16, in.offset() - offset);
+                builder.state.ensureCapacity((int) Math.min(Integer.MAX_VALUE - 8, in.size() / perBody * 1.05 + 16));
+            }
+            body();
+        } while (comma(']'));
+    }
+
+    private void body() throws IOException {
+        if (skipSpace() != '{') throw error("expected a body object");
+        long at = in.offset();
+        in.read();
+        Arrays.fill(values, 0);
+        name = null;
+        type = null;
+        primaryLength = -1;
+        if (skipSpace() == '}') {
+            in.read();
+        } else {
+            do {
+                int key = key();
+                switch (key) {
+                    case NAME -> name = stringValue() ? new String(text, 0, textLength, StandardCharsets.UTF_8) : null;
+                    case TYPE -> {
+                        if (!stringValue()) throw error("type must be a string");
+                        try {
+                            type = StateBuilder.type(text, 0, textLength);
+                        } catch (IllegalArgumentException e) {
+                            throw error(e.getMessage());
+                        }
+                    }
+                    case PRIMARY -> {
+                        if (!stringValue()) throw error("primary must be a string");
+                        if (primary.length < textLength) primary = new byte[textLength];
+                        System.arraycopy(text, 0, primary, 0, textLength);
+                        primaryLength = textLength;
+                    }
+                    case MASS, RADIUS, X, Y, VX, VY, A, E, OMEGA, M -> values[key] = numberValue();
+                    default -> skipValue();
+                }
+            } while (comma('}'));
+        }
+        if (type == null) throw error("body at offset " + at + " has no type");
+        try {
+            if (primaryLength >= 0) {
+                builder.kepler(name, type, values[MASS], values[RADIUS], primary, 0, primaryLength,
+                        values[A], values[E], values[OMEGA], values[M]);
+            } else {
+                builder.cartesian(name, type, values[MASS], values[RADIUS],
+                        values[X], values[Y], values[VX], values[VY]);
+            }
+        } catch (IllegalArgumentException e) {
+            throw error("body at offset " + at + ": " + e.getMessage());
+        }
+    }
+
+    /** Reads {@code "key":} and returns its index in {@link #KEYS}, or -1. */
+    private int key() throws IOException {
+        if (skipSpace() != '"') throw error("expected a member name");
+        string();
+        if (skipSpace() != ':') throw error("expected ':'");
+        in.read();
+        for (int k = 0; k < KEYS.length; k++) {
+            if (Arrays.equals(KEYS[k], 0, KEYS[k].length, text, 0, textLength)) return k;
+        }
+        return -1;
+    }
+
+    /** Consumes a separator; true after ',', false after the closing bracket. */
+    private boolean comma(int close) throws IOException {
+        int c = skipSpace();
+        in.read();
+        if (c == ',') return true;
+        if (c == close) return false;
+        throw error("expected ',' or '" + (char) close + "'");
+    }
+
+    /** Reads a string into {@link #text}; false if the value was null. */
+    private boolean stringValue() throws IOException {
+        int c = skipSpace();
+        if (c == 'n') {
+            literal("null");
+            return false;
+        }
+        if (c != '"') throw error("expected a string");
+        string();
+        return true;
+    }
+
+    private double numberValue() throws IOException {
+        skipSpace();
+        textLength = 0;
+        int c;
+        while ((c = in.peek()) != -1 && (c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E')) {
+            append(in.read());
+        }
+        if (textLength == 0) throw error("expected a number");
+        try {
+            return AsciiNumbers.parseDouble(text, 0, textLength);
+        } catch (NumberFormatException e) {
+            throw error("bad number " + new String(text, 0, textLength, StandardCharsets.US_ASCII));
+        }
+    }
+
+    /** Reads a string starting at the opening quote, unescaping it as UTF-8 into {@link #text}. */
+    private void string() throws IOException {
+        in.read(); // '"'
+        textLength = 0;
+        while (true) {
+            int c = in.read();
+            if (c == -1) throw error("unterminated string");
+            if (c == '"') return;
+            if (c != '\\') {
+                append(c);
+                continue;
+            }
+            int e = in.read();
+            switch (e) {
+                case '"', '\\', '/' -> append(e);
+                case 'b' -> append('\b');
+                case 'f' -> append('\f');
+                case 'n' -> append('\n');
+                case 'r' -> append('\r');
+                case 't' -> append('\t');
+                case 'u' -> {
+                    int cp = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int h = Character.digit(in.read(), 16);
+                        if (h < 0) throw error("bad \\u escape");
+                        cp = cp * 16 + h;
+                    }
+                    // surrogate pairs are kept as two 3-byte sequences; names are for display only
+                    if (cp < 0x80) {
+                        append(cp);
+                    } else if (cp < 0x800) {
+                        append(0xC0 | cp >> 6);
+                        append(0x80 | cp & 0x3F);
+                    } else {
+                        append(0xE0 | cp >> 12);
+                        append(0x80 | cp >> 6 & 0x3F);
+                        append(0x80 | cp & 0x3F);
+                    }
+                }
+                default -> throw error("bad escape");
+            }
+        }
+    }
+
+    private void skipValue() throws IOException {
+        int c = skipSpace();
+        switch (c) {
+            case '"' -> string();
+            case '{', '[' -> {
+                in.read();
+                int close = c == '{' ? '}' : ']';
+                if (skipSpace() == close) {
+                    in.read();
+                    return;
+                }
+                do {
+                    if (c == '{') key();
+                    skipValue();
+                } while (comma(close));
+            }
+            case 't' -> literal("true");
+            case 'f' -> literal("false");
+            case 'n' -> literal("null");
+            default -> numberValue();
+        }
+    }
+
+    private void literal(String word) throws IOException {
+        for (int k = 0; k < word.length(); k++) {
+            if (in.read() != word.charAt(k)) throw error("expected " + word);
+        }
+    }
+
+    private int skipSpace() throws IOException {
+        int c;
+        while ((c = in.peek()) == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            in.read();
+        }
+        return c;
+    }
+
+    private void append(int c) {
+        if (textLength == text.length) text = Arrays.copyOf(text, 2 * text.length);
+        text[textLength++] = (byte) c;
+    }
+
+    private IOException error(String message) {
+        return new IOException(file + ": " + message + " near offset " + in.offset());
+    }
+
+    private static byte[][] keys(String... names) {
+        byte[][] keys = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return keys;
+    }
+}
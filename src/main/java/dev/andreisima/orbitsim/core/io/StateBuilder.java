@@ -0,0 +1,94 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends parsed rows to a {@link SystemState}, converting Keplerian
+ * elements to state vectors around a primary that was loaded earlier.
+ */
+final class StateBuilder {
+    private static final BodyType[] TYPES = BodyType.values();
+    private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+
+    static {
+        for (int t = 0; t < TYPES.length; t++) {
+            TYPE_NAMES[t] = TYPES[t].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    final SystemState state = new SystemState();
+    private final double[] orbit = new double[4];
+    // ids of named bodies, filled in only when a primary lookup misses, so
+    // files without orbital elements never build it
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    private int named;
+    // catalogs name the same primary row after row, so remember the last one
+    private byte[] lastPrimary = new byte[0];
+    private int lastPrimaryId = -1;
+
+    /** Matches a body type name, ignoring case; throws if there is none. */
+    static BodyType type(byte[] b, int from, int to) {
+        for (int t = 0; t < TYPES.length; t++) {
+            byte[] name = TYPE_NAMES[t];
+            if (name.length != to - from) continue;
+            int k = 0;
+            // clearing bit 5 upper-cases ASCII letters and leaves '_' alone
+            while (k < name.length && (b[from + k] & 0xDF) == name[k]) {
+                k++;
+            }
+            if (k == name.length) return TYPES[t];
+        }
+        throw new IllegalArgumentException("unknown body type " + new String(b, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    void cartesian(String name, BodyType type, double mass, double radius,
+                   double x, double y, double vx, double vy) {
+        state.addBody(name, type, mass, radius, x, y, vx, vy);
+    }
+
+    /**
+     * Adds a body on an elliptic orbit around the primary named by
+     * {@code b[from, to)}. Angles are in degrees.
+     */
+    void kepler(String name, BodyType type, double mass, double radius,
+                byte[] b, int from, int to,
+                double a, double e, double omegaDeg, double meanAnomalyDeg) {
+        int p = primary(b, from, to);
+        double mu = Constants.G * (state.getMass()[p] + mass);
+        Kepler.toCartesian(mu, a, e, Math.toRadians(omegaDeg), Math.toRadians(meanAnomalyDeg), orbit);
+        state.addBody(name, type, mass, radius,
+                state.getX()[p] + orbit[0], state.getY()[p] + orbit[1],
+                state.getVx()[p] + orbit[2], state.getVy()[p] + orbit[3]);
+    }
+
+    private int primary(byte[] b, int from, int to) {
+        if (lastPrimaryId >= 0 && Arrays.equals(lastPrimary, 0, lastPrimary.length, b, from, to)) {
+            return state.indexOf(lastPrimaryId);
+        }
+        String name = new String(b, from, to - from, StandardCharsets.UTF_8);
+        Integer id = idsByName.get(name);
+        if (id == null) {
+            // rows are only appended, so the bodies not yet in the map are the
+            // last ones; the first of several bodies with one name wins
+            for (; named < state.size(); named++) {
+                String n = state.getName(named);
+                if (n != null) idsByName.putIfAbsent(n, state.getId(named));
+            }
+            id = idsByName.get(name);
+            if (id == null) {
+                throw new IllegalArgumentException("primary " + name + " must be listed before the bodies orbiting it");
+            }
+        }
+        lastPrimary = Arrays.copyOfRange(b, from, to);
+        lastPrimaryId = id;
+        return state.indexOf(id);
+    }
+}
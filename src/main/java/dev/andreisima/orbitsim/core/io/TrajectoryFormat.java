@@ -0,0 +1,131 @@
+package dev.andreisima.orbitsim.core.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * Layout shared by {@link TrajectoryWriter} and {@link TrajectoryReader}.
+ * <p>
+ * A trajectory is a data file and an index file next to it, both
+ * little-endian:
+ * <pre>
+ * data     int magic 'ORBT', int version, int flags, int keyframe interval
+ *          then frames, appended one after another:
+ *          int payload bytes, int raw bytes, int kind, int count, long step, double time, payload
+ * index    per frame: long offset of the frame in the data file, long number of its keyframe
+ * </pre>
+ * The raw payload is the x, y, vx, vy and mass columns as doubles followed
+ * by one type byte and one int id per body. In a compressed file each
+ * double and id is first XOR-ed with the same slot's value in the previous
+ * frame (unless the frame is a keyframe), the values are split into byte
+ * planes so that the mostly-zero high bytes of the deltas sit together, and
+ * the result is deflated. Version 1 files have no id column; their bodies
+ * read as ids {@code 0..count-1}.
+ */
+final class TrajectoryFormat {
+    static final int MAGIC = 0x5442524F; // "ORBT" read as little-endian bytes
+    static final int VERSION = 2;
+    static final int FILE_HEADER_BYTES = 16;
+    static final int FRAME_HEADER_BYTES = 32;
+    static final int INDEX_ENTRY_BYTES = 16;
+    static final int FLAG_COMPRESSED = 1;
+
+    static final int KIND_RAW = 0;
+    static final int KIND_KEY = 1;
+    static final int KIND_DELTA = 2;
+
+    static final int COLUMNS = 5;
+
+    private TrajectoryFormat() {
+    }
+
+    static Path indexFile(Path data) {
+        return data.resolveSibling(data.getFileName() + ".idx");
+    }
+
+    static int rawBytes(int count) {
+        return rawBytes(count, VERSION);
+    }
+
+    static int rawBytes(int count, int version) {
+        return (8 * COLUMNS + 1 + (version > 1 ? 4 : 0)) * count;
+    }
+
+    static ByteBuffer littleEndian(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Writes the frame's columns into {@code raw}. With {@code previous}
+     * given, values are XOR-ed against it; with {@code planes}, bytes are
+     * grouped by significance instead of stored value by value.
+     */
+    static void encode(TrajectoryFrame frame, TrajectoryFrame previous, boolean planes, byte[] raw) {
+        int n = frame.count;
+        int m = COLUMNS * n;
+        double[][] cols = frame.columns();
+        double[][] prev = previous == null ? null : previous.columns();
+        for (int c = 0; c < COLUMNS; c++) {
+            double[] a = cols[c];
+            double[] p = prev == null ? null : prev[c];
+            for (int i = 0; i < n; i++) {
+                long bits = Double.doubleToRawLongBits(a[i]);
+                if (p != null) bits ^= Double.doubleToRawLongBits(p[i]);
+                int k = c * n + i;
+                for (int b = 0; b < 8; b++) {
+                    raw[planes ? b * m + k : 8 * k + b] = (byte) (bits >>> (8 * b));
+                }
+            }
+        }
+        System.arraycopy(frame.types, 0, raw, 8 * m, n);
+        int at = 8 * m + n;
+        for (int i = 0; i < n; i++) {
+            int bits = frame.ids[i];
+            if (previous != null) bits ^= previous.ids[i];
+            for (int b = 0; b < 4; b++) {
+                raw[at + (planes ? b * n + i : 4 * i + b)] = (byte) (bits >>> (8 * b));
+            }
+        }
+    }
+
+    /**
+     * Inverse of {@link #encode} for a frame of the given file version;
+     * {@code frame} must already hold count and capacity.
+     */
+    static void decode(byte[] raw, TrajectoryFrame previous, boolean planes, int version, TrajectoryFrame frame) {
+        int n = frame.count;
+        int m = COLUMNS * n;
+        double[][] cols = frame.columns();
+        double[][] prev = previous == null ? null : previous.columns();
+        for (int c = 0; c < COLUMNS; c++) {
+            double[] a = cols[c];
+            double[] p = prev == null ? null : prev[c];
+            for (int i = 0; i < n; i++) {
+                int k = c * n + i;
+                long bits = 0;
+                for (int b = 0; b < 8; b++) {
+                    bits |= (raw[planes ? b * m + k : 8 * k + b] & 0xFFL) << (8 * b);
+                }
+                if (p != null) bits ^= Double.doubleToRawLongBits(p[i]);
+                a[i] = Double.longBitsToDouble(bits);
+            }
+        }
+        System.arraycopy(raw, 8 * m, frame.types, 0, n);
+        if (version < 2) {
+            for (int i = 0; i < n; i++) {
+                frame.ids[i] = i;
+            }
+            return;
+        }
+        int at = 8 * m + n;
+        for (int i = 0; i < n; i++) {
+            int bits = 0;
+            for (int b = 0; b < 4; b++) {
+                bits |= (raw[at + (planes ? b * n + i : 4 * i + b)] & 0xFF) << (8 * b);
+            }
+            if (previous != null) bits ^= previous.ids[i];
+            frame.ids[i] = bits;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+/**
+ * One recorded step of a trajectory: positions, velocities, masses, types
+ * and ids of every body. Use the ids to follow a body from frame to frame,
+ * as merges move bodies to other indices. Frames are reused by the writer
+ * and reader, so a frame returned by {@link TrajectoryReader#read} is only
+ * valid until the next read.
+ */
+public class TrajectoryFrame {
+    private static final BodyType[] TYPES = BodyType.values();
+
+    long step;
+    double time;
+    int count;
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+    double[] mass = new double[0];
+    byte[] types = new byte[0];
+    int[] ids = new int[0];
+
+    void copyFrom(SystemState state, long step) {
+        int n = state.size();
+        ensureCapacity(n);
+        this.step = step;
+        this.time = state.getTime();
+        this.count = n;
+        System.arraycopy(state.getX(), 0, x, 0, n);
+        System.arraycopy(state.getY(), 0, y, 0, n);
+        System.arraycopy(state.getVx(), 0, vx, 0, n);
+        System.arraycopy(state.getVy(), 0, vy, 0, n);
+        System.arraycopy(state.getMass(), 0, mass, 0, n);
+        for (int i = 0; i < n; i++) {
+            types[i] = (byte) state.getType(i).ordinal();
+            ids[i] = state.getId(i);
+        }
+    }
+
+    void copyFrom(TrajectoryFrame other) {
+        int n = other.count;
+        ensureCapacity(n);
+        step = other.step;
+        time = other.time;
+        count = n;
+        System.arraycopy(other.x, 0, x, 0, n);
+        System.arraycopy(other.y, 0, y, 0, n);
+        System.arraycopy(other.vx, 0, vx, 0, n);
+        System.arraycopy(other.vy, 0, vy, 0, n);
+        System.arraycopy(other.mass, 0, mass, 0, n);
+        System.arraycopy(other.types, 0, types, 0, n);
+        System.arraycopy(other.ids, 0, ids, 0, n);
+    }
+
+    /** The double arrays in the order they are stored in a frame. */
+    double[][] columns() {
+        return new double[][]{x, y, vx, vy, mass};
+    }
+
+    void ensureCapacity(int n) {
+        if (x.length >= n) return;
+        int capacity = Math.max(n, 2 * x.length);
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        mass = new double[capacity];
+        types = new byte[capacity];
+        ids = new int[capacity];
+    }
+
+    /** Step number the frame was recorded at. */
+    public long getStep() { return step; }
+    /** Simulated time in seconds. */
+    public double getTime() { return time; }
+    public int size() { return count; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getVx(int i) { return vx[i]; }
+    public double getVy(int i) { return vy[i]; }
+    public double getMass(int i) { return mass[i]; }
+    public BodyType getType(int i) { return TYPES[types[i]]; }
+    /** Stable id of body i, as given by {@link SystemState#getId}. */
+    public int getId(int i) { return ids[i]; }
+
+    /** Index of the body with {@code id} in this frame, or -1; a linear search. */
+    public int indexOf(int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,228 @@
+package dev.andreisima.orbitsim.core.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to a trajectory written by {@link TrajectoryWriter}.
+ * <p>
+ * Frame offsets come from the index file. If it is missing, for example
+ * after a crash, the data file is scanned instead. Either way, trailing
+ * frames whose payload runs past the end of the data file are left out.
+ * Reading frame N of a compressed file decodes forward from its keyframe,
+ * or from the previously read frame when reading in order.
+ */
+public class TrajectoryReader implements Closeable {
+    private final Path file;
+    private final FileChannel data;
+    private final boolean compressed;
+    private final int version;
+    private long[] offsets;
+    private long[] keyframes;
+    private int frameCount;
+
+    private final TrajectoryFrame frame = new TrajectoryFrame();
+    private int current = -1; // frame currently decoded in 'frame'
+    private final ByteBuffer header = TrajectoryFormat.littleEndian(TrajectoryFormat.FRAME_HEADER_BYTES);
+    private byte[] raw = new byte[0];
+    private byte[] packed = new byte[0];
+    private final Inflater inflater = new Inflater();
+
+    public TrajectoryReader(Path file) throws IOException {
+        this.file = file;
+        data = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer h = TrajectoryFormat.littleEndian(TrajectoryFormat.FILE_HEADER_BYTES);
+            readFully(h, 0);
+            h.flip();
+            if (h.getInt() != TrajectoryFormat.MAGIC) {
+                throw new IOException(file + ": not a trajectory file");
+            }
+            version = h.getInt();
+            if (version != 1 && version != TrajectoryFormat.VERSION) {
+                throw new IOException(file + ": unsupported trajectory version " + version);
+            }
+            compressed = (h.getInt() & TrajectoryFormat.FLAG_COMPRESSED) != 0;
+            Path idx = TrajectoryFormat.indexFile(file);
+            if (Files.exists(idx)) {
+                loadIndex(idx);
+            } else {
+                scan();
+            }
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    /** Step number of frame {@code n}, read from its header only. */
+    public long stepOf(int n) throws IOException {
+        readHeader(n);
+        return header.getLong(16);
+    }
+
+    /** Decodes frame {@code n}; the returned frame is reused by the next call. */
+    public TrajectoryFrame read(int n) throws IOException {
+        if (n < 0 || n >= frameCount) {
+            throw new IndexOutOfBoundsException(n);
+        }
+        if (n == current) return frame;
+        int from = (int) keyframes[n];
+        if (current >= from && current < n) {
+            from = current + 1;
+        }
+        for (int k = from; k <= n; k++) {
+            current = -1; // 'frame' is invalid if decoding fails part way
+            decode(k);
+            current = k;
+        }
+        return frame;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        data.close();
+    }
+
+    private void decode(int n) throws IOException {
+        readHeader(n);
+        int payloadBytes = header.getInt(0);
+        int rawBytes = header.getInt(4);
+        int kind = header.getInt(8);
+        int count = header.getInt(12);
+        long payloadAt = offsets[n] + TrajectoryFormat.FRAME_HEADER_BYTES;
+        long end = n + 1 < frameCount ? offsets[n + 1] : data.size();
+        if (rawBytes != TrajectoryFormat.rawBytes(count, version) || payloadBytes < 0
+                || payloadAt + payloadBytes > end) {
+            throw new IOException(file + ": corrupt frame " + n);
+        }
+        if (raw.length < rawBytes) raw = new byte[rawBytes];
+        if (kind == TrajectoryFormat.KIND_RAW) {
+            readFully(ByteBuffer.wrap(raw, 0, rawBytes), payloadAt);
+        } else {
+            if (packed.length < payloadBytes) packed = new byte[payloadBytes];
+            readFully(ByteBuffer.wrap(packed, 0, payloadBytes), payloadAt);
+            inflate(payloadBytes, rawBytes, n);
+        }
+        frame.ensureCapacity(count);
+        frame.count = count;
+        frame.step = header.getLong(16);
+        frame.time = header.getDouble(24);
+        // a delta is relative to the frame still held in 'frame', so decode in place
+        TrajectoryFormat.decode(raw, kind == TrajectoryFormat.KIND_DELTA ? frame : null, compressed, version, frame);
+    }
+
+    private void inflate(int payloadBytes, int rawBytes, int n) throws IOException {
+        inflater.reset();
+        inflater.setInput(packed, 0, payloadBytes);
+        try {
+            int size = 0;
+            while (size < rawBytes) {
+                int r = inflater.inflate(raw, size, rawBytes - size);
+                if (r == 0 && (inflater.finished() || inflater.needsInput())) break;
+                size += r;
+            }
+            if (size != rawBytes) {
+                throw new IOException(file + ": frame " + n + " inflates to " + size + " bytes, expected " + rawBytes);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(file + ": corrupt frame " + n, e);
+        }
+    }
+
+    private void readHeader(int n) throws IOException {
+        header.clear();
+        readFully(header, offsets[n]);
+        header.flip();
+    }
+
+    private void loadIndex(Path idx) throws IOException {
+        long bytes = Files.size(idx);
+        int entries = (int) (bytes / TrajectoryFormat.INDEX_ENTRY_BYTES);
+        offsets = new long[entries];
+        keyframes = new long[entries];
+        try (FileChannel ch = FileChannel.open(idx, StandardOpenOption.READ)) {
+            ByteBuffer buf = TrajectoryFormat.littleEndian(entries * TrajectoryFormat.INDEX_ENTRY_BYTES);
+            while (buf.hasRemaining() && ch.read(buf) >= 0) {
+                // keep reading
+            }
+            buf.flip();
+            for (int i = 0; i < entries; i++) {
+                offsets[i] = buf.getLong();
+                keyframes[i] = buf.getLong();
+            }
+        }
+        for (int i = 0; i < entries; i++) {
+            long min = i == 0 ? TrajectoryFormat.FILE_HEADER_BYTES
+                    : offsets[i - 1] + TrajectoryFormat.FRAME_HEADER_BYTES;
+            if (offsets[i] < min || keyframes[i] < 0 || keyframes[i] > i) {
+                throw new IOException(idx + ": corrupt index entry " + i);
+            }
+        }
+        // entries are written after their frame, but the data file may have been
+        // cut short; frames are in file order, so once one fits so do all before it
+        long size = data.size();
+        int valid = entries;
+        while (valid > 0 && !fits(valid - 1, size)) {
+            valid--;
+        }
+        frameCount = valid;
+    }
+
+    /** Whether the header and payload of frame {@code n} lie within the first {@code size} bytes. */
+    private boolean fits(int n, long size) throws IOException {
+        if (offsets[n] + TrajectoryFormat.FRAME_HEADER_BYTES > size) return false;
+        readHeader(n);
+        int payloadBytes = header.getInt(0);
+        return payloadBytes >= 0 && offsets[n] + TrajectoryFormat.FRAME_HEADER_BYTES + payloadBytes <= size;
+    }
+
+    private void scan() throws IOException {
+        offsets = new long[64];
+        keyframes = new long[64];
+        long size = data.size();
+        long pos = TrajectoryFormat.FILE_HEADER_BYTES;
+        long key = 0;
+        int n = 0;
+        while (pos + TrajectoryFormat.FRAME_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, pos);
+            int payloadBytes = header.getInt(0);
+            int kind = header.getInt(8);
+            long next = pos + TrajectoryFormat.FRAME_HEADER_BYTES + payloadBytes;
+            if (payloadBytes < 0 || next > size) break;
+            if (n == offsets.length) {
+                offsets = Arrays.copyOf(offsets, 2 * n);
+                keyframes = Arrays.copyOf(keyframes, 2 * n);
+            }
+            if (kind != TrajectoryFormat.KIND_DELTA) key = n;
+            offsets[n] = pos;
+            keyframes[n] = key;
+            n++;
+            pos = next;
+        }
+        frameCount = n;
+    }
+
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = data.read(buf, pos);
+            if (r < 0) throw new EOFException(file + ": truncated trajectory");
+            pos += r;
+        }
+    }
+}
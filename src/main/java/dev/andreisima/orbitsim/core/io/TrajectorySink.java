@@ -0,0 +1,16 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+/**
+ * Receives the system after every physics step, for output or analysis.
+ * Called on the simulation thread, so implementations should copy what they
+ * need and return quickly.
+ */
+public interface TrajectorySink {
+    /**
+     * @param state the system after the step; only valid during the call
+     * @param step  number of steps taken so far, starting at 1
+     */
+    void accept(SystemState state, long step);
+}
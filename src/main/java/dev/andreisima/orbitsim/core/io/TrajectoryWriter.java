@@ -0,0 +1,220 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Records every k-th step to a trajectory file (see {@link TrajectoryFormat}).
+ * <p>
+ * The simulation thread only copies the state into a free frame buffer and
+ * hands it over; encoding, compression and disk writes happen on a
+ * background thread. With the default two buffers one frame can be filled
+ * while the other is written. If the disk cannot keep up and every buffer is
+ * in flight, {@link #accept} waits for one rather than dropping frames.
+ */
+public class TrajectoryWriter implements TrajectorySink, Closeable {
+    public static final int DEFAULT_BUFFERS = 2;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+    private static final TrajectoryFrame END = new TrajectoryFrame();
+
+    private final int every;
+    private final boolean compressed;
+    private final int keyframeInterval;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final BlockingQueue<TrajectoryFrame> free;
+    private final BlockingQueue<TrajectoryFrame> full;
+    private final Thread thread;
+    private volatile IOException failure;
+    private boolean closed;
+
+    // writer-thread state
+    private final TrajectoryFrame previous = new TrajectoryFrame();
+    private boolean hasPrevious;
+    private long frames;
+    private long lastKeyframe;
+    private long position = TrajectoryFormat.FILE_HEADER_BYTES;
+    private byte[] raw = new byte[0];
+    private byte[] packed = new byte[0];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final ByteBuffer frameHeader = TrajectoryFormat.littleEndian(TrajectoryFormat.FRAME_HEADER_BYTES);
+    private final ByteBuffer indexEntry = TrajectoryFormat.littleEndian(TrajectoryFormat.INDEX_ENTRY_BYTES);
+
+    public TrajectoryWriter(Path file, int every, boolean compressed) throws IOException {
+        this(file, every, compressed, DEFAULT_BUFFERS, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * @param every            record a frame every this many steps
+     * @param compressed       delta-encode and deflate frames
+     * @param buffers          frames that may be queued for writing at once
+     * @param keyframeInterval in compressed files, frames between full keyframes;
+     *                         bounds how far back a reader has to start decoding
+     */
+    public TrajectoryWriter(Path file, int every, boolean compressed, int buffers, int keyframeInterval)
+            throws IOException {
+        if (every < 1 || buffers < 1 || keyframeInterval < 1) {
+            throw new IllegalArgumentException("every, buffers and keyframeInterval must be >= 1");
+        }
+        this.every = every;
+        this.compressed = compressed;
+        this.keyframeInterval = keyframeInterval;
+        data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        index = FileChannel.open(TrajectoryFormat.indexFile(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = TrajectoryFormat.littleEndian(TrajectoryFormat.FILE_HEADER_BYTES);
+        header.putInt(TrajectoryFormat.MAGIC).putInt(TrajectoryFormat.VERSION)
+                .putInt(compressed ? TrajectoryFormat.FLAG_COMPRESSED : 0).putInt(keyframeInterval).flip();
+        writeFully(data, header);
+
+        free = new ArrayBlockingQueue<>(buffers);
+        full = new ArrayBlockingQueue<>(buffers + 1); // room for the end marker
+        for (int i = 0; i < buffers; i++) {
+            free.add(new TrajectoryFrame());
+        }
+        thread = new Thread(this::drain, "trajectory-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void accept(SystemState state, long step) {
+        if (step % every != 0) return;
+        if (closed) {
+            throw new IllegalStateException("trajectory writer is closed");
+        }
+        IOException e = failure;
+        if (e != null) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            TrajectoryFrame frame = free.take();
+            frame.copyFrom(state, step);
+            full.put(frame);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Writes the queued frames, then closes the files. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            full.put(END);
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while flushing trajectory");
+        } finally {
+            try (data; index) {
+                if (failure == null) {
+                    data.force(false);
+                    index.force(false);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                TrajectoryFrame frame = full.take();
+                if (frame == END) return;
+                if (failure == null) {
+                    try {
+                        write(frame);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                // recycled even after a failure so the simulation never blocks on it
+                free.add(frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void write(TrajectoryFrame frame) throws IOException {
+        int n = frame.count;
+        boolean key = !compressed || !hasPrevious || previous.count != n
+                || frames - lastKeyframe >= keyframeInterval;
+        if (key) lastKeyframe = frames;
+
+        int rawBytes = TrajectoryFormat.rawBytes(n);
+        if (raw.length < rawBytes) raw = new byte[rawBytes];
+        TrajectoryFormat.encode(frame, key ? null : previous, compressed, raw);
+
+        byte[] payload = raw;
+        int payloadBytes = rawBytes;
+        if (compressed) {
+            payloadBytes = deflate(rawBytes);
+            payload = packed;
+        }
+
+        int kind = !compressed ? TrajectoryFormat.KIND_RAW
+                : key ? TrajectoryFormat.KIND_KEY : TrajectoryFormat.KIND_DELTA;
+        frameHeader.clear();
+        frameHeader.putInt(payloadBytes).putInt(rawBytes).putInt(kind).putInt(n)
+                .putLong(frame.step).putDouble(frame.time).flip();
+        long start = position;
+        position += writeFully(data, frameHeader);
+        position += writeFully(data, ByteBuffer.wrap(payload, 0, payloadBytes));
+
+        indexEntry.clear();
+        indexEntry.putLong(start).putLong(lastKeyframe).flip();
+        writeFully(index, indexEntry);
+
+        frames++;
+        if (compressed) {
+            previous.copyFrom(frame);
+            hasPrevious = true;
+        }
+    }
+
+    private int deflate(int length) {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        if (packed.length < length / 2 + 64) {
+            packed = new byte[length / 2 + 64];
+        }
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == packed.length) {
+                packed = Arrays.copyOf(packed, 2 * packed.length);
+            }
+            size += deflater.deflate(packed, size, packed.length - size);
+        }
+        return size;
+    }
+
+    private static int writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        int total = 0;
+        while (buf.hasRemaining()) {
+            total += ch.write(buf);
+        }
+        return total;
+    }
+}
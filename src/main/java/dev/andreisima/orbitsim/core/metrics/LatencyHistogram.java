@@ -0,0 +1,71 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds with power-of-two buckets:
+ * bucket b counts values in [2^b, 2^(b+1)), bucket 0 also holds 0. Recording
+ * is a few atomic increments, cheap enough to leave on in every step.
+ * <p>
+ * Counts only ever grow; readers take a {@link #copyTo copy} and subtract an
+ * earlier one to look at a window.
+ */
+public class LatencyHistogram {
+    public static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        return nanos == 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    public long count() { return count.sum(); }
+    public long sum() { return sum.sum(); }
+
+    /** Largest value recorded since the last call; resets the maximum. */
+    public long takeMax() {
+        return max.getAndSet(0);
+    }
+
+    /** Copies the bucket counts into {@code out}, which needs {@link #BUCKETS} slots. */
+    public void copyTo(long[] out) {
+        for (int b = 0; b < BUCKETS; b++) {
+            out[b] = buckets.get(b);
+        }
+    }
+
+    /**
+     * Estimates the {@code q}-quantile (0..1) of {@code total} values from
+     * bucket counts, interpolating linearly inside the bucket it falls into.
+     */
+    public static double quantile(long[] counts, long total, double q) {
+        if (total <= 0) return 0;
+        double rank = q * total;
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            long c = counts[b];
+            if (c > 0 && seen + c >= rank) {
+                double lo = b == 0 ? 0 : Math.scalb(1.0, b);
+                double hi = Math.scalb(1.0, b + 1);
+                return lo + (hi - lo) * Math.max(0, rank - seen) / c;
+            }
+            seen += c;
+        }
+        return Math.scalb(1.0, BUCKETS);
+    }
+}
@@ -0,0 +1,71 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters and per-phase timers of a running simulation. The physics
+ * thread and the render thread record into it; a {@link MetricsSampler}
+ * turns the running totals into per-second figures.
+ */
+public class Metrics {
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder accretions = new LongAdder();
+    private volatile int bodies;
+
+    // force time spent inside the current step, simulation thread only
+    private long stepForceNanos;
+
+    public Metrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public LatencyHistogram histogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    public void record(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    /**
+     * Adds time spent evaluating forces in the current step. Called on the
+     * simulation thread; the total is recorded when the step ends.
+     */
+    public void addForceTime(long nanos) {
+        stepForceNanos += nanos;
+    }
+
+    /**
+     * Records the integrator's share of a step that took {@code nanos} in
+     * total: force time goes to {@link Phase#FORCE}, the rest to
+     * {@link Phase#INTEGRATION}.
+     */
+    public void endIntegration(long nanos) {
+        long force = stepForceNanos;
+        stepForceNanos = 0;
+        if (force > 0) {
+            record(Phase.FORCE, force);
+        }
+        record(Phase.INTEGRATION, Math.max(0, nanos - force));
+    }
+
+    public void countStep(int bodyCount) {
+        steps.increment();
+        bodies = bodyCount;
+    }
+
+    public void countMerge() { merges.increment(); }
+    public void countAccretion() { accretions.increment(); }
+
+    public long getSteps() { return steps.sum(); }
+    public long getMerges() { return merges.sum(); }
+    public long getAccretions() { return accretions.sum(); }
+    /** Body count after the last step. */
+    public int getBodies() { return bodies; }
+}
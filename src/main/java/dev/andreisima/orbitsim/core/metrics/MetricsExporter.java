@@ -0,0 +1,66 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Writes every {@link MetricsReport} it receives as one line of CSV (with a
+ * header line first) or JSON. Register it with
+ * {@link MetricsSampler#addListener}; lines are flushed as they are written
+ * so the log can be tailed while the run goes on.
+ */
+public class MetricsExporter implements Consumer<MetricsReport>, Closeable {
+    public enum Format { CSV, JSON }
+
+    private final Writer out;
+    private final Format format;
+    private boolean headerWritten;
+    private IOException failure;
+
+    public MetricsExporter(Writer out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /** Exporter writing to {@code file}, as JSON lines if its name ends in .json or .jsonl, else CSV. */
+    public static MetricsExporter open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        Format format = name.endsWith(".json") || name.endsWith(".jsonl") ? Format.JSON : Format.CSV;
+        return new MetricsExporter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), format);
+    }
+
+    @Override
+    public synchronized void accept(MetricsReport report) {
+        if (failure != null) return;
+        try {
+            if (format == Format.CSV && !headerWritten) {
+                out.write(MetricsReport.csvHeader());
+                out.write('\n');
+                headerWritten = true;
+            }
+            out.write(format == Format.CSV ? report.toCsv() : report.toJson());
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            // called on the sampler thread; reported from close()
+            failure = e;
+        }
+    }
+
+    /** Closes the output; rethrows the first write error, if any. */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+        if (failure != null) throw failure;
+    }
+}
@@ -0,0 +1,18 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the latest {@link MetricsReport}. Phase times are in
+ * microseconds, keyed by lower-case phase name.
+ */
+public interface MetricsMXBean {
+    long getSteps();
+    int getBodies();
+    double getStepsPerSecond();
+    double getMergesPerSecond();
+    double getAccretionsPerSecond();
+    Map<String, Double> getPhaseMeanMicros();
+    Map<String, Double> getPhaseP99Micros();
+    Map<String, Double> getPhaseMaxMicros();
+}
@@ -0,0 +1,130 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import java.util.Locale;
+
+/**
+ * Summary of one sampling window: rates per second and, for every
+ * {@link Phase}, how often it ran and how long it took. Times are in
+ * nanoseconds; quantiles are estimated from the histogram buckets.
+ */
+public class MetricsReport {
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long timestampMillis;
+    private final double seconds;
+    private final long steps;
+    private final int bodies;
+    private final double stepsPerSecond;
+    private final double mergesPerSecond;
+    private final double accretionsPerSecond;
+    private final long[] count = new long[PHASES.length];
+    private final double[] mean = new double[PHASES.length];
+    private final double[] p50 = new double[PHASES.length];
+    private final double[] p99 = new double[PHASES.length];
+    private final long[] max = new long[PHASES.length];
+
+    MetricsReport(long timestampMillis, double seconds, long steps, int bodies,
+                  double stepsPerSecond, double mergesPerSecond, double accretionsPerSecond) {
+        this.timestampMillis = timestampMillis;
+        this.seconds = seconds;
+        this.steps = steps;
+        this.bodies = bodies;
+        this.stepsPerSecond = stepsPerSecond;
+        this.mergesPerSecond = mergesPerSecond;
+        this.accretionsPerSecond = accretionsPerSecond;
+    }
+
+    /**
+     * Fills in one phase from this window's bucket counts, whose total is
+     * {@code bucketed}, and its running count and sum.
+     */
+    void setPhase(Phase phase, long[] buckets, long bucketed, long n, long sum, long maxNanos) {
+        int k = phase.ordinal();
+        count[k] = n;
+        mean[k] = n == 0 ? 0 : (double) sum / n;
+        // interpolation inside the top bucket can overshoot the largest value seen
+        double ceiling = maxNanos > 0 ? maxNanos : Double.MAX_VALUE;
+        p50[k] = Math.min(ceiling, LatencyHistogram.quantile(buckets, bucketed, 0.5));
+        p99[k] = Math.min(ceiling, LatencyHistogram.quantile(buckets, bucketed, 0.99));
+        max[k] = maxNanos;
+    }
+
+    /** Wall-clock time at the end of the window, in epoch milliseconds. */
+    public long getTimestampMillis() { return timestampMillis; }
+    /** Length of the window in seconds. */
+    public double getSeconds() { return seconds; }
+    /** Steps taken since the metrics were created. */
+    public long getSteps() { return steps; }
+    public int getBodies() { return bodies; }
+    public double getStepsPerSecond() { return stepsPerSecond; }
+    public double getMergesPerSecond() { return mergesPerSecond; }
+    public double getAccretionsPerSecond() { return accretionsPerSecond; }
+
+    /** Times the phase ran in this window. */
+    public long getCount(Phase phase) { return count[phase.ordinal()]; }
+    public double getMeanNanos(Phase phase) { return mean[phase.ordinal()]; }
+    public double getP50Nanos(Phase phase) { return p50[phase.ordinal()]; }
+    public double getP99Nanos(Phase phase) { return p99[phase.ordinal()]; }
+    public long getMaxNanos(Phase phase) { return max[phase.ordinal()]; }
+
+    /** Column names matching {@link #toCsv()}. */
+    public static String csvHeader() {
+        StringBuilder sb = new StringBuilder("timestamp_ms,seconds,steps,bodies,steps_per_s,merges_per_s,accretions_per_s");
+        for (Phase phase : PHASES) {
+            String p = phase.name().toLowerCase(Locale.ROOT);
+            sb.append(',').append(p).append("_count")
+                    .append(',').append(p).append("_mean_us")
+                    .append(',').append(p).append("_p50_us")
+                    .append(',').append(p).append("_p99_us")
+                    .append(',').append(p).append("_max_us");
+        }
+        return sb.toString();
+    }
+
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(timestampMillis).append(',')
+                .append(format(seconds)).append(',')
+                .append(steps).append(',')
+                .append(bodies).append(',')
+                .append(format(stepsPerSecond)).append(',')
+                .append(format(mergesPerSecond)).append(',')
+                .append(format(accretionsPerSecond));
+        for (int k = 0; k < PHASES.length; k++) {
+            sb.append(',').append(count[k])
+                    .append(',').append(format(mean[k] / 1e3))
+                    .append(',').append(format(p50[k] / 1e3))
+                    .append(',').append(format(p99[k] / 1e3))
+                    .append(',').append(format(max[k] / 1e3));
+        }
+        return sb.toString();
+    }
+
+    /** One JSON object on a single line, for JSON-lines logs. */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        sb.append("\"timestamp_ms\":").append(timestampMillis)
+                .append(",\"seconds\":").append(format(seconds))
+                .append(",\"steps\":").append(steps)
+                .append(",\"bodies\":").append(bodies)
+                .append(",\"steps_per_s\":").append(format(stepsPerSecond))
+                .append(",\"merges_per_s\":").append(format(mergesPerSecond))
+                .append(",\"accretions_per_s\":").append(format(accretionsPerSecond))
+                .append(",\"phases\":{");
+        for (int k = 0; k < PHASES.length; k++) {
+            if (k > 0) sb.append(',');
+            sb.append('"').append(PHASES[k].name().toLowerCase(Locale.ROOT)).append("\":{")
+                    .append("\"count\":").append(count[k])
+                    .append(",\"mean_us\":").append(format(mean[k] / 1e3))
+                    .append(",\"p50_us\":").append(format(p50[k] / 1e3))
+                    .append(",\"p99_us\":").append(format(p99[k] / 1e3))
+                    .append(",\"max_us\":").append(format(max[k] / 1e3))
+                    .append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static String format(double v) {
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+}
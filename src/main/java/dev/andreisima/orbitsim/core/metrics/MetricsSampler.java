@@ -0,0 +1,169 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Turns the running totals of a {@link Metrics} into a {@link MetricsReport}
+ * per window, either on demand with {@link #sample()} or periodically on a
+ * daemon thread. Listeners receive every report; the latest one is also
+ * served to the HUD and, once registered, over JMX.
+ */
+public class MetricsSampler implements MetricsMXBean, AutoCloseable {
+    public static final String OBJECT_NAME = "dev.andreisima.orbitsim:type=Metrics";
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Metrics metrics;
+    private final List<Consumer<MetricsReport>> listeners = new CopyOnWriteArrayList<>();
+    private volatile MetricsReport latest;
+    private ScheduledExecutorService scheduler;
+    private ObjectName registered;
+
+    // totals at the start of the current window
+    private long lastNanos;
+    private long lastSteps;
+    private long lastMerges;
+    private long lastAccretions;
+    private final long[][] lastBuckets = new long[PHASES.length][LatencyHistogram.BUCKETS];
+    private final long[] lastCount = new long[PHASES.length];
+    private final long[] lastSum = new long[PHASES.length];
+    private final long[] buckets = new long[LatencyHistogram.BUCKETS];
+
+    public MetricsSampler(Metrics metrics) {
+        this.metrics = metrics;
+        lastNanos = System.nanoTime();
+    }
+
+    public void addListener(Consumer<MetricsReport> listener) {
+        listeners.add(listener);
+    }
+
+    /** Report of the last window, or null before the first sample. */
+    public MetricsReport latest() {
+        return latest;
+    }
+
+    /** Samples every {@code periodMillis} on a daemon thread until {@link #close()}. */
+    public synchronized void start(long periodMillis) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::sample, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Closes the current window and starts the next one. */
+    public synchronized MetricsReport sample() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastNanos) / 1e9);
+        long steps = metrics.getSteps();
+        long merges = metrics.getMerges();
+        long accretions = metrics.getAccretions();
+        MetricsReport report = new MetricsReport(System.currentTimeMillis(), seconds, steps, metrics.getBodies(),
+                (steps - lastSteps) / seconds, (merges - lastMerges) / seconds, (accretions - lastAccretions) / seconds);
+        for (Phase phase : PHASES) {
+            int k = phase.ordinal();
+            LatencyHistogram h = metrics.histogram(phase);
+            h.copyTo(buckets);
+            long count = h.count();
+            long sum = h.sum();
+            long[] last = lastBuckets[k];
+            long bucketed = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                long c = buckets[b];
+                buckets[b] = c - last[b];
+                bucketed += buckets[b];
+                last[b] = c;
+            }
+            // a record racing with the copy may be in the count but not yet in
+            // a bucket; quantiles use the bucket total so they stay consistent
+            report.setPhase(phase, buckets, bucketed, count - lastCount[k], sum - lastSum[k], h.takeMax());
+            lastCount[k] = count;
+            lastSum[k] = sum;
+        }
+        lastNanos = now;
+        lastSteps = steps;
+        lastMerges = merges;
+        lastAccretions = accretions;
+        latest = report;
+        for (Consumer<MetricsReport> listener : listeners) {
+            listener.accept(report);
+        }
+        return report;
+    }
+
+    /** Publishes this sampler on the platform MBean server under {@link #OBJECT_NAME}. */
+    public synchronized void registerMBean() throws JMException {
+        if (registered != null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+        registered = name;
+    }
+
+    /** Stops periodic sampling and unregisters the MBean. */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (registered != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException ignored) {
+                // already gone
+            }
+            registered = null;
+        }
+    }
+
+    @Override public long getSteps() { return metrics.getSteps(); }
+    @Override public int getBodies() { return metrics.getBodies(); }
+    @Override public double getStepsPerSecond() { return latest == null ? 0 : latest.getStepsPerSecond(); }
+    @Override public double getMergesPerSecond() { return latest == null ? 0 : latest.getMergesPerSecond(); }
+    @Override public double getAccretionsPerSecond() { return latest == null ? 0 : latest.getAccretionsPerSecond(); }
+
+    @Override
+    public Map<String, Double> getPhaseMeanMicros() {
+        return perPhase(MetricsReport::getMeanNanos);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        return perPhase(MetricsReport::getP99Nanos);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMaxMicros() {
+        return perPhase(MetricsReport::getMaxNanos);
+    }
+
+    private Map<String, Double> perPhase(ToDoubleBiFunction<MetricsReport, Phase> field) {
+        Map<String, Double> out = new TreeMap<>();
+        MetricsReport report = latest;
+        for (Phase phase : PHASES) {
+            double nanos = report == null ? 0 : field.applyAsDouble(report, phase);
+            out.put(phase.name().toLowerCase(Locale.ROOT), nanos / 1e3);
+        }
+        return out;
+    }
+}
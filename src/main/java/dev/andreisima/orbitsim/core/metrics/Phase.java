@@ -0,0 +1,12 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+/**
+ * Parts of a step, and of a frame, that are timed separately.
+ * <p>
+ * {@link #FORCE} covers calls to a {@link dev.andreisima.orbitsim.core.physics.ForceSolver};
+ * the Hermite and block integrators evaluate forces and jerks in one kernel
+ * of their own, which is counted as {@link #INTEGRATION}.
+ */
+public enum Phase {
+    FORCE, INTEGRATION, COLLISION, TRAIL, RENDER
+}
@@ -3,22 +3,31 @@ package dev.andreisima.orbitsim.core.model;
 import dev.andreisima.orbitsim.core.util.Constants;
 import dev.andreisima.orbitsim.core.util.Vector2D;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-
 /**
  * Represents a physical body participating in the simulation.
+ * <p>
+ * Once added to a {@link SystemState} the body is a handle over one slot of
+ * the state's packed arrays. Vector getters then return copies; use the
+ * setters to change the body. A body that has not been added yet (or that was
+ * removed by a collision) keeps its values in its own fields.
  */
 public class Body {
     private final String name;
     private final BodyType type;
+    private SystemState state;
+    private int index = -1;
+
+    // used while the body is not attached to a state
     private double mass;
     private double radius;
     private final Vector2D position;
     private final Vector2D velocity; // meters / second
     private final Vector2D acceleration; // meters / second^2
-    private final Deque<Vector2D> trail = new ArrayDeque<>();
+
+    private TrailBuffer trail; // kept here only while detached
     private boolean trailEnabled = true;
+    private boolean testParticle; // used while detached
+    private int id = -1; // last id while detached, -1 if never added
 
     public Body(String name, BodyType type, double mass, double radius, Vector2D position, Vector2D velocity) {
         this.name = name;
@@ -30,36 +39,148 @@ public class Body {
         this.acceleration = new Vector2D();
     }
 
+    Body(String name, BodyType type) {
+        this(name, type, 0, 0, new Vector2D(), new Vector2D());
+    }
+
+    void attach(SystemState state, int index) {
+        this.state = state;
+        this.index = index;
+    }
+
+    /** Copies the current values out of the state so the handle stays readable. */
+    void detach() {
+        mass = getMass();
+        radius = getRadius();
+        position.x = state.getX()[index];
+        position.y = state.getY()[index];
+        velocity.x = state.getVx()[index];
+        velocity.y = state.getVy()[index];
+        acceleration.x = state.getAx()[index];
+        acceleration.y = state.getAy()[index];
+        trail = state.getTrail(index);
+        testParticle = state.isTestParticle(index);
+        id = state.getId(index);
+        state = null;
+        index = -1;
+    }
+
+    public boolean isAttached() { return state != null; }
+    /** Index of this body in its state's arrays, or -1 if not attached. */
+    public int getIndex() { return index; }
+
+    /**
+     * Stable id given by the state when the body was added; unlike the
+     * index it does not change while the body stays in the state. A removed
+     * body keeps its last id; -1 if it was never added.
+     */
+    public int getId() {
+        return state != null ? state.getId(index) : id;
+    }
+
     public String getName() { return name; }
     public BodyType getType() { return type; }
-    public double getMass() { return mass; }
-    public void setMass(double mass) { this.mass = mass; }
-    public double getRadius() { return radius; }
-    public void setRadius(double radius) { this.radius = radius; }
-    public Vector2D getPosition() { return position; }
+
+    public double getMass() {
+        return state != null ? state.getMass()[index] : mass;
+    }
+
+    public void setMass(double mass) {
+        if (state != null) {
+            state.getMass()[index] = mass;
+            state.markModified();
+        } else {
+            this.mass = mass;
+        }
+    }
+
+    public double getRadius() {
+        return state != null ? state.getRadius()[index] : radius;
+    }
+
+    public void setRadius(double radius) {
+        if (state != null) {
+            state.getRadius()[index] = radius;
+            state.markModified();
+        } else {
+            this.radius = radius;
+        }
+    }
+
+    public Vector2D getPosition() {
+        return state != null ? new Vector2D(state.getX()[index], state.getY()[index]) : position.copy();
+    }
+
+    public void setPosition(Vector2D position) {
+        if (state != null) {
+            state.getX()[index] = position.x;
+            state.getY()[index] = position.y;
+            state.markModified();
+        } else {
+            this.position.x = position.x;
+            this.position.y = position.y;
+        }
+    }
+
+    public Vector2D getVelocity() {
+        return state != null ? new Vector2D(state.getVx()[index], state.getVy()[index]) : velocity.copy();
+    }
+
     public void setVelocity(Vector2D velocity) {
-        this.velocity.x = velocity.x;
-        this.velocity.y = velocity.y;
+        if (state != null) {
+            state.getVx()[index] = velocity.x;
+            state.getVy()[index] = velocity.y;
+            state.markModified();
+        } else {
+            this.velocity.x = velocity.x;
+            this.velocity.y = velocity.y;
+        }
     }
 
-    public Vector2D getVelocity() { return velocity; }
-    public Vector2D getAcceleration() { return acceleration; }
+    public Vector2D getAcceleration() {
+        return state != null ? new Vector2D(state.getAx()[index], state.getAy()[index]) : acceleration.copy();
+    }
 
-    public Deque<Vector2D> getTrail() { return trail; }
-    public boolean isTrailEnabled() { return trailEnabled; }
-    public void setTrailEnabled(boolean trailEnabled) { this.trailEnabled = trailEnabled; }
+    /** Recorded trail, or null if none has been recorded yet. */
+    public TrailBuffer getTrail() {
+        return state != null ? state.getTrail(index) : trail;
+    }
+
+    /** Hands the trail over to the state when the body is added. */
+    TrailBuffer takeTrail() {
+        TrailBuffer t = trail;
+        trail = null;
+        return t;
+    }
+
+    /** Whether this body only feels gravity and exerts none; see {@link SystemState}. */
+    public boolean isTestParticle() {
+        return state != null ? state.isTestParticle(index) : testParticle;
+    }
 
-    /** Adds the current position to the trail, trimming its length. */
-    public void updateTrail(int maxLength) {
-        if (!trailEnabled) return;
-        trail.addLast(position.copy());
-        while (trail.size() > maxLength) {
-            trail.removeFirst();
+    /**
+     * Marks this body as a test particle or a massive body. Bodies whose type
+     * the state treats as test particles are added as such regardless.
+     * Changing an attached body moves it within the state, changing its index.
+     */
+    public void setTestParticle(boolean testParticle) {
+        if (state != null) {
+            state.setTestParticle(index, testParticle);
+        } else {
+            this.testParticle = testParticle;
         }
     }
 
+    public boolean isTrailEnabled() { return trailEnabled; }
+    public void setTrailEnabled(boolean trailEnabled) { this.trailEnabled = trailEnabled; }
+
     /** Schwarzschild radius for black holes. */
     public double getSchwarzschildRadius() {
+        return schwarzschildRadius(getMass());
+    }
+
+    /** Schwarzschild radius of a given mass, r_s = 2GM / c^2. */
+    public static double schwarzschildRadius(double mass) {
         return 2 * Constants.G * mass / (Constants.C * Constants.C);
     }
-}
\ No newline at end of file
+}
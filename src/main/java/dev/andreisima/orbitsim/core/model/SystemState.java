@@ -2,32 +2,552 @@ package dev.andreisima.orbitsim.core.model;
 
 import dev.andreisima.orbitsim.core.util.Vector2D;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Holds the current collection of bodies in the simulation.
+ * <p>
+ * Body data is stored as structure-of-arrays: one packed {@code double[]}
+ * per component, indexed by body. Integrators and force solvers work on these
+ * arrays directly; {@link Body} is a handle over one index for the UI and
+ * presets. The arrays are replaced when the state grows, so callers should
+ * fetch them again after adding bodies rather than caching them.
+ * <p>
+ * Bodies can be test particles: they feel the massive bodies but exert no
+ * force themselves. Storage is partitioned so that the massive bodies occupy
+ * {@code [0, getMassiveCount())} and test particles the rest; force kernels
+ * take their sources from the first range only. Adding a massive body
+ * therefore shifts the test particles up.
+ * <p>
+ * Indices are not stable: adding bodies, changing test particles and
+ * removing bodies all move bodies around. Each body gets an integer id when
+ * it is added that stays with it until it is removed and is never handed out
+ * again; {@link #indexOf} maps an id to the current index in O(1).
  */
 public class SystemState {
-    private final List<Body> bodies = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 16;
 
+    private double time; // simulated seconds since the start
+    private long modCount;
+    private int count;
+    private int massiveCount;
+    private int nextId;
+    // indexOfId[id] is the index of the body with that id, or -1 once it is removed
+    private int[] indexOfId = new int[INITIAL_CAPACITY];
+    private final Set<BodyType> testTypes = EnumSet.noneOf(BodyType.class);
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] vx = new double[INITIAL_CAPACITY];
+    private double[] vy = new double[INITIAL_CAPACITY];
+    private double[] ax = new double[INITIAL_CAPACITY];
+    private double[] ay = new double[INITIAL_CAPACITY];
+    private double[] mass = new double[INITIAL_CAPACITY];
+    private double[] radius = new double[INITIAL_CAPACITY];
+    private BodyType[] types = new BodyType[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    // handles are created on first request so large generated states stay compact
+    private Body[] handles = new Body[INITIAL_CAPACITY];
+    // trail buffers, likewise created on the first recorded point
+    private TrailBuffer[] trails = new TrailBuffer[INITIAL_CAPACITY];
+
+    private final List<Body> bodyView = new AbstractList<>() {
+        @Override
+        public Body get(int index) {
+            return getBody(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    };
+
+    /** Read-only view of the bodies, in storage order. */
     public List<Body> getBodies() {
-        return bodies;
+        return bodyView;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** Number of massive bodies; they are stored at indices {@code [0, getMassiveCount())}. */
+    public int getMassiveCount() {
+        return massiveCount;
+    }
+
+    /** Whether the body at {@code index} is a test particle. */
+    public boolean isTestParticle(int index) {
+        return index >= massiveCount;
+    }
+
+    /** Whether bodies of {@code type} are added as test particles. */
+    public boolean isTestParticleType(BodyType type) {
+        return testTypes.contains(type);
+    }
+
+    /**
+     * Makes every body of {@code type}, those already here and those added
+     * later, a test particle or a massive body again.
+     */
+    public void setTestParticleType(BodyType type, boolean testParticle) {
+        if (testParticle) {
+            testTypes.add(type);
+        } else {
+            testTypes.remove(type);
+        }
+        boolean moves = false;
+        for (int i = 0; i < count && !moves; i++) {
+            moves = types[i] == type && isTestParticle(i) != testParticle;
+        }
+        if (!moves) return;
+        // stable partition: massive bodies first, then test particles, each in their current order
+        int[] order = new int[count];
+        int k = 0;
+        int massive = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                boolean test = types[i] == type ? testParticle : isTestParticle(i);
+                if (test == (pass == 1)) order[k++] = i;
+            }
+            if (pass == 0) massive = k;
+        }
+        massiveCount = massive;
+        permute(order);
+        modCount++;
+    }
+
+    /**
+     * Makes the body at {@code index} a test particle or a massive body. It
+     * moves to the boundary between the groups, becoming the first test
+     * particle or the last massive body, so its index changes; attached
+     * {@link Body} handles follow it.
+     */
+    public void setTestParticle(int index, boolean testParticle) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (testParticle == isTestParticle(index)) return;
+        if (testParticle) {
+            moveBody(index, massiveCount - 1);
+            massiveCount--;
+        } else {
+            moveBody(index, massiveCount);
+            massiveCount++;
+        }
+        modCount++;
     }
 
+    /** Simulated time in seconds. */
+    public double getTime() {
+        return time;
+    }
+
+    public void setTime(double time) {
+        this.time = time;
+    }
+
+    /**
+     * Counter bumped whenever bodies are added or removed or changed from
+     * outside the integrator (masses, radii, positions or velocities set
+     * through a {@link Body}). Integrators use it to tell whether forces
+     * cached from the previous step are still valid.
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    /** Call after changing the arrays other than by integrating them. */
+    public void markModified() {
+        modCount++;
+    }
+
+    public double[] getX() { return x; }
+    public double[] getY() { return y; }
+    public double[] getVx() { return vx; }
+    public double[] getVy() { return vy; }
+    public double[] getAx() { return ax; }
+    public double[] getAy() { return ay; }
+    public double[] getMass() { return mass; }
+    public double[] getRadius() { return radius; }
+    public BodyType getType(int index) { return types[index]; }
+    public String getName(int index) { return names[index]; }
+    /** Stable id of the body at {@code index}. */
+    public int getId(int index) { return ids[index]; }
+    /** Trail of the body at {@code index}, or null if none has been recorded. */
+    public TrailBuffer getTrail(int index) { return trails[index]; }
+
+    /** Current index of the body with {@code id}, or -1 if there is none. */
+    public int indexOf(int id) {
+        return id >= 0 && id < nextId ? indexOfId[id] : -1;
+    }
+
+    /** The id the next added body will get; every id in use is lower. */
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Replaces the ids of all bodies, for restoring a saved state: body i
+     * gets {@code ids[i]}, and the next added body gets {@code nextId}. Ids
+     * must be distinct and in {@code [0, nextId)}.
+     */
+    public void restoreIds(int[] ids, int nextId) {
+        if (ids.length != count) {
+            throw new IllegalArgumentException("expected " + count + " ids, got " + ids.length);
+        }
+        int[] map = new int[Math.max(nextId, INITIAL_CAPACITY)];
+        Arrays.fill(map, -1);
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            if (id < 0 || id >= nextId) {
+                throw new IllegalArgumentException("id " + id + " outside [0, " + nextId + ")");
+            }
+            if (map[id] >= 0) {
+                throw new IllegalArgumentException("id " + id + " given to bodies " + map[id] + " and " + i);
+            }
+            map[id] = i;
+        }
+        System.arraycopy(ids, 0, this.ids, 0, count);
+        indexOfId = map;
+        this.nextId = nextId;
+    }
+
+    /** Makes ids up to {@code nextId} valid keys of the id map. */
+    private void growIds(int nextId) {
+        if (indexOfId.length < nextId) {
+            indexOfId = Arrays.copyOf(indexOfId, Math.max(nextId, 2 * indexOfId.length));
+        }
+        Arrays.fill(indexOfId, this.nextId, nextId, -1);
+        this.nextId = nextId;
+    }
+
+    /** Gives the body at {@code index} a fresh id. */
+    private void newId(int index) {
+        int id = nextId;
+        growIds(id + 1);
+        ids[index] = id;
+        indexOfId[id] = index;
+    }
+
+    /** Returns the handle for the body stored at {@code index}. */
+    public Body getBody(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Body b = handles[index];
+        if (b == null) {
+            b = new Body(names[index], types[index]);
+            b.attach(this, index);
+            handles[index] = b;
+        }
+        return b;
+    }
+
+    /** Copies the body's values into the packed storage and binds the body to it. */
     public void addBody(Body body) {
-        bodies.add(body);
+        if (body.isAttached()) {
+            throw new IllegalArgumentException("Body " + body.getName() + " already belongs to a system");
+        }
+        Vector2D p = body.getPosition();
+        Vector2D v = body.getVelocity();
+        boolean test = body.isTestParticle() || testTypes.contains(body.getType());
+        int index = addBody(body.getName(), body.getType(), body.getMass(), body.getRadius(),
+                p.x, p.y, v.x, v.y, test);
+        body.attach(this, index);
+        handles[index] = body;
+        trails[index] = body.takeTrail();
+    }
+
+    /**
+     * Adds a body without creating a {@link Body} handle, as a test particle
+     * if its type is one. Returns its index.
+     */
+    public int addBody(String name, BodyType type, double mass, double radius,
+                       double x, double y, double vx, double vy) {
+        return addBody(name, type, mass, radius, x, y, vx, vy, testTypes.contains(type));
+    }
+
+    /**
+     * Adds a body without creating a {@link Body} handle. Test particles are
+     * appended; massive bodies are inserted after the last massive body.
+     * Returns its index.
+     */
+    public int addBody(String name, BodyType type, double mass, double radius,
+                       double x, double y, double vx, double vy, boolean testParticle) {
+        ensureCapacity(count + 1);
+        modCount++;
+        int i = testParticle ? count : massiveCount;
+        openGap(i, 1);
+        count++;
+        if (!testParticle) massiveCount++;
+        this.names[i] = name;
+        this.types[i] = type;
+        this.mass[i] = mass;
+        this.radius[i] = radius;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.ax[i] = 0;
+        this.ay[i] = 0;
+        this.handles[i] = null;
+        this.trails[i] = null;
+        newId(i);
+        return i;
+    }
+
+    /**
+     * Adds {@code n} unnamed bodies of one type with every value zero and
+     * returns the index of the first; they are test particles if the type is
+     * one. Generators fill the arrays afterwards, possibly from several
+     * threads, and call {@link #markModified()}.
+     */
+    public int addBodies(int n, BodyType type) {
+        boolean testParticles = testTypes.contains(type);
+        ensureCapacity(count + n);
+        modCount++;
+        int first = testParticles ? count : massiveCount;
+        int end = first + n;
+        openGap(first, n);
+        if (!testParticles) massiveCount += n;
+        Arrays.fill(this.names, first, end, null);
+        Arrays.fill(this.types, first, end, type);
+        Arrays.fill(this.handles, first, end, null);
+        Arrays.fill(this.trails, first, end, null);
+        for (double[] a : new double[][]{x, y, vx, vy, ax, ay, mass, radius}) {
+            Arrays.fill(a, first, end, 0);
+        }
+        growIds(nextId + n);
+        for (int i = first, id = nextId - n; i < end; i++, id++) {
+            ids[i] = id;
+            indexOfId[id] = i;
+        }
+        count += n;
+        return first;
+    }
+
+    /**
+     * Removes every body whose flag is set, keeping the remaining bodies in
+     * order, in one O(n) compaction pass. Handles of removed bodies are
+     * detached; handles of survivors are moved to their new index.
+     */
+    public void removeBodies(boolean[] removed) {
+        modCount++;
+        int w = 0;
+        int massive = 0;
+        for (int r = 0; r < count; r++) {
+            if (r == massiveCount) massive = w;
+            if (removed[r]) {
+                if (handles[r] != null) handles[r].detach();
+                indexOfId[ids[r]] = -1;
+                continue;
+            }
+            if (w != r) {
+                x[w] = x[r];
+                y[w] = y[r];
+                vx[w] = vx[r];
+                vy[w] = vy[r];
+                ax[w] = ax[r];
+                ay[w] = ay[r];
+                mass[w] = mass[r];
+                radius[w] = radius[r];
+                types[w] = types[r];
+                names[w] = names[r];
+                handles[w] = handles[r];
+                trails[w] = trails[r];
+                ids[w] = ids[r];
+                indexOfId[ids[w]] = w;
+                if (handles[w] != null) handles[w].attach(this, w);
+            }
+            w++;
+        }
+        Arrays.fill(types, w, count, null);
+        Arrays.fill(names, w, count, null);
+        Arrays.fill(handles, w, count, null);
+        Arrays.fill(trails, w, count, null);
+        massiveCount = massiveCount == count ? w : massive;
+        count = w;
+    }
+
+    /**
+     * Removes the body at {@code index} in O(1) by moving the last body of
+     * its group into the slot, and for a massive body the last test particle
+     * into the slot that frees up. Other bodies change order; use ids to
+     * follow them. Its handle, if any, is detached.
+     */
+    public void removeBody(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        modCount++;
+        if (handles[index] != null) handles[index].detach();
+        indexOfId[ids[index]] = -1;
+        int last = count - 1;
+        if (index < massiveCount) {
+            int lastMassive = massiveCount - 1;
+            moveSlot(lastMassive, index);
+            moveSlot(last, lastMassive);
+            massiveCount--;
+        } else {
+            moveSlot(last, index);
+        }
+        types[last] = null;
+        names[last] = null;
+        handles[last] = null;
+        trails[last] = null;
+        count--;
+    }
+
+    /** Copies the body at {@code from} over the one at {@code to}. */
+    private void moveSlot(int from, int to) {
+        if (from == to) return;
+        copy(from, to, 1);
+        reattach(to, to + 1);
+    }
+
+    /** Shifts bodies {@code [at, count)} up by {@code n} slots; the gap keeps stale values. */
+    private void openGap(int at, int n) {
+        int tail = count - at;
+        if (tail == 0) return;
+        copy(at, at + n, tail);
+        reattach(at + n, at + n + tail);
+    }
+
+    /** Moves the body at {@code from} to {@code to}, shifting the ones in between by one. */
+    private void moveBody(int from, int to) {
+        if (from == to) return;
+        double sx = x[from], sy = y[from], svx = vx[from], svy = vy[from];
+        double sax = ax[from], say = ay[from], sm = mass[from], sr = radius[from];
+        BodyType st = types[from];
+        String sn = names[from];
+        Body sh = handles[from];
+        TrailBuffer strail = trails[from];
+        int sid = ids[from];
+        if (from < to) {
+            copy(from + 1, from, to - from);
+        } else {
+            copy(to, to + 1, from - to);
+        }
+        x[to] = sx; y[to] = sy; vx[to] = svx; vy[to] = svy;
+        ax[to] = sax; ay[to] = say; mass[to] = sm; radius[to] = sr;
+        types[to] = st;
+        names[to] = sn;
+        handles[to] = sh;
+        trails[to] = strail;
+        ids[to] = sid;
+        reattach(Math.min(from, to), Math.max(from, to) + 1);
+    }
+
+    /** Copies {@code length} bodies from {@code from} to {@code to} in every array. */
+    private void copy(int from, int to, int length) {
+        System.arraycopy(x, from, x, to, length);
+        System.arraycopy(y, from, y, to, length);
+        System.arraycopy(vx, from, vx, to, length);
+        System.arraycopy(vy, from, vy, to, length);
+        System.arraycopy(ax, from, ax, to, length);
+        System.arraycopy(ay, from, ay, to, length);
+        System.arraycopy(mass, from, mass, to, length);
+        System.arraycopy(radius, from, radius, to, length);
+        System.arraycopy(types, from, types, to, length);
+        System.arraycopy(names, from, names, to, length);
+        System.arraycopy(handles, from, handles, to, length);
+        System.arraycopy(trails, from, trails, to, length);
+        System.arraycopy(ids, from, ids, to, length);
+    }
+
+    /** Rearranges the bodies so that new index k holds old body {@code order[k]}. */
+    private void permute(int[] order) {
+        int n = order.length;
+        double[][] columns = {x, y, vx, vy, ax, ay, mass, radius};
+        for (double[] column : columns) {
+            double[] old = Arrays.copyOf(column, n);
+            for (int k = 0; k < n; k++) column[k] = old[order[k]];
+        }
+        BodyType[] oldTypes = Arrays.copyOf(types, n);
+        String[] oldNames = Arrays.copyOf(names, n);
+        Body[] oldHandles = Arrays.copyOf(handles, n);
+        TrailBuffer[] oldTrails = Arrays.copyOf(trails, n);
+        int[] oldIds = Arrays.copyOf(ids, n);
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            types[k] = oldTypes[i];
+            names[k] = oldNames[i];
+            handles[k] = oldHandles[i];
+            trails[k] = oldTrails[i];
+            ids[k] = oldIds[i];
+        }
+        reattach(0, n);
+    }
+
+    /** Points the handles and the id map of bodies {@code [from, to)} at their current index. */
+    private void reattach(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (handles[i] != null) handles[i].attach(this, i);
+            indexOfId[ids[i]] = i;
+        }
+    }
+
+    /** Makes room for at least {@code capacity} bodies. */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= x.length) return;
+        int newCapacity = Math.max(capacity, x.length * 2);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        vx = Arrays.copyOf(vx, newCapacity);
+        vy = Arrays.copyOf(vy, newCapacity);
+        ax = Arrays.copyOf(ax, newCapacity);
+        ay = Arrays.copyOf(ay, newCapacity);
+        mass = Arrays.copyOf(mass, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        handles = Arrays.copyOf(handles, newCapacity);
+        trails = Arrays.copyOf(trails, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+    }
+
+    /**
+     * Appends the current position of every body to its trail.
+     *
+     * @param capacity   points kept per trail; existing trails are resized when this changes
+     * @param minSpacing a point is only recorded once the body has moved at
+     *                   least this far from the previous one; 0 records every call
+     */
+    public void updateTrails(int capacity, double minSpacing) {
+        double minSq = minSpacing * minSpacing;
+        for (int i = 0; i < count; i++) {
+            if (handles[i] != null && !handles[i].isTrailEnabled()) continue;
+            TrailBuffer t = trails[i];
+            if (t == null) {
+                t = trails[i] = new TrailBuffer(capacity);
+            } else if (t.capacity() != capacity) {
+                t.setCapacity(capacity);
+            }
+            if (minSq > 0 && t.size() > 0) {
+                double dx = x[i] - t.lastX();
+                double dy = y[i] - t.lastY();
+                if (dx * dx + dy * dy < minSq) continue;
+            }
+            t.add(x[i], y[i]);
+        }
     }
 
     /** Computes the barycenter (center of mass) of the system. */
     public Vector2D computeBarycenter() {
-        Vector2D sum = new Vector2D();
+        double sx = 0, sy = 0;
         double totalMass = 0;
-        for (Body b : bodies) {
-            sum.add(Vector2D.scale(b.getPosition(), b.getMass()));
-            totalMass += b.getMass();
+        for (int i = 0; i < count; i++) {
+            sx += x[i] * mass[i];
+            sy += y[i] * mass[i];
+            totalMass += mass[i];
         }
         if (totalMass == 0) return new Vector2D();
-        return sum.scale(1.0 / totalMass);
+        return new Vector2D(sx / totalMass, sy / totalMass);
     }
-}
\ No newline at end of file
+}
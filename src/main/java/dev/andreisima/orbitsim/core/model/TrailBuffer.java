@@ -0,0 +1,86 @@
+package dev.andreisima.orbitsim.core.model;
+
+/**
+ * Fixed-capacity ring of trail points stored as two primitive arrays.
+ * <p>
+ * Adding a point to a full buffer overwrites the oldest one, so recording a
+ * trail does not allocate once the buffer exists. Points are addressed from
+ * the oldest ({@code k = 0}) to the newest ({@code k = size() - 1}).
+ */
+public class TrailBuffer {
+    private double[] x;
+    private double[] y;
+    private int head; // slot the next point goes to
+    private int size;
+
+    public TrailBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        x = new double[capacity];
+        y = new double[capacity];
+    }
+
+    public int size() { return size; }
+    public int capacity() { return x.length; }
+
+    public void add(double px, double py) {
+        x[head] = px;
+        y[head] = py;
+        head = head + 1 == x.length ? 0 : head + 1;
+        if (size < x.length) size++;
+    }
+
+    /** x of the k-th oldest point. */
+    public double getX(int k) { return x[slot(k)]; }
+    public double getY(int k) { return y[slot(k)]; }
+
+    /** x of the newest point; only valid when the buffer is not empty. */
+    public double lastX() { return x[head == 0 ? x.length - 1 : head - 1]; }
+    public double lastY() { return y[head == 0 ? y.length - 1 : head - 1]; }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Changes the capacity, keeping the newest points that still fit.
+     * Reallocates, so callers should only do this when the limit changes.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        if (capacity == x.length) return;
+        int keep = Math.min(size, capacity);
+        double[] nx = new double[capacity];
+        double[] ny = new double[capacity];
+        copyTo(size - keep, keep, nx, ny, 0);
+        x = nx;
+        y = ny;
+        size = keep;
+        head = keep == capacity ? 0 : keep;
+    }
+
+    /** Copies all points, oldest first, into the arrays starting at {@code offset}. */
+    public void copyTo(double[] dx, double[] dy, int offset) {
+        copyTo(0, size, dx, dy, offset);
+    }
+
+    private void copyTo(int from, int length, double[] dx, double[] dy, int offset) {
+        if (length == 0) return;
+        int first = slot(from);
+        int run = Math.min(length, x.length - first);
+        System.arraycopy(x, first, dx, offset, run);
+        System.arraycopy(y, first, dy, offset, run);
+        System.arraycopy(x, 0, dx, offset + run, length - run);
+        System.arraycopy(y, 0, dy, offset + run, length - run);
+    }
+
+    private int slot(int k) {
+        int s = head - size + k;
+        return s < 0 ? s + x.length : s;
+    }
+
+}
@@ -0,0 +1,240 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+
+import java.util.Arrays;
+
+/**
+ * Barnes–Hut quadtree solver, O(n log n). A cell of size s seen from
+ * distance d is replaced by its center of mass when s / d < theta.
+ * <p>
+ * The tree is rebuilt every call. Nodes live in flat arrays that are reused
+ * between calls and only grow, so a rebuild does not allocate per node.
+ * Only massive bodies go into the tree; test particles just walk it.
+ */
+public class BarnesHutForceSolver implements ForceSolver {
+    private static final int NONE = -1;
+    /** Marks a leaf that holds more than one body (coincident positions at max depth). */
+    private static final int MANY = -2;
+    private static final int MAX_DEPTH = 64;
+
+    private final double theta;
+    private double potentialEnergy = Double.NaN;
+
+    // node pool; the four children of a node are allocated contiguously
+    private int nodeCount;
+    private int[] firstChild = new int[0];
+    private int[] leafBody = new int[0];
+    private double[] centerX = new double[0];
+    private double[] centerY = new double[0];
+    private double[] halfSize = new double[0];
+    private double[] nodeMass = new double[0];
+    private double[] comX = new double[0];
+    private double[] comY = new double[0];
+
+    // traversal stack, reused between calls
+    private int[] stack = new int[4 * MAX_DEPTH + 4];
+
+    public BarnesHutForceSolver() {
+        this(0.5);
+    }
+
+    /**
+     * @param theta opening angle; 0 degenerates to direct summation, larger
+     *              values are faster and less accurate (0.3–0.8 is typical)
+     */
+    public BarnesHutForceSolver(double theta) {
+        if (theta < 0) {
+            throw new IllegalArgumentException("theta must be >= 0");
+        }
+        this.theta = theta;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    @Override
+    public void computeAccelerations(SystemState state) {
+        int n = state.size();
+        if (n == 0) {
+            potentialEnergy = 0;
+            return;
+        }
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] mass = state.getMass();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        int massive = state.getMassiveCount();
+        if (massive == 0) {
+            Arrays.fill(ax, 0, n, 0);
+            Arrays.fill(ay, 0, n, 0);
+            potentialEnergy = 0;
+            return;
+        }
+        buildTree(massive, x, y, mass);
+
+        double thetaSq = theta * theta;
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        double potential = 0;
+        for (int i = 0; i < n; i++) {
+            double px = x[i], py = y[i];
+            double axi = 0, ayi = 0, poti = 0;
+
+            int sp = 0;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int node = stack[--sp];
+                double m = nodeMass[node];
+                if (m == 0 || leafBody[node] == i) continue;
+
+                double dx = comX[node] - px;
+                double dy = comY[node] - py;
+                double rSq = dx * dx + dy * dy;
+                double size = 2 * halfSize[node];
+
+                if (firstChild[node] == NONE || size * size < thetaSq * rSq) {
+                    double distSq = rSq + epsSq;
+                    double factor = Constants.G * m / (distSq * Math.sqrt(distSq));
+                    axi += dx * factor;
+                    ayi += dy * factor;
+                    poti += factor * distSq;
+                } else {
+                    int c = firstChild[node];
+                    stack[sp++] = c;
+                    stack[sp++] = c + 1;
+                    stack[sp++] = c + 2;
+                    stack[sp++] = c + 3;
+                }
+            }
+            ax[i] = axi;
+            ay[i] = ayi;
+            if (i < massive) potential += mass[i] * poti;
+        }
+        // every pair was seen from both sides
+        potentialEnergy = -0.5 * potential;
+    }
+
+    /** Potential energy with the same multipole approximation as the forces. */
+    @Override
+    public double getPotentialEnergy() {
+        return potentialEnergy;
+    }
+
+    private void buildTree(int n, double[] x, double[] y, double[] m) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        // the root cell is square, padded slightly so bodies on the edge stay inside
+        double half = 0.5 * Math.max(maxX - minX, maxY - minY) * 1.0001 + 1.0;
+
+        ensureCapacity(4 * n + 1);
+        nodeCount = 0;
+        newNode(0.5 * (minX + maxX), 0.5 * (minY + maxY), half);
+
+        for (int i = 0; i < n; i++) {
+            insert(i, x[i], y[i], m[i]);
+        }
+    }
+
+    private void insert(int index, double x, double y, double m) {
+        int node = 0;
+        int depth = 0;
+        while (true) {
+            if (firstChild[node] != NONE) {
+                // internal node: accumulate and descend
+                accumulate(node, x, y, m);
+                node = firstChild[node] + quadrant(node, x, y);
+                depth++;
+            } else if (nodeMass[node] == 0 && leafBody[node] == NONE) {
+                // empty leaf
+                leafBody[node] = index;
+                nodeMass[node] = m;
+                comX[node] = x;
+                comY[node] = y;
+                return;
+            } else if (depth >= MAX_DEPTH) {
+                // coincident bodies: keep them together in one leaf
+                leafBody[node] = MANY;
+                accumulate(node, x, y, m);
+                return;
+            } else {
+                // occupied leaf: split and push the resident body down
+                int resident = leafBody[node];
+                double rm = nodeMass[node];
+                double rx = comX[node];
+                double ry = comY[node];
+                subdivide(node);
+                int child = firstChild[node] + quadrant(node, rx, ry);
+                leafBody[child] = resident;
+                nodeMass[child] = rm;
+                comX[child] = rx;
+                comY[child] = ry;
+                // the node now acts as an internal node holding the resident
+                leafBody[node] = NONE;
+            }
+        }
+    }
+
+    private void accumulate(int node, double x, double y, double m) {
+        double total = nodeMass[node] + m;
+        if (total > 0) {
+            comX[node] = (comX[node] * nodeMass[node] + x * m) / total;
+            comY[node] = (comY[node] * nodeMass[node] + y * m) / total;
+        }
+        nodeMass[node] = total;
+    }
+
+    private int quadrant(int node, double x, double y) {
+        int q = 0;
+        if (x >= centerX[node]) q |= 1;
+        if (y >= centerY[node]) q |= 2;
+        return q;
+    }
+
+    private void subdivide(int node) {
+        if (nodeCount + 4 > firstChild.length) {
+            ensureCapacity(2 * firstChild.length);
+        }
+        double h = halfSize[node] * 0.5;
+        double cx = centerX[node];
+        double cy = centerY[node];
+        int first = nodeCount;
+        newNode(cx - h, cy - h, h);
+        newNode(cx + h, cy - h, h);
+        newNode(cx - h, cy + h, h);
+        newNode(cx + h, cy + h, h);
+        firstChild[node] = first;
+    }
+
+    private void newNode(double cx, double cy, double half) {
+        int node = nodeCount++;
+        firstChild[node] = NONE;
+        leafBody[node] = NONE;
+        centerX[node] = cx;
+        centerY[node] = cy;
+        halfSize[node] = half;
+        nodeMass[node] = 0;
+        comX[node] = 0;
+        comY[node] = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= firstChild.length) return;
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        leafBody = Arrays.copyOf(leafBody, capacity);
+        centerX = Arrays.copyOf(centerX, capacity);
+        centerY = Arrays.copyOf(centerY, capacity);
+        halfSize = Arrays.copyOf(halfSize, capacity);
+        nodeMass = Arrays.copyOf(nodeMass, capacity);
+        comX = Arrays.copyOf(comX, capacity);
+        comY = Arrays.copyOf(comY, capacity);
+    }
+}
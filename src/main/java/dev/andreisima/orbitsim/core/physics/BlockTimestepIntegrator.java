@@ -0,0 +1,318 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+
+import java.util.Arrays;
+
+/**
+ * Leapfrog with individual, power-of-two block time steps.
+ * <p>
+ * The step passed to {@link #step} is the largest (block) step. Each body
+ * gets its own step {@code dt / 2^k}, chosen from the Aarseth-style criterion
+ * {@code eta * |a| / |da/dt|}, so bodies on tight orbits substep while slow
+ * outer bodies take the whole block at once. A body's level is re-chosen at
+ * the end of each of its steps and may deepen within a block, as when a
+ * particle on a block-long step runs into a close encounter. All bodies are
+ * synchronised again at the end of the block.
+ * <p>
+ * Everyone drifts between step ends; only bodies ending a step are kicked.
+ * Each pair is kicked on the step of its faster member, with equal and
+ * opposite impulses, so the total momentum is conserved to rounding even
+ * across levels. The criterion is checked at both ends of a candidate step,
+ * which keeps the level choice close to time-symmetric, and the error falls
+ * at least as {@code eta^2} until {@code maxLevel} binds.
+ * <p>
+ * Limits: symmetry holds only as far as the snap estimate predicts the far
+ * end of a step, so energy still drifts slowly over long runs, unlike fixed-step
+ * leapfrog. Bodies whose criterion allows the block step take it whatever
+ * {@code eta} is, so the block step itself must resolve the slowest orbit.
+ * A body that needs steps shorter than {@code dt / 2^maxLevel} is silently
+ * under-resolved. Massive bodies pay for a reaction write on every pair they
+ * evaluate, roughly half as much again per evaluation as a kick that ignores
+ * momentum.
+ */
+public class BlockTimestepIntegrator implements Integrator {
+    private final double eta;
+    private final int maxLevel;
+
+    // per-body scratch, reused between calls: the level of the step ending
+    // next, the one after it, jerk and snap from the last evaluation, kicks
+    private int[] level = new int[0];
+    private int[] next = new int[0];
+    private double[] jx = new double[0];
+    private double[] jy = new double[0];
+    private double[] jxOld = new double[0];
+    private double[] jyOld = new double[0];
+    private double[] sx = new double[0];
+    private double[] sy = new double[0];
+    private int[] active = new int[0];
+    private double[] closing = new double[0];
+    private double[] opening = new double[0];
+    private double[] kickX = new double[0];
+    private double[] kickY = new double[0];
+
+    // forces from the end of the previous block, valid while the state is untouched
+    private final ForceCache cache = new ForceCache();
+
+    public BlockTimestepIntegrator() {
+        this(0.02, 12);
+    }
+
+    /**
+     * @param eta      accuracy parameter; smaller is more accurate (0.01–0.03 is typical)
+     * @param maxLevel deepest subdivision, so the smallest step is {@code dt / 2^maxLevel}
+     */
+    public BlockTimestepIntegrator(double eta, int maxLevel) {
+        if (!(eta > 0)) {
+            throw new IllegalArgumentException("eta must be > 0");
+        }
+        if (maxLevel < 0 || maxLevel > 30) {
+            throw new IllegalArgumentException("maxLevel must be in [0, 30]");
+        }
+        this.eta = eta;
+        this.maxLevel = maxLevel;
+    }
+
+    @Override
+    public void step(SystemState state, double dt) {
+        int n = state.size();
+        if (n == 0) return;
+        ensureCapacity(n);
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+
+        // forces at the start of the block; reused from the end of the last one if nothing changed
+        if (!cache.isValid(state)) {
+            JerkKernel.evaluateAll(state, jx, jy);
+            Arrays.fill(sx, 0, n, 0);
+            Arrays.fill(sy, 0, n, 0);
+        }
+
+        // time runs in ticks of the finest possible step; level k steps 2^(maxLevel - k) ticks.
+        // Level -1 is no step: before the block starts and after it ends.
+        long ticks = 1L << maxLevel;
+        double unit = dt / ticks;
+        Arrays.fill(level, 0, n, -1);
+        long tick = 0;
+        while (true) {
+            // bodies ending a step now pick their next one; everyone does at the start
+            int top = 0;
+            for (int i = 0; i < n; i++) {
+                if (endsStep(i, tick)) {
+                    next[i] = tick < ticks ? levelFor(i, state, span(level[i]) * unit, dt, tick) : -1;
+                }
+                top = Math.max(top, endsStep(i, tick) ? next[i] : level[i]);
+            }
+            kick(state, tick, unit);
+            if (tick == ticks) break;
+
+            // everyone drifts to the next step end, so that forces see current positions
+            long h = span(top);
+            for (int i = 0; i < n; i++) {
+                x[i] += vx[i] * h * unit;
+                y[i] += vy[i] * h * unit;
+            }
+            tick += h;
+        }
+
+        cache.update(state);
+    }
+
+    /**
+     * Kicks every body ending a step at {@code tick}, with forces at the
+     * current positions. A pair is kicked on the step of its faster member,
+     * closing the half step just ended and opening the next, and both bodies
+     * get equal and opposite impulses, so momentum is conserved exactly even
+     * when the two move on different levels. Bodies ending a step also get
+     * fresh accelerations, jerks and snaps for picking later steps.
+     */
+    private void kick(SystemState state, long tick, double unit) {
+        int n = state.size();
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+
+        // the steps ending and starting now, in seconds; infinite for bodies
+        // inside a step, which are on longer steps than any body ending one
+        int ending = 0;
+        for (int i = 0; i < n; i++) {
+            kickX[i] = 0;
+            kickY[i] = 0;
+            if (endsStep(i, tick)) {
+                active[ending++] = i;
+                closing[i] = span(level[i]) * unit;
+                opening[i] = span(next[i]) * unit;
+                jxOld[i] = jx[i];
+                jyOld[i] = jy[i];
+                ax[i] = 0;
+                ay[i] = 0;
+                jx[i] = 0;
+                jy[i] = 0;
+            } else {
+                closing[i] = Double.POSITIVE_INFINITY;
+                opening[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+        for (int k = 0; k < ending; k++) {
+            int i = active[k];
+            double xi = x[i], yi = y[i], vxi = vx[i], vyi = vy[i], mi = m[i];
+            double axi = 0, ayi = 0, jxi = 0, jyi = 0;
+            if (i >= massive) {
+                // a test particle pulls on nothing, so it takes its own step against everyone
+                for (int j = 0; j < massive; j++) {
+                    double dx = x[j] - xi;
+                    double dy = y[j] - yi;
+                    double dvx = vx[j] - vxi;
+                    double dvy = vy[j] - vyi;
+                    double r2 = dx * dx + dy * dy + epsSq;
+                    double inv3 = Constants.G * m[j] / (r2 * Math.sqrt(r2));
+                    double rv = 3 * (dx * dvx + dy * dvy) / r2;
+                    axi += dx * inv3;
+                    ayi += dy * inv3;
+                    jxi += (dvx - rv * dx) * inv3;
+                    jyi += (dvy - rv * dy) * inv3;
+                }
+                double w = 0.5 * (closing[i] + opening[i]);
+                kickX[i] += axi * w;
+                kickY[i] += ayi * w;
+            } else {
+                // bodies inside a step are on longer steps, so i's step is the pair's
+                double w = 0.5 * (closing[i] + opening[i]);
+                double mw = mi * w;
+                for (int j = 0; j < massive; j++) {
+                    if (closing[j] != Double.POSITIVE_INFINITY) continue;
+                    double dx = x[j] - xi;
+                    double dy = y[j] - yi;
+                    double dvx = vx[j] - vxi;
+                    double dvy = vy[j] - vyi;
+                    double r2 = dx * dx + dy * dy + epsSq;
+                    double inv3 = Constants.G / (r2 * Math.sqrt(r2));
+                    double rv = 3 * (dx * dvx + dy * dvy) / r2;
+                    axi += dx * inv3 * m[j];
+                    ayi += dy * inv3 * m[j];
+                    jxi += (dvx - rv * dx) * inv3 * m[j];
+                    jyi += (dvy - rv * dy) * inv3 * m[j];
+                    kickX[j] -= dx * inv3 * mw;
+                    kickY[j] -= dy * inv3 * mw;
+                }
+                kickX[i] += axi * w;
+                kickY[i] += ayi * w;
+                // pairs of two bodies ending a step, each once, on the shorter of their steps
+                for (int l = k + 1; l < ending; l++) {
+                    int j = active[l];
+                    if (j >= massive) break;
+                    double dx = x[j] - xi;
+                    double dy = y[j] - yi;
+                    double dvx = vx[j] - vxi;
+                    double dvy = vy[j] - vyi;
+                    double r2 = dx * dx + dy * dy + epsSq;
+                    double inv3 = Constants.G / (r2 * Math.sqrt(r2));
+                    double rv = 3 * (dx * dvx + dy * dvy) / r2;
+                    double pjx = (dvx - rv * dx) * inv3;
+                    double pjy = (dvy - rv * dy) * inv3;
+                    double wij = 0.5 * (Math.min(closing[i], closing[j]) + Math.min(opening[i], opening[j]));
+                    axi += dx * inv3 * m[j];
+                    ayi += dy * inv3 * m[j];
+                    jxi += pjx * m[j];
+                    jyi += pjy * m[j];
+                    kickX[i] += dx * inv3 * m[j] * wij;
+                    kickY[i] += dy * inv3 * m[j] * wij;
+                    ax[j] -= dx * inv3 * mi;
+                    ay[j] -= dy * inv3 * mi;
+                    jx[j] -= pjx * mi;
+                    jy[j] -= pjy * mi;
+                    kickX[j] -= dx * inv3 * mi * wij;
+                    kickY[j] -= dy * inv3 * mi * wij;
+                }
+            }
+            ax[i] += axi;
+            ay[i] += ayi;
+            jx[i] += jxi;
+            jy[i] += jyi;
+        }
+        for (int i = 0; i < n; i++) {
+            vx[i] += kickX[i];
+            vy[i] += kickY[i];
+        }
+        for (int k = 0; k < ending; k++) {
+            int i = active[k];
+            if (level[i] >= 0) {
+                // snap from the change in jerk over the step just ended
+                sx[i] = (jx[i] - jxOld[i]) / closing[i];
+                sy[i] = (jy[i] - jyOld[i]) / closing[i];
+            }
+            level[i] = next[i];
+        }
+    }
+
+    /** Whether body i ends a step at {@code tick}; all bodies do at the start of a block. */
+    private boolean endsStep(int i, long tick) {
+        return level[i] < 0 || (tick & (span(level[i]) - 1)) == 0;
+    }
+
+    /** Length of a level-k step in ticks; 0 for no step. */
+    private long span(int k) {
+        return k < 0 ? 0 : 1L << (maxLevel - k);
+    }
+
+    /**
+     * Deepest level whose step {@code dt / 2^level} satisfies the time-step
+     * criterion both at its start and at its end, and that starts on a
+     * multiple of its own length. Body i's acceleration, jerk and snap are
+     * {@code age} seconds old, from its last evaluation; they are carried
+     * forward to now and to the end of the candidate step.
+     */
+    private int levelFor(int i, SystemState state, double age, double dt, long tick) {
+        double jxi = jx[i] + age * sx[i];
+        double jyi = jy[i] + age * sy[i];
+        double axi = state.getAx()[i] + age * (jx[i] + 0.5 * age * sx[i]);
+        double ayi = state.getAy()[i] + age * (jy[i] + 0.5 * age * sy[i]);
+        double start = limit(axi, ayi, jxi, jyi);
+        int k = 0;
+        double h = dt;
+        while (k < maxLevel && !(h <= start && h <= limit(
+                axi + h * (jxi + 0.5 * h * sx[i]), ayi + h * (jyi + 0.5 * h * sy[i]),
+                jxi + h * sx[i], jyi + h * sy[i]))) {
+            h *= 0.5;
+            k++;
+        }
+        // a longer step may only start where it lines up with the block grid
+        while ((tick & (span(k) - 1)) != 0) {
+            k++;
+        }
+        return k;
+    }
+
+    /** Step allowed by the Aarseth-style criterion {@code eta * |a| / |da/dt|}. */
+    private double limit(double ax, double ay, double jx, double jy) {
+        double j = Math.sqrt(jx * jx + jy * jy);
+        return j == 0 ? Double.POSITIVE_INFINITY : eta * Math.sqrt(ax * ax + ay * ay) / j;
+    }
+
+    private void ensureCapacity(int n) {
+        if (level.length >= n) return;
+        int capacity = Math.max(n, 2 * level.length);
+        level = new int[capacity];
+        next = new int[capacity];
+        jx = Arrays.copyOf(jx, capacity);
+        jy = Arrays.copyOf(jy, capacity);
+        jxOld = new double[capacity];
+        jyOld = new double[capacity];
+        sx = Arrays.copyOf(sx, capacity);
+        sy = Arrays.copyOf(sy, capacity);
+        active = new int[capacity];
+        closing = new double[capacity];
+        opening = new double[capacity];
+        kickX = new double[capacity];
+        kickY = new double[capacity];
+    }
+}
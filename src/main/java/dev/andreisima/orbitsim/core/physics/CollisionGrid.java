@@ -0,0 +1,108 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import java.util.Arrays;
+
+/**
+ * Uniform spatial hash used as the collision broad phase. Bodies are binned
+ * into square cells; two bodies can only touch if they sit in the same or
+ * adjacent cells, provided the cell size is at least the largest possible
+ * contact distance.
+ * <p>
+ * Cells are hashed into a power-of-two bucket table and bodies are counting
+ * sorted by bucket, so a rebuild is O(n) and reuses its arrays.
+ */
+final class CollisionGrid {
+    private double cellSize;
+    private double originX, originY;
+    private int mask;
+
+    private long[] cellX = new long[0];
+    private long[] cellY = new long[0];
+    private int[] bucketOf = new int[0];
+    private int[] bucketStart = new int[1];
+    private int[] sorted = new int[0];
+
+    /** Bins the first {@code n} bodies into cells of the given size. */
+    void build(double[] x, double[] y, int n, double cellSize) {
+        this.cellSize = cellSize;
+        ensureCapacity(n);
+
+        originX = Double.POSITIVE_INFINITY;
+        originY = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            originX = Math.min(originX, x[i]);
+            originY = Math.min(originY, y[i]);
+        }
+
+        int buckets = bucketStart.length - 1;
+        Arrays.fill(bucketStart, 0);
+        for (int i = 0; i < n; i++) {
+            long cx = (long) ((x[i] - originX) / cellSize);
+            long cy = (long) ((y[i] - originY) / cellSize);
+            cellX[i] = cx;
+            cellY[i] = cy;
+            int b = bucket(cx, cy);
+            bucketOf[i] = b;
+            bucketStart[b + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        // bucketStart[b + 1] is now the end of bucket b; filling back to front
+        // walks it down to the start, keeping bodies in index order
+        for (int i = n - 1; i >= 0; i--) {
+            sorted[--bucketStart[bucketOf[i] + 1]] = i;
+        }
+        // shift so that bucketStart[b] is the start and bucketStart[b + 1] the end of bucket b
+        System.arraycopy(bucketStart, 1, bucketStart, 0, buckets);
+        bucketStart[buckets] = n;
+    }
+
+    long cellX(int body) { return cellX[body]; }
+    long cellY(int body) { return cellY[body]; }
+
+    /** First sorted slot of the bucket that cell (cx, cy) hashes to. */
+    int start(long cx, long cy) {
+        return bucketStart[bucket(cx, cy)];
+    }
+
+    /** One past the last sorted slot of the bucket that cell (cx, cy) hashes to. */
+    int end(long cx, long cy) {
+        return bucketStart[bucket(cx, cy) + 1];
+    }
+
+    /** Body index stored at a sorted slot. */
+    int body(int slot) {
+        return sorted[slot];
+    }
+
+    /** Buckets are shared by hash collisions; this filters to the exact cell. */
+    boolean isInCell(int body, long cx, long cy) {
+        return cellX[body] == cx && cellY[body] == cy;
+    }
+
+    double getCellSize() {
+        return cellSize;
+    }
+
+    private int bucket(long cx, long cy) {
+        long h = cx * 0x9E3779B97F4A7C15L + cy * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void ensureCapacity(int n) {
+        if (cellX.length < n) {
+            int capacity = Math.max(n, 2 * cellX.length);
+            cellX = new long[capacity];
+            cellY = new long[capacity];
+            bucketOf = new int[capacity];
+            sorted = new int[capacity];
+        }
+        // about two buckets per body keeps chains short
+        int buckets = Integer.highestOneBit(Math.max(2 * n, 16) - 1) << 1;
+        if (bucketStart.length - 1 < buckets) {
+            bucketStart = new int[buckets + 1];
+        }
+        mask = bucketStart.length - 2;
+    }
+}
@@ -0,0 +1,81 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+
+/**
+ * Exact pairwise summation, O(n^2). Each pair of massive bodies is visited
+ * once and the result is applied to both bodies (Newton's third law); test
+ * particles only sum the pull of the massive bodies, O(n_massive) each.
+ */
+public class DirectForceSolver implements ForceSolver {
+    private double potentialEnergy = Double.NaN;
+
+    /**
+     * Computes gravitational acceleration on each body using Newton's law of
+     * gravitation with a small softening term to avoid singularities.
+     */
+    @Override
+    public void computeAccelerations(SystemState state) {
+        int n = state.size();
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] m = state.getMass();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+
+        // reset accelerations
+        for (int i = 0; i < n; i++) {
+            ax[i] = 0;
+            ay[i] = 0;
+        }
+
+        double potential = 0;
+        for (int i = 0; i < massive; i++) {
+            double xi = x[i], yi = y[i], mi = m[i];
+            double axi = 0, ayi = 0, poti = 0;
+            for (int j = i + 1; j < massive; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double distSq = dx * dx + dy * dy + epsSq;
+                double factor = Constants.G / (distSq * Math.sqrt(distSq));
+
+                // a_i += G * m_j * r_ij / |r_ij|^3
+                axi += dx * factor * m[j];
+                ayi += dy * factor * m[j];
+                // a_j -= G * m_i * r_ij / |r_ij|^3
+                ax[j] -= dx * factor * mi;
+                ay[j] -= dy * factor * mi;
+                // G / r from the same factor: G / r^3 * r^2
+                poti += factor * distSq * m[j];
+            }
+            ax[i] += axi;
+            ay[i] += ayi;
+            potential -= mi * poti;
+        }
+        potentialEnergy = potential;
+
+        // test particles feel the massive bodies and pull on nothing
+        for (int i = massive; i < n; i++) {
+            double xi = x[i], yi = y[i];
+            double axi = 0, ayi = 0;
+            for (int j = 0; j < massive; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double distSq = dx * dx + dy * dy + epsSq;
+                double factor = Constants.G * m[j] / (distSq * Math.sqrt(distSq));
+                axi += dx * factor;
+                ayi += dy * factor;
+            }
+            ax[i] = axi;
+            ay[i] = ayi;
+        }
+    }
+
+    @Override
+    public double getPotentialEnergy() {
+        return potentialEnergy;
+    }
+}
@@ -0,0 +1,239 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+
+/**
+ * Kepler regularization of close, tightly bound pairs inside a kick-drift
+ * integrator.
+ * <p>
+ * At the start of each step, two massive bodies form a pair if each is the
+ * other's nearest candidate, they are bound, their two-body period is shorter
+ * than {@code periodSteps} steps, and the pull of the rest of the system on
+ * the pair's relative motion (the tidal term) is at most
+ * {@code maxPerturbation} times their mutual pull. Such a pair would need a
+ * far smaller global step, or be smeared by the softening.
+ * <p>
+ * For the rest of the step a pair is split into its center of mass, which
+ * drifts in a straight line, and its relative orbit, which is advanced
+ * exactly and without softening by {@link Kepler#drift}. Kicks leave out the
+ * pair's mutual pull, so the members only receive the rest of the system's
+ * pull, which acts on the relative orbit as the tidal term. This is the same
+ * kick/Kepler-drift splitting as the Wisdom–Holman integrator, applied per
+ * pair, and is symplectic as long as the pairing does not change.
+ * <p>
+ * The mutual pull is subtracted as the direct solver computes it, so other
+ * solvers leave a residue of their approximation error. Test particles are
+ * never paired. Detection bins the massive bodies into a grid with cells as
+ * wide as the widest possible pair, so it is O(n) unless that width spans
+ * the whole system.
+ */
+public class EncounterRegularizer {
+    /** Default for {@code maxPerturbation}. */
+    public static final double DEFAULT_MAX_PERTURBATION = 0.25;
+
+    private final double periodSteps;
+    private final double maxPerturbation;
+    private final CollisionGrid grid = new CollisionGrid();
+
+    private int[] partner = new int[0];
+    private double[] nearest = new double[0];
+    private int[] first = new int[0];
+    private int[] second = new int[0];
+    private int pairs;
+
+    // relative coordinates of each pair, advanced in place by Kepler.drift
+    private double[] rx = new double[0];
+    private double[] ry = new double[0];
+    private double[] rvx = new double[0];
+    private double[] rvy = new double[0];
+
+    public EncounterRegularizer(double periodSteps) {
+        this(periodSteps, DEFAULT_MAX_PERTURBATION);
+    }
+
+    /**
+     * @param periodSteps     pairs whose period is shorter than this many
+     *                        steps are regularized
+     * @param maxPerturbation largest ratio of tidal to mutual acceleration for
+     *                        which a pair is still treated as a two-body orbit
+     */
+    public EncounterRegularizer(double periodSteps, double maxPerturbation) {
+        if (!(periodSteps > 0) || !(maxPerturbation > 0)) {
+            throw new IllegalArgumentException("need periodSteps > 0 and maxPerturbation > 0");
+        }
+        this.periodSteps = periodSteps;
+        this.maxPerturbation = maxPerturbation;
+    }
+
+    /** Number of pairs found by the last {@link #detect}. */
+    public int getPairCount() {
+        return pairs;
+    }
+
+    /** The body paired with body {@code index} by the last {@link #detect}, or -1. */
+    int pairedWith(int index) {
+        for (int p = 0; p < pairs; p++) {
+            if (first[p] == index) return second[p];
+            if (second[p] == index) return first[p];
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the pairs for a step of length {@code dt}. The state's
+     * accelerations must match its positions.
+     */
+    void detect(SystemState state, double dt) {
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] m = state.getMass();
+        ensureCapacity(massive);
+        pairs = 0;
+        if (massive < 2) return;
+
+        // a bound pair with a short enough period is closer than twice its
+        // semi-major axis, which is largest for the two heaviest bodies
+        double maxMass = 0;
+        for (int i = 0; i < massive; i++) {
+            maxMass = Math.max(maxMass, m[i]);
+        }
+        double n = 2 * Math.PI / (Math.abs(dt) * periodSteps); // slowest mean motion
+        double reach = 2 * Math.cbrt(Constants.G * 2 * maxMass / (n * n));
+        if (!(reach > 0) || Double.isInfinite(reach)) return;
+        grid.build(x, y, massive, reach);
+
+        for (int i = 0; i < massive; i++) {
+            partner[i] = -1;
+            nearest[i] = Double.POSITIVE_INFINITY;
+            if (m[i] <= 0) continue;
+            long cx = grid.cellX(i);
+            long cy = grid.cellY(i);
+            for (long gx = cx - 1; gx <= cx + 1; gx++) {
+                for (long gy = cy - 1; gy <= cy + 1; gy++) {
+                    int end = grid.end(gx, gy);
+                    for (int slot = grid.start(gx, gy); slot < end; slot++) {
+                        int j = grid.body(slot);
+                        if (j == i || m[j] <= 0 || !grid.isInCell(j, gx, gy)) continue;
+                        double dx = x[j] - x[i];
+                        double dy = y[j] - y[i];
+                        double r = Math.sqrt(dx * dx + dy * dy);
+                        if (r >= nearest[i] || !isTight(state, i, j, r, n)) continue;
+                        nearest[i] = r;
+                        partner[i] = j;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < massive; i++) {
+            int j = partner[i];
+            if (j <= i || partner[j] != i) continue;
+            first[pairs] = i;
+            second[pairs] = j;
+            pairs++;
+        }
+    }
+
+    /** Bound, faster than the slowest allowed mean motion, and weakly perturbed. */
+    private boolean isTight(SystemState state, int i, int j, double r, double minMeanMotion) {
+        double[] m = state.getMass();
+        double dvx = state.getVx()[j] - state.getVx()[i];
+        double dvy = state.getVy()[j] - state.getVy()[i];
+        double mu = Constants.G * (m[i] + m[j]);
+        double beta = 2 * mu / r - (dvx * dvx + dvy * dvy); // mu / a
+        if (!(beta > 0) || beta * Math.sqrt(beta) / mu < minMeanMotion) return false;
+
+        // tidal term: difference of the members' accelerations without their mutual pull
+        double dx = state.getX()[j] - state.getX()[i];
+        double dy = state.getY()[j] - state.getY()[i];
+        double distSq = dx * dx + dy * dy + Constants.SOFTENING * Constants.SOFTENING;
+        double factor = Constants.G / (distSq * Math.sqrt(distSq));
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double tx = (ax[j] + dx * factor * m[i]) - (ax[i] - dx * factor * m[j]);
+        double ty = (ay[j] + dy * factor * m[i]) - (ay[i] - dy * factor * m[j]);
+        return Math.sqrt(tx * tx + ty * ty) <= maxPerturbation * mu / (r * r);
+    }
+
+    /** Kicks every body by its acceleration, leaving out the mutual pull of each pair. */
+    void kick(SystemState state, double h) {
+        int n = state.size();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double[] m = state.getMass();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        for (int i = 0; i < n; i++) {
+            vx[i] += ax[i] * h;
+            vy[i] += ay[i] * h;
+        }
+        for (int p = 0; p < pairs; p++) {
+            int i = first[p], j = second[p];
+            double dx = x[j] - x[i];
+            double dy = y[j] - y[i];
+            double distSq = dx * dx + dy * dy + epsSq;
+            double factor = Constants.G / (distSq * Math.sqrt(distSq)) * h;
+            vx[i] -= dx * factor * m[j];
+            vy[i] -= dy * factor * m[j];
+            vx[j] += dx * factor * m[i];
+            vy[j] += dy * factor * m[i];
+        }
+    }
+
+    /** Moves unpaired bodies in straight lines and pairs along their Kepler orbits. */
+    void drift(SystemState state, double h) {
+        int n = state.size();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        for (int i = 0; i < n; i++) {
+            x[i] += vx[i] * h;
+            y[i] += vy[i] * h;
+        }
+        // the straight-line move above is already right for each pair's center of mass
+        for (int p = 0; p < pairs; p++) {
+            int i = first[p], j = second[p];
+            double mass = m[i] + m[j];
+            double wi = m[i] / mass, wj = m[j] / mass;
+            double cx = wi * x[i] + wj * x[j];
+            double cy = wi * y[i] + wj * y[j];
+            double cvx = wi * vx[i] + wj * vx[j];
+            double cvy = wi * vy[i] + wj * vy[j];
+            rx[p] = x[j] - x[i] - (vx[j] - vx[i]) * h;
+            ry[p] = y[j] - y[i] - (vy[j] - vy[i]) * h;
+            rvx[p] = vx[j] - vx[i];
+            rvy[p] = vy[j] - vy[i];
+            Kepler.drift(Constants.G * mass, rx, ry, rvx, rvy, p, h);
+            x[i] = cx - wj * rx[p];
+            y[i] = cy - wj * ry[p];
+            x[j] = cx + wi * rx[p];
+            y[j] = cy + wi * ry[p];
+            vx[i] = cvx - wj * rvx[p];
+            vy[i] = cvy - wj * rvy[p];
+            vx[j] = cvx + wi * rvx[p];
+            vy[j] = cvy + wi * rvy[p];
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (partner.length < n) {
+            partner = new int[n];
+            nearest = new double[n];
+            int maxPairs = n / 2 + 1;
+            first = new int[maxPairs];
+            second = new int[maxPairs];
+            rx = new double[maxPairs];
+            ry = new double[maxPairs];
+            rvx = new double[maxPairs];
+            rvy = new double[maxPairs];
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package dev.andreisima.orbitsim.core.physics;
+
+/**
+ * In-place radix-2 complex FFT of a fixed power-of-two length, with the
+ * twiddle factors and bit-reversal permutation computed once. The inverse
+ * transform is not scaled by {@code 1 / n}.
+ * <p>
+ * An instance holds only read-only tables, so threads can share it.
+ */
+final class Fft {
+    private final int n;
+    private final int[] reverse;
+    private final double[] cos;
+    private final double[] sin;
+
+    Fft(int n) {
+        if (n < 1 || Integer.bitCount(n) != 1) {
+            throw new IllegalArgumentException("FFT length must be a power of two, got " + n);
+        }
+        this.n = n;
+        int bits = Integer.numberOfTrailingZeros(n);
+        reverse = new int[n];
+        for (int i = 0; i < n; i++) {
+            reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+        cos = new double[n / 2];
+        sin = new double[n / 2];
+        for (int k = 0; k < n / 2; k++) {
+            double angle = 2 * Math.PI * k / n;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+    }
+
+    int length() {
+        return n;
+    }
+
+    /**
+     * Transforms the {@code n} values starting at {@code offset}: forward with
+     * the kernel {@code e^(-2 pi i jk / n)}, inverse with {@code e^(+2 pi i jk / n)}.
+     */
+    void transform(double[] re, double[] im, int offset, boolean inverse) {
+        for (int i = 0; i < n; i++) {
+            int j = reverse[i];
+            if (i < j) {
+                double t = re[offset + i];
+                re[offset + i] = re[offset + j];
+                re[offset + j] = t;
+                t = im[offset + i];
+                im[offset + i] = im[offset + j];
+                im[offset + j] = t;
+            }
+        }
+        double sign = inverse ? 1 : -1;
+        for (int len = 2; len <= n; len <<= 1) {
+            int half = len >>> 1;
+            int step = n / len;
+            for (int start = offset; start < offset + n; start += len) {
+                for (int k = 0; k < half; k++) {
+                    double c = cos[k * step];
+                    double s = sign * sin[k * step];
+                    int a = start + k;
+                    int b = a + half;
+                    double tr = re[b] * c - im[b] * s;
+                    double ti = re[b] * s + im[b] * c;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+/**
+ * Tracks whether the accelerations left in a state by the previous step can
+ * be reused as the first evaluation of the next one (first-same-as-last).
+ * They can as long as the same state is stepped again and nothing outside
+ * the integrator has changed it since.
+ */
+final class ForceCache {
+    private SystemState state;
+    private long modCount = -1;
+
+    boolean isValid(SystemState state) {
+        return state == this.state && state.getModCount() == modCount;
+    }
+
+    /** Records that the state's accelerations match its current positions. */
+    void update(SystemState state) {
+        this.state = state;
+        this.modCount = state.getModCount();
+    }
+}
@@ -0,0 +1,20 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+/**
+ * Strategy for evaluating the gravitational acceleration on every body.
+ * Implementations overwrite the state's acceleration arrays.
+ */
+public interface ForceSolver {
+    void computeAccelerations(SystemState state);
+
+    /**
+     * Potential energy of the positions seen by the last call to
+     * {@link #computeAccelerations}, summed from the same pair terms as the
+     * forces (softened like them); NaN if this solver does not provide it.
+     */
+    default double getPotentialEnergy() {
+        return Double.NaN;
+    }
+}
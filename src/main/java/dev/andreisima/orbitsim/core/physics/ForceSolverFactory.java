@@ -0,0 +1,33 @@
+package dev.andreisima.orbitsim.core.physics;
+
+/**
+ * Creates force solvers whose availability depends on the build or runtime.
+ */
+public final class ForceSolverFactory {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_SOLVER = "dev.andreisima.orbitsim.core.physics.VectorForceSolver";
+
+    private ForceSolverFactory() {
+    }
+
+    /**
+     * SIMD direct summation if the build included it ({@code -PvectorApi=true})
+     * and the JVM was started with {@code --add-modules jdk.incubator.vector};
+     * otherwise the scalar {@link DirectForceSolver}.
+     */
+    public static ForceSolver vectorized() {
+        if (isVectorApiAvailable()) {
+            try {
+                return (ForceSolver) Class.forName(VECTOR_SOLVER).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // built without the vector source set: fall through to scalar
+            }
+        }
+        return new DirectForceSolver();
+    }
+
+    /** Whether the incubating Vector API module is resolved in this JVM. */
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+}
@@ -0,0 +1,98 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+import java.util.Arrays;
+
+/**
+ * Fourth-order Hermite predictor-corrector (Makino &amp; Aarseth 1992).
+ * <p>
+ * Positions and velocities are predicted with a Taylor series using the
+ * acceleration and jerk, forces and jerks are evaluated once at the predicted
+ * state, and the result is corrected with the Hermite interpolant through
+ * both ends of the step. The evaluation at the predicted state is kept as
+ * the starting values of the next step, so each step costs one direct
+ * acceleration-and-jerk sum. It is not symplectic, but for a fixed number of
+ * evaluations it is usually much more accurate than leapfrog over moderate
+ * spans. Forces are always computed by direct summation because the jerk is
+ * needed alongside them.
+ */
+public class HermiteIntegrator implements Integrator {
+    // jerk of the state's current accelerations
+    private double[] jx = new double[0];
+    private double[] jy = new double[0];
+    // values at the start of the step
+    private double[] x0 = new double[0];
+    private double[] y0 = new double[0];
+    private double[] vx0 = new double[0];
+    private double[] vy0 = new double[0];
+    private double[] ax0 = new double[0];
+    private double[] ay0 = new double[0];
+    private double[] jx0 = new double[0];
+    private double[] jy0 = new double[0];
+
+    private final ForceCache cache = new ForceCache();
+
+    @Override
+    public void step(SystemState state, double dt) {
+        int n = state.size();
+        if (n == 0) return;
+        ensureCapacity(n);
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+
+        if (!cache.isValid(state)) {
+            JerkKernel.evaluateAll(state, jx, jy);
+        }
+
+        double dt2 = dt * dt / 2;
+        double dt3 = dt * dt * dt / 6;
+        for (int i = 0; i < n; i++) {
+            x0[i] = x[i];
+            y0[i] = y[i];
+            vx0[i] = vx[i];
+            vy0[i] = vy[i];
+            ax0[i] = ax[i];
+            ay0[i] = ay[i];
+            jx0[i] = jx[i];
+            jy0[i] = jy[i];
+            // predict
+            x[i] += vx0[i] * dt + ax0[i] * dt2 + jx0[i] * dt3;
+            y[i] += vy0[i] * dt + ay0[i] * dt2 + jy0[i] * dt3;
+            vx[i] += ax0[i] * dt + jx0[i] * dt2;
+            vy[i] += ay0[i] * dt + jy0[i] * dt2;
+        }
+
+        JerkKernel.evaluateAll(state, jx, jy);
+
+        // correct
+        double half = dt / 2;
+        double dt12 = dt * dt / 12;
+        for (int i = 0; i < n; i++) {
+            vx[i] = vx0[i] + (ax0[i] + ax[i]) * half + (jx0[i] - jx[i]) * dt12;
+            vy[i] = vy0[i] + (ay0[i] + ay[i]) * half + (jy0[i] - jy[i]) * dt12;
+            x[i] = x0[i] + (vx0[i] + vx[i]) * half + (ax0[i] - ax[i]) * dt12;
+            y[i] = y0[i] + (vy0[i] + vy[i]) * half + (ay0[i] - ay[i]) * dt12;
+        }
+        cache.update(state);
+    }
+
+    private void ensureCapacity(int n) {
+        if (jx.length >= n) return;
+        int capacity = Math.max(n, 2 * jx.length);
+        jx = Arrays.copyOf(jx, capacity);
+        jy = Arrays.copyOf(jy, capacity);
+        x0 = new double[capacity];
+        y0 = new double[capacity];
+        vx0 = new double[capacity];
+        vy0 = new double[capacity];
+        ax0 = new double[capacity];
+        ay0 = new double[capacity];
+        jx0 = new double[capacity];
+        jy0 = new double[capacity];
+    }
+}
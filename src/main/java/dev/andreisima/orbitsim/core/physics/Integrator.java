@@ -1,12 +1,19 @@
 package dev.andreisima.orbitsim.core.physics;
 
-import dev.andreisima.orbitsim.core.model.Body;
-
-import java.util.List;
+import dev.andreisima.orbitsim.core.model.SystemState;
 
 /**
  * Interface for numerical integrators that advance the state of all bodies.
  */
 public interface Integrator {
-    void step(List<Body> bodies, double dt);
+    void step(SystemState state, double dt);
+
+    /**
+     * Potential energy at the state's current positions, if the last step
+     * ended with a force evaluation there whose solver reported it and the
+     * state has not been changed since; NaN otherwise.
+     */
+    default double getPotentialEnergy(SystemState state) {
+        return Double.NaN;
+    }
 }
@@ -0,0 +1,98 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+
+/**
+ * Direct summation of acceleration and its time derivative (jerk), used by
+ * the integrators that need the jerk for prediction or step selection.
+ * Accelerations go to the state's arrays, jerks to the caller's. Only the
+ * massive bodies act as sources; test particles just receive.
+ */
+final class JerkKernel {
+    private JerkKernel() {
+    }
+
+    /** Acceleration and jerk on every body, visiting each pair once. */
+    static void evaluateAll(SystemState state, double[] jx, double[] jy) {
+        int n = state.size();
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+
+        for (int i = 0; i < n; i++) {
+            ax[i] = 0;
+            ay[i] = 0;
+            jx[i] = 0;
+            jy[i] = 0;
+        }
+        for (int i = 0; i < massive; i++) {
+            double xi = x[i], yi = y[i], vxi = vx[i], vyi = vy[i], mi = m[i];
+            double axi = 0, ayi = 0, jxi = 0, jyi = 0;
+            for (int j = i + 1; j < massive; j++) {
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double dvx = vx[j] - vxi;
+                double dvy = vy[j] - vyi;
+                double r2 = dx * dx + dy * dy + epsSq;
+                double inv3 = Constants.G / (r2 * Math.sqrt(r2));
+                double rv = 3 * (dx * dvx + dy * dvy) / r2;
+                double pjx = (dvx - rv * dx) * inv3;
+                double pjy = (dvy - rv * dy) * inv3;
+                axi += dx * inv3 * m[j];
+                ayi += dy * inv3 * m[j];
+                jxi += pjx * m[j];
+                jyi += pjy * m[j];
+                ax[j] -= dx * inv3 * mi;
+                ay[j] -= dy * inv3 * mi;
+                jx[j] -= pjx * mi;
+                jy[j] -= pjy * mi;
+            }
+            ax[i] += axi;
+            ay[i] += ayi;
+            jx[i] += jxi;
+            jy[i] += jyi;
+        }
+        for (int i = massive; i < n; i++) {
+            evaluate(state, i, jx, jy);
+        }
+    }
+
+    /** Acceleration and jerk on body i alone, from every other massive body. */
+    static void evaluate(SystemState state, int i, double[] jx, double[] jy) {
+        int n = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        double xi = x[i], yi = y[i], vxi = vx[i], vyi = vy[i];
+        double axi = 0, ayi = 0, jxi = 0, jyi = 0;
+        for (int j = 0; j < n; j++) {
+            if (j == i) continue;
+            double dx = x[j] - xi;
+            double dy = y[j] - yi;
+            double dvx = vx[j] - vxi;
+            double dvy = vy[j] - vyi;
+            double r2 = dx * dx + dy * dy + epsSq;
+            double inv3 = Constants.G * m[j] / (r2 * Math.sqrt(r2));
+            double rv = 3 * (dx * dvx + dy * dvy) / r2;
+            axi += dx * inv3;
+            ayi += dy * inv3;
+            // d/dt (r / r^3) = v / r^3 - 3 (r.v) r / r^5
+            jxi += (dvx - rv * dx) * inv3;
+            jyi += (dvy - rv * dy) * inv3;
+        }
+        state.getAx()[i] = axi;
+        state.getAy()[i] = ayi;
+        jx[i] = jxi;
+        jy[i] = jyi;
+    }
+}
@@ -1,65 +1,88 @@
 package dev.andreisima.orbitsim.core.physics;
 
-import dev.andreisima.orbitsim.core.model.Body;
-import dev.andreisima.orbitsim.core.util.Constants;
-import dev.andreisima.orbitsim.core.util.Vector2D;
-
-import java.util.List;
+import dev.andreisima.orbitsim.core.model.SystemState;
 
 /**
  * Velocity-Verlet (leapfrog) integrator. It offers good energy conservation
  * properties for gravitational n-body problems.
+ * <p>
+ * The accelerations computed at the end of a step are those needed at the
+ * start of the next, so they are reused and each step costs one force
+ * evaluation unless the state was changed in between.
+ * <p>
+ * With an {@link EncounterRegularizer}, tight pairs found at the start of a
+ * step follow their Kepler orbits during the drift instead of being
+ * resolved by the step.
  */
 public class LeapfrogIntegrator implements Integrator {
+    private final ForceSolver forceSolver;
+    private final ForceCache cache = new ForceCache();
+    private final EncounterRegularizer regularizer;
+
+    public LeapfrogIntegrator() {
+        this(new DirectForceSolver());
+    }
+
+    public LeapfrogIntegrator(ForceSolver forceSolver) {
+        this(forceSolver, null);
+    }
+
+    /** @param regularizer advances tight pairs along Kepler orbits; null for none */
+    public LeapfrogIntegrator(ForceSolver forceSolver, EncounterRegularizer regularizer) {
+        this.forceSolver = forceSolver;
+        this.regularizer = regularizer;
+    }
 
     @Override
-    public void step(List<Body> bodies, double dt) {
-        // 1. compute accelerations at current positions
-        computeAccelerations(bodies);
+    public void step(SystemState state, double dt) {
+        int n = state.size();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double halfDt = dt / 2.0;
+
+        // 1. accelerations at current positions, left over from the last step if still valid
+        if (!cache.isValid(state)) {
+            forceSolver.computeAccelerations(state);
+        }
+        if (regularizer != null) {
+            stepRegularized(state, dt);
+            return;
+        }
 
         // 2. half velocity kick and position drift
-        for (Body b : bodies) {
-            b.getVelocity().add(Vector2D.scale(b.getAcceleration(), dt / 2.0));
-            b.getPosition().add(Vector2D.scale(b.getVelocity(), dt));
+        for (int i = 0; i < n; i++) {
+            vx[i] += ax[i] * halfDt;
+            vy[i] += ay[i] * halfDt;
+            x[i] += vx[i] * dt;
+            y[i] += vy[i] * dt;
         }
 
         // 3. recompute accelerations at new positions
-        computeAccelerations(bodies);
+        forceSolver.computeAccelerations(state);
 
         // 4. complete velocity kick
-        for (Body b : bodies) {
-            b.getVelocity().add(Vector2D.scale(b.getAcceleration(), dt / 2.0));
-            b.updateTrail(200); // keep trails short
+        for (int i = 0; i < n; i++) {
+            vx[i] += ax[i] * halfDt;
+            vy[i] += ay[i] * halfDt;
         }
+        cache.update(state);
     }
 
-    /**
-     * Computes gravitational acceleration on each body using Newton's law of
-     * gravitation with a small softening term to avoid singularities.
-     */
-    private void computeAccelerations(List<Body> bodies) {
-        // reset accelerations
-        for (Body b : bodies) {
-            b.getAcceleration().x = 0;
-            b.getAcceleration().y = 0;
-        }
-
-        int n = bodies.size();
-        for (int i = 0; i < n; i++) {
-            Body bi = bodies.get(i);
-            for (int j = i + 1; j < n; j++) {
-                Body bj = bodies.get(j);
-                Vector2D r = Vector2D.subtract(bj.getPosition(), bi.getPosition());
-                double distSq = r.magnitudeSquared() + Constants.SOFTENING * Constants.SOFTENING;
-                double dist = Math.sqrt(distSq);
-                double factor = Constants.G / (distSq * dist);
-                Vector2D accel = Vector2D.scale(r, factor);
+    private void stepRegularized(SystemState state, double dt) {
+        regularizer.detect(state, dt);
+        regularizer.kick(state, dt / 2);
+        regularizer.drift(state, dt);
+        forceSolver.computeAccelerations(state);
+        regularizer.kick(state, dt / 2);
+        cache.update(state);
+    }
 
-                // a_i += G * m_j * r_ij / |r_ij|^3
-                bi.getAcceleration().add(Vector2D.scale(accel, bj.getMass()));
-                // a_j -= G * m_i * r_ij / |r_ij|^3
-                bj.getAcceleration().add(Vector2D.scale(accel, -bi.getMass()));
-            }
-        }
+    @Override
+    public double getPotentialEnergy(SystemState state) {
+        return cache.isValid(state) ? forceSolver.getPotentialEnergy() : Double.NaN;
     }
-}
\ No newline at end of file
+}
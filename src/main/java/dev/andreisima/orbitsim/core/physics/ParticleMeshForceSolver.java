@@ -0,0 +1,372 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Particle-mesh solver, O(n + g^2 log g) for a g x g mesh, for collisionless
+ * runs with millions of bodies.
+ * <p>
+ * Each call spans a square mesh over all bodies, deposits the massive bodies'
+ * mass with cloud-in-cell weights, and obtains the potential by convolving
+ * with the softened 1/r Green's function through FFTs on a mesh padded to
+ * 2g x 2g, so the system is isolated rather than periodic. Accelerations are
+ * central differences of the potential, interpolated back to every body with
+ * the same cloud-in-cell weights, which keeps the self-force zero.
+ * <p>
+ * Forces are softened on the scale of a cell, so structure smaller than a
+ * few cells is lost; raise the grid size or use a tree or direct solver for
+ * close interactions. The cell size is rounded up to a step of 2^(1/8),
+ * which lets the transformed Green's function be reused while the system
+ * grows or shrinks by less than that. The potential energy is gathered
+ * from the mesh potential with each body's interaction with its own cloud
+ * taken out, so it approximates the pair sum with cell-scale softening.
+ * <p>
+ * Deposit, transforms, differencing and interpolation all run on a
+ * {@link ForkJoinPool}. Deposits go to one private mesh per stripe of bodies,
+ * summed afterwards, so no two threads write the same cell; this costs one
+ * g x g mesh per stripe, and large grids use fewer stripes than threads to
+ * bound that memory.
+ */
+public class ParticleMeshForceSolver implements ForceSolver {
+    public static final int DEFAULT_GRID_SIZE = 256;
+    /** Cells kept free at each edge for the cloud-in-cell spread and the differences. */
+    private static final int MARGIN = 3;
+    private static final int COLUMN_BLOCK = 8;
+    private static final double CELL_STEPS_PER_OCTAVE = 8;
+    /** Bound on the cells of all stripe meshes together, 128 MB of doubles. */
+    private static final int MAX_STRIPE_CELLS = 1 << 24;
+
+    private final int size;
+    private final int padded;
+    private final ForkJoinPool pool;
+    private final int stripes;
+    private final Fft fft;
+
+    // padded mesh in row-major order: y selects the row, x the column
+    private final double[] re;
+    private final double[] im;
+    /** Transformed Green's function, scaled for the unscaled inverse transform. */
+    private final double[] greens;
+    private double greensCell = Double.NaN;
+    // Green's function at 0, 1 and sqrt(2) cells, for the self-interaction of a cloud
+    private double greens0, greens1, greens2;
+
+    private final double[][] stripeMass;
+    private final double[] stripePotential;
+    // per column task: a block of columns copied out to contiguous rows
+    private final double[][] columnRe;
+    private final double[][] columnIm;
+    private final double[] gradX;
+    private final double[] gradY;
+
+    private double potentialEnergy = Double.NaN;
+
+    public ParticleMeshForceSolver() {
+        this(DEFAULT_GRID_SIZE);
+    }
+
+    public ParticleMeshForceSolver(int gridSize) {
+        this(gridSize, ForkJoinPool.commonPool());
+    }
+
+    /** @param gridSize cells per side, a power of two >= 16 */
+    public ParticleMeshForceSolver(int gridSize, ForkJoinPool pool) {
+        if (gridSize < 16 || Integer.bitCount(gridSize) != 1) {
+            throw new IllegalArgumentException("grid size must be a power of two >= 16, got " + gridSize);
+        }
+        this.size = gridSize;
+        this.padded = 2 * gridSize;
+        this.pool = pool;
+        this.stripes = Math.max(1, Math.min(pool.getParallelism(), MAX_STRIPE_CELLS / (gridSize * gridSize)));
+        this.fft = new Fft(padded);
+        re = new double[padded * padded];
+        im = new double[padded * padded];
+        greens = new double[padded * padded];
+        stripeMass = new double[stripes][gridSize * gridSize];
+        stripePotential = new double[stripes];
+        int columnTasks = Math.max(1, Math.min(pool.getParallelism(), padded / COLUMN_BLOCK));
+        columnRe = new double[columnTasks][COLUMN_BLOCK * padded];
+        columnIm = new double[columnTasks][COLUMN_BLOCK * padded];
+        gradX = new double[gridSize * gridSize];
+        gradY = new double[gridSize * gridSize];
+    }
+
+    public int getGridSize() {
+        return size;
+    }
+
+    @Override
+    public void computeAccelerations(SystemState state) {
+        int n = state.size();
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] m = state.getMass();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        if (massive == 0) {
+            Arrays.fill(ax, 0, n, 0);
+            Arrays.fill(ay, 0, n, 0);
+            potentialEnergy = 0;
+            return;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double extent = Math.max(maxX - minX, maxY - minY);
+        double cell = quantize(Math.max(extent / (size - 2 * MARGIN), Constants.SOFTENING));
+        // cell c spans [origin + c * cell, origin + (c + 1) * cell)
+        double originX = (minX + maxX) / 2 - size / 2.0 * cell;
+        double originY = (minY + maxY) / 2 - size / 2.0 * cell;
+
+        if (cell != greensCell) {
+            computeGreens(cell);
+        }
+        deposit(x, y, m, massive, originX, originY, cell);
+        convolve();
+        differentiate(cell);
+        interpolate(x, y, m, ax, ay, n, massive, originX, originY, cell);
+    }
+
+    @Override
+    public double getPotentialEnergy() {
+        return potentialEnergy;
+    }
+
+    private static double quantize(double cell) {
+        double steps = Math.ceil(Math.log(cell) / Math.log(2) * CELL_STEPS_PER_OCTAVE);
+        return Math.pow(2, steps / CELL_STEPS_PER_OCTAVE);
+    }
+
+    /** Transforms G(r) = -G / sqrt(r^2 + eps^2) on the padded mesh, wrapped around so it is even. */
+    private void computeGreens(double cell) {
+        double epsSq = Math.max(Constants.SOFTENING, cell) * Math.max(Constants.SOFTENING, cell);
+        parallel(padded, 16, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                double dy = Math.min(row, padded - row) * cell;
+                for (int col = 0; col < padded; col++) {
+                    double dx = Math.min(col, padded - col) * cell;
+                    re[row * padded + col] = -Constants.G / Math.sqrt(dx * dx + dy * dy + epsSq);
+                    im[row * padded + col] = 0;
+                }
+            }
+        });
+        greens0 = re[0];
+        greens1 = re[1];
+        greens2 = re[padded + 1];
+        transformRows(padded, false);
+        transformColumns(false);
+        // an even real function has a real transform; fold in the inverse's 1 / padded^2
+        double scale = 1.0 / ((double) padded * padded);
+        parallel(padded, 16, (from, to) -> {
+            for (int k = from * padded; k < to * padded; k++) {
+                greens[k] = re[k] * scale;
+            }
+        });
+        greensCell = cell;
+    }
+
+    /** Cloud-in-cell deposit of the massive bodies into the first {@code size} rows and columns of {@link #re}. */
+    private void deposit(double[] x, double[] y, double[] m, int massive,
+                         double originX, double originY, double cell) {
+        int perStripe = (massive + stripes - 1) / stripes;
+        double inv = 1 / cell;
+        parallel(stripes, 1, (from, to) -> {
+            for (int s = from; s < to; s++) {
+                double[] mesh = stripeMass[s];
+                Arrays.fill(mesh, 0);
+                int end = Math.min(massive, (s + 1) * perStripe);
+                for (int i = s * perStripe; i < end; i++) {
+                    // offsets from the center of cell (cx, cy)
+                    double u = (x[i] - originX) * inv - 0.5;
+                    double v = (y[i] - originY) * inv - 0.5;
+                    int cx = (int) Math.floor(u);
+                    int cy = (int) Math.floor(v);
+                    double fx = u - cx, fy = v - cy;
+                    int k = cy * size + cx;
+                    mesh[k] += m[i] * (1 - fx) * (1 - fy);
+                    mesh[k + 1] += m[i] * fx * (1 - fy);
+                    mesh[k + size] += m[i] * (1 - fx) * fy;
+                    mesh[k + size + 1] += m[i] * fx * fy;
+                }
+            }
+        });
+        parallel(padded, 16, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                int base = row * padded;
+                Arrays.fill(im, base, base + padded, 0);
+                if (row >= size) {
+                    Arrays.fill(re, base, base + padded, 0);
+                    continue;
+                }
+                for (int col = 0; col < size; col++) {
+                    double sum = 0;
+                    for (int s = 0; s < stripes; s++) {
+                        sum += stripeMass[s][row * size + col];
+                    }
+                    re[base + col] = sum;
+                }
+                Arrays.fill(re, base + size, base + padded, 0);
+            }
+        });
+    }
+
+    /** Replaces the mass in {@link #re} by the potential, valid in the first {@code size} rows and columns. */
+    private void convolve() {
+        // the mass occupies only the first size rows; the rest transform to zero
+        transformRows(size, false);
+        transformColumns(false);
+        parallel(padded, 16, (from, to) -> {
+            for (int k = from * padded; k < to * padded; k++) {
+                re[k] *= greens[k];
+                im[k] *= greens[k];
+            }
+        });
+        transformColumns(true);
+        transformRows(size, true);
+    }
+
+    /** Central differences of the potential; the outermost cells, which hold no mass, stay at zero. */
+    private void differentiate(double cell) {
+        double scale = -1 / (2 * cell);
+        parallel(size, 16, (from, to) -> {
+            for (int row = Math.max(from, 1); row < Math.min(to, size - 1); row++) {
+                int p = row * padded;
+                int g = row * size;
+                for (int col = 1; col < size - 1; col++) {
+                    gradX[g + col] = (re[p + col + 1] - re[p + col - 1]) * scale;
+                    gradY[g + col] = (re[p + padded + col] - re[p - padded + col]) * scale;
+                }
+            }
+        });
+    }
+
+    /** Gathers accelerations and potential at every body with the deposit's weights. */
+    private void interpolate(double[] x, double[] y, double[] m, double[] ax, double[] ay, int n, int massive,
+                             double originX, double originY, double cell) {
+        int perStripe = (n + stripes - 1) / stripes;
+        double inv = 1 / cell;
+        parallel(stripes, 1, (from, to) -> {
+            for (int s = from; s < to; s++) {
+                double potential = 0;
+                int end = Math.min(n, (s + 1) * perStripe);
+                for (int i = s * perStripe; i < end; i++) {
+                    double u = (x[i] - originX) * inv - 0.5;
+                    double v = (y[i] - originY) * inv - 0.5;
+                    int cx = (int) Math.floor(u);
+                    int cy = (int) Math.floor(v);
+                    double fx = u - cx, fy = v - cy;
+                    double w00 = (1 - fx) * (1 - fy), w10 = fx * (1 - fy);
+                    double w01 = (1 - fx) * fy, w11 = fx * fy;
+                    int k = cy * size + cx;
+                    ax[i] = w00 * gradX[k] + w10 * gradX[k + 1] + w01 * gradX[k + size] + w11 * gradX[k + size + 1];
+                    ay[i] = w00 * gradY[k] + w10 * gradY[k + 1] + w01 * gradY[k + size] + w11 * gradY[k + size + 1];
+                    if (i < massive) {
+                        int p = cy * padded + cx;
+                        double phi = w00 * re[p] + w10 * re[p + 1] + w01 * re[p + padded] + w11 * re[p + padded + 1];
+                        // the cloud's own potential: weight products at separations 0, 1 and sqrt(2) cells
+                        double sx0 = (1 - fx) * (1 - fx) + fx * fx, sx1 = (1 - fx) * fx;
+                        double sy0 = (1 - fy) * (1 - fy) + fy * fy, sy1 = (1 - fy) * fy;
+                        double self = sx0 * sy0 * greens0 + 2 * (sx1 * sy0 + sx0 * sy1) * greens1
+                                + 4 * sx1 * sy1 * greens2;
+                        potential += m[i] * (phi - m[i] * self);
+                    }
+                }
+                stripePotential[s] = potential;
+            }
+        });
+        double potential = 0;
+        for (double p : stripePotential) {
+            potential += p;
+        }
+        // each pair appears in the potential of both bodies
+        potentialEnergy = 0.5 * potential;
+    }
+
+    private void transformRows(int rows, boolean inverse) {
+        parallel(rows, 8, (from, to) -> {
+            for (int row = from; row < to; row++) {
+                fft.transform(re, im, row * padded, inverse);
+            }
+        });
+    }
+
+    /**
+     * Transforms columns in blocks, copied out to contiguous rows so the FFT
+     * runs on unit stride. Each task works through its own share of the
+     * blocks with its own scratch.
+     */
+    private void transformColumns(boolean inverse) {
+        int tasks = columnRe.length;
+        int blocks = padded / COLUMN_BLOCK;
+        parallel(tasks, 1, (from, to) -> {
+            for (int t = from; t < to; t++) {
+                double[] colRe = columnRe[t];
+                double[] colIm = columnIm[t];
+                for (int block = t * blocks / tasks; block < (t + 1) * blocks / tasks; block++) {
+                    int col0 = block * COLUMN_BLOCK;
+                    for (int row = 0; row < padded; row++) {
+                        for (int c = 0; c < COLUMN_BLOCK; c++) {
+                            colRe[c * padded + row] = re[row * padded + col0 + c];
+                            colIm[c * padded + row] = im[row * padded + col0 + c];
+                        }
+                    }
+                    for (int c = 0; c < COLUMN_BLOCK; c++) {
+                        fft.transform(colRe, colIm, c * padded, inverse);
+                    }
+                    for (int row = 0; row < padded; row++) {
+                        for (int c = 0; c < COLUMN_BLOCK; c++) {
+                            re[row * padded + col0 + c] = colRe[c * padded + row];
+                            im[row * padded + col0 + c] = colIm[c * padded + row];
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private void parallel(int count, int grain, Chunk chunk) {
+        pool.invoke(new Chunks(chunk, 0, count, grain));
+    }
+
+    @FunctionalInterface
+    private interface Chunk {
+        void run(int from, int to);
+    }
+
+    /** Splits {@code [from, to)} in halves until at most {@code grain} indices remain. */
+    private static final class Chunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunk chunk;
+        private final int from, to, grain;
+
+        Chunks(Chunk chunk, int from, int to, int grain) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grain) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Chunks(chunk, from, mid, grain), new Chunks(chunk, mid, to, grain));
+            } else {
+                chunk.run(from, to);
+            }
+        }
+    }
+}
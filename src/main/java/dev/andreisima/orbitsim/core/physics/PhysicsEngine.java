@@ -1,19 +1,48 @@
 package dev.andreisima.orbitsim.core.physics;
 
+import dev.andreisima.orbitsim.core.diagnostics.Conservation;
+import dev.andreisima.orbitsim.core.diagnostics.ConservationMonitor;
+import dev.andreisima.orbitsim.core.io.TrajectorySink;
+import dev.andreisima.orbitsim.core.metrics.Metrics;
+import dev.andreisima.orbitsim.core.metrics.Phase;
 import dev.andreisima.orbitsim.core.model.Body;
 import dev.andreisima.orbitsim.core.model.BodyType;
 import dev.andreisima.orbitsim.core.model.SystemState;
-import dev.andreisima.orbitsim.core.util.Vector2D;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Coordinates integration and collision handling for the system.
  */
 public class PhysicsEngine {
+    private static final int DEFAULT_TRAIL_LENGTH = 200; // keep trails short
+    /** Trail points across all bodies; 2^20 points take 16 MB. */
+    private static final int DEFAULT_TRAIL_BUDGET = 1 << 20;
+    /** Bodies whose reach exceeds this multiple of the mean skip the grid. */
+    private static final double LARGE_REACH_FACTOR = 4.0;
+    /**
+     * Up to n / this many absorbed bodies are swap-removed one by one in
+     * O(1) each; more are compacted out in one order-keeping O(n) pass.
+     */
+    private static final int SWAP_REMOVE_FRACTION = 8;
+
     private final Integrator integrator;
     private CollisionMode collisionMode = CollisionMode.MERGE;
+    private int trailLength = DEFAULT_TRAIL_LENGTH;
+    private int trailInterval = 1;
+    private double trailSpacing;
+    private int trailBudget = DEFAULT_TRAIL_BUDGET;
+    private long stepsSinceTrail;
+    private TrajectorySink trajectorySink;
+    private Metrics metrics;
+    private ConservationMonitor conservation;
+    private long steps;
+    // collision scratch, reused between steps
+    private final CollisionGrid grid = new CollisionGrid();
+    private boolean[] toRemove = new boolean[0];
+    private int[] victims = new int[0];
+    private int victimCount;
+    private double[] reach = new double[0];
 
     public PhysicsEngine(Integrator integrator) {
         this.integrator = integrator;
@@ -23,67 +52,282 @@ public class PhysicsEngine {
         this.collisionMode = mode;
     }
 
+    /** Number of points kept per trail; 0 turns trail recording off. */
+    public void setTrailLength(int trailLength) {
+        this.trailLength = trailLength;
+    }
+
+    /** Record a trail point every {@code steps} steps (default 1). */
+    public void setTrailInterval(int steps) {
+        if (steps < 1) {
+            throw new IllegalArgumentException("trail interval must be >= 1");
+        }
+        this.trailInterval = steps;
+    }
+
+    /**
+     * Minimum distance in meters between consecutive trail points, so trails
+     * are sampled by path length rather than by time; 0 (default) disables it.
+     */
+    public void setTrailSpacing(double meters) {
+        this.trailSpacing = meters;
+    }
+
+    /**
+     * Upper bound on trail points over all bodies. With many bodies each trail
+     * is shortened below the trail length so the total stays within it.
+     */
+    public void setTrailBudget(int points) {
+        if (points < 1) {
+            throw new IllegalArgumentException("trail budget must be >= 1");
+        }
+        this.trailBudget = points;
+    }
+
+    /** Receives the state after every step; null (default) for none. */
+    public void setTrajectorySink(TrajectorySink sink) {
+        this.trajectorySink = sink;
+    }
+
+    /**
+     * Records phase times, body count, merges and accretions; null (default)
+     * for none. Wrap the integrator's solver in a {@link TimedForceSolver}
+     * on the same metrics to separate force time from integration time.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Samples conserved quantities as the run goes; null (default) for none. */
+    public void setConservationMonitor(ConservationMonitor monitor) {
+        this.conservation = monitor;
+    }
+
+    /**
+     * Potential energy of the state as it is now: the value the force solver
+     * produced at the end of the last step if it still applies, otherwise a
+     * direct O(n^2) sum.
+     */
+    public double getPotentialEnergy(SystemState state) {
+        double u = integrator.getPotentialEnergy(state);
+        return Double.isNaN(u) ? Conservation.potentialEnergy(state) : u;
+    }
+
     public void step(SystemState state, double dt) {
-        integrator.step(state.getBodies(), dt);
-        handleCollisions(state.getBodies());
+        if (conservation != null && !conservation.hasReference()) {
+            conservation.sample(state, steps, integrator.getPotentialEnergy(state));
+        }
+        Metrics m = metrics;
+        long t = m != null ? System.nanoTime() : 0;
+        integrator.step(state, dt);
+        state.setTime(state.getTime() + dt);
+        steps++;
+        if (m != null) t = lap(m, null, t);
+        if (trailLength > 0 && ++stepsSinceTrail >= trailInterval) {
+            stepsSinceTrail = 0;
+            state.updateTrails(trailCapacity(state.size()), trailSpacing);
+            if (m != null) t = lap(m, Phase.TRAIL, t);
+        }
+        handleCollisions(state);
+        if (m != null) {
+            lap(m, Phase.COLLISION, t);
+            m.countStep(state.size());
+        }
+        if (trajectorySink != null) {
+            trajectorySink.accept(state, steps);
+        }
+        if (conservation != null && conservation.isDue(steps)) {
+            conservation.sample(state, steps, integrator.getPotentialEnergy(state));
+        }
+    }
+
+    /**
+     * Records the time since {@code start} under {@code phase}, or as the
+     * integrator's share of the step if {@code phase} is null, and returns now.
+     */
+    private static long lap(Metrics m, Phase phase, long start) {
+        long now = System.nanoTime();
+        if (phase == null) {
+            m.endIntegration(now - start);
+        } else {
+            m.record(phase, now - start);
+        }
+        return now;
     }
 
-    private void handleCollisions(List<Body> bodies) {
-        if (collisionMode == CollisionMode.IGNORE && bodies.stream().noneMatch(b -> b.getType() == BodyType.BLACK_HOLE)) {
+    /**
+     * Points per trail for {@code n} bodies. The budget share is rounded down
+     * to a power of two so that trails are only resized when the body count
+     * changes a lot, not on every merge.
+     */
+    private int trailCapacity(int n) {
+        int share = Math.max(1, trailBudget / Math.max(n, 1));
+        return Math.min(trailLength, Integer.highestOneBit(share));
+    }
+
+    /**
+     * Resolves merges and black-hole accretion. A spatial hash limits the
+     * narrow-phase distance checks to bodies in neighbouring cells, and bodies
+     * already absorbed this step are skipped so none is consumed twice.
+     * Test particles can be absorbed by massive bodies but never collide
+     * with each other.
+     */
+    private void handleCollisions(SystemState state) {
+        int n = state.size();
+        boolean merging = collisionMode == CollisionMode.MERGE;
+        if (n < 2 || (!merging && !containsBlackHole(state))) {
             return;
         }
-        List<Body> toRemove = new ArrayList<>();
-        int n = bodies.size();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] radius = state.getRadius();
+        double[] mass = state.getMass();
+
+        if (toRemove.length < n) {
+            toRemove = new boolean[Math.max(n, 2 * toRemove.length)];
+            victims = new int[toRemove.length];
+            reach = new double[toRemove.length];
+        } else {
+            Arrays.fill(toRemove, 0, n, false);
+        }
+
+        // reach: how far a body can touch another; a pair can only interact
+        // when their distance is below the sum of their reaches
+        double totalReach = 0;
         for (int i = 0; i < n; i++) {
-            Body a = bodies.get(i);
-            for (int j = i + 1; j < n; j++) {
-                Body b = bodies.get(j);
-                double dist = Vector2D.subtract(b.getPosition(), a.getPosition()).magnitude();
-
-                // Black hole accretion
-                if (a.getType() == BodyType.BLACK_HOLE) {
-                    double rs = a.getSchwarzschildRadius();
-                    if (dist < 3 * rs) {
-                        accrete(a, b);
-                        toRemove.add(b);
-                        continue;
-                    }
+            double r = merging ? radius[i] : 0;
+            if (state.getType(i) == BodyType.BLACK_HOLE) {
+                r = Math.max(r, 3 * Body.schwarzschildRadius(mass[i]));
+            }
+            reach[i] = r;
+            totalReach += r;
+        }
+        if (totalReach <= 0) return;
+
+        // a few oversized bodies (stars, black holes) would blow up the cell
+        // size for everyone, so they are tested against all bodies instead
+        double largeReach = LARGE_REACH_FACTOR * totalReach / n;
+        double maxCellReach = 0;
+        for (int i = 0; i < n; i++) {
+            if (reach[i] <= largeReach) maxCellReach = Math.max(maxCellReach, reach[i]);
+        }
+        if (maxCellReach > 0) {
+            grid.build(x, y, n, 2 * maxCellReach);
+        }
+
+        victimCount = 0;
+        int massive = state.getMassiveCount();
+        for (int i = 0; i < n; i++) {
+            if (toRemove[i]) continue;
+            // a small test particle is found from the side of the massive body it hits
+            if (i >= massive && reach[i] <= largeReach) continue;
+            // without merging only black holes can capture anything, so only
+            // they need to search, and they must look at lower indices too
+            if (!merging && state.getType(i) != BodyType.BLACK_HOLE) continue;
+
+            if (reach[i] > largeReach) {
+                // a test particle can only hit massive bodies
+                int candidates = i < massive ? n : massive;
+                for (int j = 0; j < candidates && !toRemove[i]; j++) {
+                    if (j == i || toRemove[j] || (merging && j < i && reach[j] > largeReach)) continue;
+                    testPair(state, i, j);
                 }
-                if (b.getType() == BodyType.BLACK_HOLE) {
-                    double rs = b.getSchwarzschildRadius();
-                    if (dist < 3 * rs) {
-                        accrete(b, a);
-                        toRemove.add(a);
-                        continue;
+            } else if (maxCellReach > 0) {
+                long cx = grid.cellX(i);
+                long cy = grid.cellY(i);
+                for (long gx = cx - 1; gx <= cx + 1 && !toRemove[i]; gx++) {
+                    for (long gy = cy - 1; gy <= cy + 1 && !toRemove[i]; gy++) {
+                        int end = grid.end(gx, gy);
+                        for (int slot = grid.start(gx, gy); slot < end && !toRemove[i]; slot++) {
+                            int j = grid.body(slot);
+                            // pairs with a large body are found from the large body's side
+                            if (j == i || (merging && j < i) || toRemove[j]
+                                    || reach[j] > largeReach || !grid.isInCell(j, gx, gy)) continue;
+                            testPair(state, i, j);
+                        }
                     }
                 }
-
-                // other collisions
-                if (collisionMode == CollisionMode.MERGE && dist < a.getRadius() + b.getRadius()) {
-                    merge(a, b);
-                    toRemove.add(b);
-                }
             }
         }
-        bodies.removeAll(toRemove);
+        if (victimCount == 0) return;
+        if (victimCount <= n / SWAP_REMOVE_FRACTION) {
+            // highest index first: a swap only moves bodies from the end of
+            // a group, and every victim above this one is already gone
+            Arrays.sort(victims, 0, victimCount);
+            for (int k = victimCount - 1; k >= 0; k--) {
+                state.removeBody(victims[k]);
+            }
+        } else {
+            state.removeBodies(toRemove);
+        }
     }
 
-    private void merge(Body a, Body b) {
-        // conserve momentum
-        Vector2D momentum = Vector2D.add(Vector2D.scale(a.getVelocity(), a.getMass()),
-                Vector2D.scale(b.getVelocity(), b.getMass()));
-        double newMass = a.getMass() + b.getMass();
-        a.setVelocity(Vector2D.scale(momentum, 1.0 / newMass));
-        a.setMass(newMass);
+    /** Distance check for one candidate pair; marks the absorbed body, if any, for removal. */
+    private void testPair(SystemState state, int i, int j) {
+        int massive = state.getMassiveCount();
+        if (i >= massive && j >= massive) return;
+        double dx = state.getX()[j] - state.getX()[i];
+        double dy = state.getY()[j] - state.getY()[i];
+        double distSq = dx * dx + dy * dy;
+        double contact = reach[i] + reach[j];
+        if (distSq >= contact * contact) return;
+
+        // the lower index survives a merge, as it always has
+        int victim = collide(state, Math.min(i, j), Math.max(i, j), Math.sqrt(distSq));
+        if (victim < 0) return;
+        toRemove[victim] = true;
+        victims[victimCount++] = victim;
+    }
+
+    /**
+     * Narrow phase for one pair: a black hole accretes anything inside three
+     * Schwarzschild radii, otherwise touching bodies merge into {@code a}.
+     * Returns the index of the absorbed body, or -1 if nothing happened.
+     */
+    private int collide(SystemState state, int a, int b, double dist) {
+        double[] mass = state.getMass();
+        if (state.getType(a) == BodyType.BLACK_HOLE && dist < 3 * Body.schwarzschildRadius(mass[a])) {
+            accrete(state, a, b);
+            if (metrics != null) metrics.countAccretion();
+            return b;
+        }
+        if (state.getType(b) == BodyType.BLACK_HOLE && dist < 3 * Body.schwarzschildRadius(mass[b])) {
+            accrete(state, b, a);
+            if (metrics != null) metrics.countAccretion();
+            return a;
+        }
+        double[] radius = state.getRadius();
+        if (collisionMode == CollisionMode.MERGE && dist < radius[a] + radius[b]) {
+            merge(state, a, b);
+            if (metrics != null) metrics.countMerge();
+            return b;
+        }
+        return -1;
+    }
+
+    private static boolean containsBlackHole(SystemState state) {
+        for (int i = 0; i < state.size(); i++) {
+            if (state.getType(i) == BodyType.BLACK_HOLE) return true;
+        }
+        return false;
+    }
+
+    /** Merges body b into body a. */
+    private void merge(SystemState state, int a, int b) {
+        accrete(state, a, b);
         // volume proportional radius: simple sum of radii
-        a.setRadius(Math.cbrt(Math.pow(a.getRadius(),3) + Math.pow(b.getRadius(),3)));
+        double[] radius = state.getRadius();
+        radius[a] = Math.cbrt(Math.pow(radius[a], 3) + Math.pow(radius[b], 3));
     }
 
-    private void accrete(Body blackHole, Body victim) {
-        Vector2D momentum = Vector2D.add(Vector2D.scale(blackHole.getVelocity(), blackHole.getMass()),
-                Vector2D.scale(victim.getVelocity(), victim.getMass()));
-        double newMass = blackHole.getMass() + victim.getMass();
-        blackHole.setVelocity(Vector2D.scale(momentum, 1.0 / newMass));
-        blackHole.setMass(newMass);
+    private void accrete(SystemState state, int absorber, int victim) {
+        // conserve momentum
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] mass = state.getMass();
+        double newMass = mass[absorber] + mass[victim];
+        vx[absorber] = (vx[absorber] * mass[absorber] + vx[victim] * mass[victim]) / newMass;
+        vy[absorber] = (vy[absorber] * mass[absorber] + vy[victim] * mass[victim]) / newMass;
+        mass[absorber] = newMass;
     }
 }
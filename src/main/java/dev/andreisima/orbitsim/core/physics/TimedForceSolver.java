@@ -0,0 +1,31 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.metrics.Metrics;
+import dev.andreisima.orbitsim.core.model.SystemState;
+
+/**
+ * Wraps a solver and adds the time of every evaluation to the current step's
+ * force time in {@link Metrics}, so the engine can tell force evaluation
+ * apart from the rest of the integrator.
+ */
+public class TimedForceSolver implements ForceSolver {
+    private final ForceSolver delegate;
+    private final Metrics metrics;
+
+    public TimedForceSolver(ForceSolver delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void computeAccelerations(SystemState state) {
+        long start = System.nanoTime();
+        delegate.computeAccelerations(state);
+        metrics.addForceTime(System.nanoTime() - start);
+    }
+
+    @Override
+    public double getPotentialEnergy() {
+        return delegate.getPotentialEnergy();
+    }
+}
@@ -0,0 +1,206 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+
+/**
+ * Wisdom–Holman mixed-variable symplectic integrator for systems dominated by
+ * one central body, in democratic-heliocentric coordinates.
+ * <p>
+ * Positions are taken relative to the central body (the most massive one)
+ * and velocities relative to the barycenter. The Hamiltonian then splits into
+ * a Keplerian part about the central body, which is advanced exactly with
+ * {@link Kepler#drift}, the mutual pull of the other bodies, applied as kicks,
+ * and a small "jump" term from the central body's reflex motion. A step is
+ * kick, jump, Kepler drift, jump, kick, each kick and jump over half the step.
+ * <p>
+ * Because the dominant force is integrated exactly, the step only has to
+ * resolve the planet–planet perturbations, and the energy error scales with
+ * the ratio of planet to central mass: on a Sun-dominated system a step can
+ * be 10–100 times longer than leapfrog's for the same drift. The scheme does
+ * not resolve close encounters between non-central bodies or very close
+ * approaches to the central body; use a smaller step or another integrator
+ * there.
+ * <p>
+ * The kicks come from the configured solver: its accelerations minus the
+ * central body's own (softened) pull. Any solver works, but only direct
+ * summation subtracts that pull exactly. The last evaluation of a step is
+ * reused at the start of the next, so a step costs one force evaluation.
+ * Test particles are drifted about the central body and kicked by the other
+ * massive bodies; they do not enter the barycenter or the jump.
+ */
+public class WisdomHolmanIntegrator implements Integrator {
+    private final ForceSolver forceSolver;
+    private final ForceCache cache = new ForceCache();
+
+    // heliocentric positions and barycentric velocities, reused across steps
+    private double[] qx = new double[0];
+    private double[] qy = new double[0];
+    private double[] ux = new double[0];
+    private double[] uy = new double[0];
+
+    public WisdomHolmanIntegrator() {
+        this(new DirectForceSolver());
+    }
+
+    public WisdomHolmanIntegrator(ForceSolver forceSolver) {
+        this.forceSolver = forceSolver;
+    }
+
+    @Override
+    public void step(SystemState state, double dt) {
+        int n = state.size();
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] m = state.getMass();
+
+        int c = central(m, massive);
+        if (c < 0) {
+            // nothing exerts gravity: every body moves in a straight line
+            for (int i = 0; i < n; i++) {
+                x[i] += vx[i] * dt;
+                y[i] += vy[i] * dt;
+            }
+            forceSolver.computeAccelerations(state);
+            cache.update(state);
+            return;
+        }
+        ensureCapacity(n);
+
+        double mc = m[c];
+        double mu = Constants.G * mc;
+        double total = 0, cmx = 0, cmy = 0, pcx = 0, pcy = 0;
+        for (int i = 0; i < massive; i++) {
+            total += m[i];
+            cmx += m[i] * x[i];
+            cmy += m[i] * y[i];
+            pcx += m[i] * vx[i];
+            pcy += m[i] * vy[i];
+        }
+        cmx /= total;
+        cmy /= total;
+        double vcx = pcx / total;
+        double vcy = pcy / total;
+
+        for (int i = 0; i < n; i++) {
+            qx[i] = x[i] - x[c];
+            qy[i] = y[i] - y[c];
+            ux[i] = vx[i] - vcx;
+            uy[i] = vy[i] - vcy;
+        }
+
+        if (!cache.isValid(state)) {
+            forceSolver.computeAccelerations(state);
+        }
+        kick(state, c, dt / 2);
+        jump(m, c, n, massive, dt / 2);
+        for (int i = 0; i < n; i++) {
+            if (i != c) {
+                Kepler.drift(mu, qx, qy, ux, uy, i, dt);
+            }
+        }
+        jump(m, c, n, massive, dt / 2);
+
+        // back to barycentric positions; the barycenter moves uniformly
+        double sx = 0, sy = 0;
+        for (int i = 0; i < massive; i++) {
+            if (i != c) {
+                sx += m[i] * qx[i];
+                sy += m[i] * qy[i];
+            }
+        }
+        double xc = cmx + vcx * dt - sx / total;
+        double yc = cmy + vcy * dt - sy / total;
+        for (int i = 0; i < n; i++) {
+            x[i] = i == c ? xc : xc + qx[i];
+            y[i] = i == c ? yc : yc + qy[i];
+        }
+        forceSolver.computeAccelerations(state);
+        kick(state, c, dt / 2);
+
+        // the central body carries the momentum the others do not
+        double px = 0, py = 0;
+        for (int i = 0; i < massive; i++) {
+            if (i != c) {
+                px += m[i] * ux[i];
+                py += m[i] * uy[i];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            vx[i] = i == c ? vcx - px / mc : vcx + ux[i];
+            vy[i] = i == c ? vcy - py / mc : vcy + uy[i];
+        }
+        cache.update(state);
+    }
+
+    /** Index of the most massive massive body, or -1 if there is none. */
+    private static int central(double[] m, int massive) {
+        int c = -1;
+        for (int i = 0; i < massive; i++) {
+            if (m[i] > 0 && (c < 0 || m[i] > m[c])) {
+                c = i;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Kicks the barycentric velocities with the interaction accelerations:
+     * the state's accelerations, which match its current positions, less
+     * the central body's pull as the solvers compute it.
+     */
+    private void kick(SystemState state, int c, double h) {
+        int n = state.size();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double gmc = Constants.G * state.getMass()[c];
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        double xc = x[c], yc = y[c];
+        for (int i = 0; i < n; i++) {
+            if (i == c) continue;
+            double dx = xc - x[i];
+            double dy = yc - y[i];
+            double distSq = dx * dx + dy * dy + epsSq;
+            double factor = gmc / (distSq * Math.sqrt(distSq));
+            ux[i] += (ax[i] - dx * factor) * h;
+            uy[i] += (ay[i] - dy * factor) * h;
+        }
+    }
+
+    /** Shifts every heliocentric position by the central body's reflex velocity. */
+    private void jump(double[] m, int c, int n, int massive, double h) {
+        double px = 0, py = 0;
+        for (int i = 0; i < massive; i++) {
+            if (i != c) {
+                px += m[i] * ux[i];
+                py += m[i] * uy[i];
+            }
+        }
+        double dx = px / m[c] * h;
+        double dy = py / m[c] * h;
+        for (int i = 0; i < n; i++) {
+            qx[i] += dx;
+            qy[i] += dy;
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (qx.length < n) {
+            qx = new double[n];
+            qy = new double[n];
+            ux = new double[n];
+            uy = new double[n];
+        }
+    }
+
+    @Override
+    public double getPotentialEnergy(SystemState state) {
+        return cache.isValid(state) ? forceSolver.getPotentialEnergy() : Double.NaN;
+    }
+}
@@ -6,7 +6,19 @@ import dev.andreisima.orbitsim.core.model.SystemState;
 import dev.andreisima.orbitsim.core.util.Constants;
 import dev.andreisima.orbitsim.core.util.Vector2D;
 
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
 public final class PresetFactory {
+    private static final double AU = 1.495978707e11;
+    private static final double M_SUN = 1.9885e30;
+    private static final double R_SUN = 6.9634e8;
+    private static final double PARSEC = 3.0857e16;
+    /** Bodies per generator task; fixed so the output does not depend on the thread count. */
+    private static final int CHUNK = 1 << 14;
+    /** Most bodies whose pairs are summed for a virial scaling; 8M pairs. */
+    private static final int VIRIAL_SAMPLE = 4096;
+
     private PresetFactory() {
     }
 
@@ -124,8 +136,263 @@ public final class PresetFactory {
         return state;
     }
 
+    /* --- Generators ---
+     * Each takes the number of generated bodies, a seed (the same seed gives
+     * the same system on any machine) and a dimensionless velocity dispersion.
+     */
+
+    /**
+     * The solar system plus n asteroids in the main belt (2.1–3.3 AU) on
+     * near-circular orbits. Each velocity component gets a Gaussian kick of
+     * {@code dispersion} times the local circular speed.
+     */
+    public static SystemState asteroidBelt(int n, long seed, double dispersion) {
+        SystemState state = solarSystem();
+        int first = state.addBodies(n, BodyType.ASTEROID);
+        double sx = state.getX()[0], sy = state.getY()[0];
+        double svx = state.getVx()[0], svy = state.getVy()[0];
+        double gm = Constants.G * state.getMass()[0];
+        double inner = 2.1 * AU, outer = 3.3 * AU;
+        double[] x = state.getX(), y = state.getY(), vx = state.getVx(), vy = state.getVy();
+        double[] mass = state.getMass(), radius = state.getRadius();
+        generate(first, n, seed, (i, rnd) -> {
+            double r = uniformInArea(rnd, inner, outer);
+            double phi = rnd.nextDouble() * 2 * Math.PI;
+            double v = circSpeed(gm, r);
+            // sizes from 1 to 100 km, more small ones than large
+            double size = 1e3 * Math.pow(100, rnd.nextDouble() * rnd.nextDouble());
+            x[i] = sx + r * Math.cos(phi);
+            y[i] = sy + r * Math.sin(phi);
+            vx[i] = svx - v * Math.sin(phi) + dispersion * v * rnd.nextGaussian();
+            vy[i] = svy + v * Math.cos(phi) + dispersion * v * rnd.nextGaussian();
+            radius[i] = size;
+            mass[i] = rockMass(size);
+        });
+        state.markModified();
+        zeroTotalMomentum(state);
+        return state;
+    }
+
+    /**
+     * A solar-mass star inside a disk of n planetesimals from 0.1 to 30 AU
+     * holding 1% of the star's mass, with surface density falling as 1/r.
+     * Orbital speeds include the disk mass inside each radius.
+     */
+    public static SystemState protoplanetaryDisk(int n, long seed, double dispersion) {
+        SystemState state = new SystemState();
+        state.ensureCapacity(n + 1);
+        state.addBody("Star", BodyType.STAR, M_SUN, R_SUN, 0, 0, 0, 0);
+        double diskMass = 0.01 * M_SUN;
+        double m = diskMass / Math.max(n, 1);
+        double size = Math.cbrt(3 * m / (4 * Math.PI * 2000)); // rocky density
+        double inner = 0.1 * AU, outer = 30 * AU;
+        int first = state.addBodies(n, BodyType.ASTEROID);
+        double[] x = state.getX(), y = state.getY(), vx = state.getVx(), vy = state.getVy();
+        double[] mass = state.getMass(), radius = state.getRadius();
+        generate(first, n, seed, (i, rnd) -> {
+            // a 1/r surface density puts equal mass in equal widths of radius
+            double u = rnd.nextDouble();
+            double r = inner + u * (outer - inner);
+            double phi = rnd.nextDouble() * 2 * Math.PI;
+            double v = circSpeed(Constants.G * (M_SUN + u * diskMass), r);
+            x[i] = r * Math.cos(phi);
+            y[i] = r * Math.sin(phi);
+            vx[i] = -v * Math.sin(phi) + dispersion * v * rnd.nextGaussian();
+            vy[i] = v * Math.cos(phi) + dispersion * v * rnd.nextGaussian();
+            mass[i] = m;
+            radius[i] = size;
+        });
+        state.markModified();
+        zeroTotalMomentum(state);
+        return state;
+    }
+
+    /**
+     * An equal-mass Plummer sphere of n stars (10^6 solar masses, 1 pc scale
+     * radius) seen from above. Radii follow the Plummer density and speeds
+     * its equilibrium distribution (Aarseth, Hénon &amp; Wielen 1974); each
+     * is given an isotropic direction in 3D, and only the x and y components
+     * are kept. Flattening changes both energies, so the velocities are then
+     * rescaled to put the planar system in virial equilibrium, 2K = |W|, and
+     * multiplied by {@code dispersion}: 1 is virial equilibrium, below 1 the
+     * cluster collapses, above 1 it expands. Beyond 4096 stars, W is
+     * estimated from a sample of 4096.
+     */
+    public static SystemState plummerSphere(int n, long seed, double dispersion) {
+        SystemState state = new SystemState();
+        double totalMass = 1e6 * M_SUN;
+        double a = PARSEC;
+        double m = totalMass / Math.max(n, 1);
+        int first = state.addBodies(n, BodyType.STAR);
+        double[] x = state.getX(), y = state.getY(), vx = state.getVx(), vy = state.getVy();
+        double[] mass = state.getMass(), radius = state.getRadius();
+        generate(first, n, seed, (i, rnd) -> {
+            double r = a / Math.sqrt(Math.pow(rnd.nextDouble(1e-9, 1.0), -2.0 / 3.0) - 1);
+            // speed as a fraction q of the local escape speed, by rejection
+            double q;
+            do {
+                q = rnd.nextDouble();
+            } while (0.1 * rnd.nextDouble() > q * q * Math.pow(1 - q * q, 3.5));
+            double v = q * Math.sqrt(2 * Constants.G * totalMass) * Math.pow(r * r + a * a, -0.25);
+            // a uniform cos(theta) gives an isotropic direction
+            double sinTheta = Math.sqrt(1 - Math.pow(rnd.nextDouble(-1.0, 1.0), 2));
+            double phi = rnd.nextDouble() * 2 * Math.PI;
+            x[i] = r * sinTheta * Math.cos(phi);
+            y[i] = r * sinTheta * Math.sin(phi);
+            sinTheta = Math.sqrt(1 - Math.pow(rnd.nextDouble(-1.0, 1.0), 2));
+            phi = rnd.nextDouble() * 2 * Math.PI;
+            vx[i] = v * sinTheta * Math.cos(phi);
+            vy[i] = v * sinTheta * Math.sin(phi);
+            mass[i] = m;
+            radius[i] = R_SUN;
+        });
+        state.markModified();
+        zeroTotalMomentum(state);
+
+        double kinetic = 0;
+        for (int i = first; i < first + n; i++) {
+            kinetic += 0.5 * m * (vx[i] * vx[i] + vy[i] * vy[i]);
+        }
+        double potential = equalMassPotential(x, y, first, n, m);
+        if (kinetic > 0 && potential < 0) {
+            double scale = dispersion * Math.sqrt(-potential / (2 * kinetic));
+            for (int i = first; i < first + n; i++) {
+                vx[i] *= scale;
+                vy[i] *= scale;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Two disk galaxies on a parabolic collision course, each with a central
+     * black hole holding 1% of its 10^11 solar masses and an exponential
+     * disk of stars (3 kpc scale length). The second disk rotates the other
+     * way. The n stars are split between them; {@code dispersion} is the
+     * random velocity as a fraction of the local circular speed.
+     */
+    public static SystemState collidingGalaxies(int n, long seed, double dispersion) {
+        SystemState state = new SystemState();
+        state.ensureCapacity(n + 2);
+        double galaxyMass = 1e11 * M_SUN;
+        double holeMass = 0.01 * galaxyMass;
+        double separation = 50e3 * PARSEC;
+        double impact = 10e3 * PARSEC;
+        // parabolic approach: each galaxy moves at half the relative speed
+        double vRel = Math.sqrt(2 * Constants.G * 2 * galaxyMass / Math.hypot(separation, impact));
+        double[][] centres = {
+                {-separation / 2, -impact / 2, vRel / 2, 0, 1},
+                {separation / 2, impact / 2, -vRel / 2, 0, -1}};
+        int nA = n / 2;
+        long[] seeds = {seed, new SplittableRandom(seed).split().nextLong()};
+        for (int g = 0; g < 2; g++) {
+            double[] c = centres[g];
+            state.addBody("Black hole " + (char) ('A' + g), BodyType.BLACK_HOLE, holeMass,
+                    Body.schwarzschildRadius(holeMass), c[0], c[1], c[2], c[3]);
+        }
+        for (int g = 0; g < 2; g++) {
+            double[] c = centres[g];
+            int count = g == 0 ? nA : n - nA;
+            exponentialDisk(state, count, seeds[g], dispersion, c[0], c[1], c[2], c[3], c[4],
+                    holeMass, galaxyMass - holeMass, 3e3 * PARSEC);
+        }
+        state.markModified();
+        zeroTotalMomentum(state);
+        return state;
+    }
+
     /* --- Helpers --- */
 
+    /** Per-body sampler for {@link #generate}. */
+    private interface Sampler {
+        void sample(int index, SplittableRandom rnd);
+    }
+
+    /**
+     * Runs the sampler for bodies {@code [first, first + n)} in parallel.
+     * Each fixed-size chunk gets its own generator split from the seed in
+     * order, so the result is the same however the chunks are scheduled.
+     */
+    private static void generate(int first, int n, long seed, Sampler sampler) {
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            streams[c] = root.split();
+        }
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            SplittableRandom rnd = streams[c];
+            int end = Math.min(n, (c + 1) * CHUNK);
+            for (int k = c * CHUNK; k < end; k++) {
+                sampler.sample(first + k, rnd);
+            }
+        });
+    }
+
+    /**
+     * Appends a disk of n equal-mass stars around a centre moving at
+     * (cvx, cvy), rotating counter-clockwise for {@code spin} 1 and clockwise
+     * for -1. Radii follow an exponential profile cut off at five scale
+     * lengths; circular speeds use the mass enclosed by each radius.
+     */
+    private static void exponentialDisk(SystemState state, int n, long seed, double dispersion,
+                                        double cx, double cy, double cvx, double cvy, double spin,
+                                        double centralMass, double diskMass, double scale) {
+        double m = diskMass / Math.max(n, 1);
+        int first = state.addBodies(n, BodyType.STAR);
+        double[] x = state.getX(), y = state.getY(), vx = state.getVx(), vy = state.getVy();
+        double[] mass = state.getMass(), radius = state.getRadius();
+        generate(first, n, seed, (i, rnd) -> {
+            // r e^(-r/h) is a gamma(2) distribution: the sum of two exponentials
+            double r;
+            do {
+                r = -scale * Math.log(rnd.nextDouble(Double.MIN_VALUE, 1.0) * rnd.nextDouble(Double.MIN_VALUE, 1.0));
+            } while (r > 5 * scale);
+            double s = r / scale;
+            double enclosed = centralMass + diskMass * (1 - (1 + s) * Math.exp(-s));
+            double v = circSpeed(Constants.G * enclosed, r);
+            double phi = rnd.nextDouble() * 2 * Math.PI;
+            x[i] = cx + r * Math.cos(phi);
+            y[i] = cy + r * Math.sin(phi);
+            vx[i] = cvx - spin * v * Math.sin(phi) + dispersion * v * rnd.nextGaussian();
+            vy[i] = cvy + spin * v * Math.cos(phi) + dispersion * v * rnd.nextGaussian();
+            mass[i] = m;
+            radius[i] = R_SUN;
+        });
+    }
+
+    /** Radius drawn uniformly over the area of an annulus. */
+    private static double uniformInArea(SplittableRandom rnd, double inner, double outer) {
+        return Math.sqrt(inner * inner + rnd.nextDouble() * (outer * outer - inner * inner));
+    }
+
+    /** Mass of a rocky body (2000 kg/m^3) of the given radius. */
+    private static double rockMass(double radius) {
+        return 4.0 / 3.0 * Math.PI * radius * radius * radius * 2000;
+    }
+
+    /**
+     * Softened potential energy of {@code n} bodies of mass {@code m}. Beyond
+     * {@link #VIRIAL_SAMPLE} bodies it is the mean inverse distance over the
+     * pairs among the first {@link #VIRIAL_SAMPLE}, times the pair count;
+     * generated bodies are drawn independently, so those are a random sample.
+     */
+    private static double equalMassPotential(double[] x, double[] y, int first, int n, double m) {
+        int sample = Math.min(n, VIRIAL_SAMPLE);
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        double sum = 0;
+        for (int i = first; i < first + sample; i++) {
+            for (int j = i + 1; j < first + sample; j++) {
+                double dx = x[j] - x[i];
+                double dy = y[j] - y[i];
+                sum += 1 / Math.sqrt(dx * dx + dy * dy + epsSq);
+            }
+        }
+        double pairs = 0.5 * n * (n - 1.0);
+        double sampled = 0.5 * sample * (sample - 1.0);
+        return sampled == 0 ? 0 : -Constants.G * m * m * sum * (pairs / sampled);
+    }
+
     /**
      * Circular orbital speed given GM and radius r.
      */
@@ -137,24 +404,28 @@ public final class PresetFactory {
      * Subtract COM velocity from all bodies so total momentum is zero.
      */
     private static void zeroTotalMomentum(SystemState state) {
-        var bodies = state.getBodies();
+        int n = state.size();
+        double[] vx = state.getVx();
+        double[] vy = state.getVy();
+        double[] mass = state.getMass();
         double totalMass = 0.0;
         double Px = 0.0, Py = 0.0;
 
-        for (var b : bodies) {
-            Px += b.getVelocity().x * b.getMass();
-            Py += b.getVelocity().y * b.getMass();
-            totalMass += b.getMass();
+        for (int i = 0; i < n; i++) {
+            Px += vx[i] * mass[i];
+            Py += vy[i] * mass[i];
+            totalMass += mass[i];
         }
         if (totalMass == 0) return;
 
         double vxCom = Px / totalMass;
         double vyCom = Py / totalMass;
 
-        for (var b : bodies) {
-            b.getVelocity().x -= vxCom;
-            b.getVelocity().y -= vyCom;
+        for (int i = 0; i < n; i++) {
+            vx[i] -= vxCom;
+            vy[i] -= vyCom;
         }
+        state.markModified();
     }
 
 }
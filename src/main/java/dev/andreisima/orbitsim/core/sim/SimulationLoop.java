@@ -0,0 +1,129 @@
+package dev.andreisima.orbitsim.core.sim;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.PhysicsEngine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the physics on its own thread, decoupled from rendering.
+ * <p>
+ * The loop steps the system at a target rate in simulated seconds per real
+ * second and publishes a snapshot through a {@link SnapshotExchange} at most
+ * once per publish interval. The {@link SystemState} and the engine belong to
+ * the simulation thread once {@link #start()} is called; other threads talk
+ * to it only through the volatile settings below and the snapshots.
+ */
+public class SimulationLoop implements Runnable {
+    /** Snapshots per second at most; a bit above a typical display refresh rate. */
+    private static final long PUBLISH_INTERVAL_NANOS = 1_000_000_000L / 120;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+    private static final long MEASURE_WINDOW_NANOS = 500_000_000L;
+
+    private final SystemState state;
+    private final PhysicsEngine engine;
+    private final SnapshotExchange exchange = new SnapshotExchange();
+
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+    private volatile double dt = 60;
+    /** Simulated seconds per real second; infinite means as fast as possible. */
+    private volatile double targetRate = 3600;
+    private volatile double measuredStepsPerSecond;
+
+    private Thread thread;
+    private long steps;
+
+    public SimulationLoop(SystemState state, PhysicsEngine engine) {
+        this.state = state;
+        this.engine = engine;
+    }
+
+    public synchronized void start() {
+        if (thread != null) return;
+        exchange.back().copyFrom(state, steps);
+        exchange.publish();
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops the loop and waits for the thread to finish. */
+    public synchronized void stop() throws InterruptedException {
+        stopped = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+            thread = null;
+        }
+    }
+
+    public SnapshotExchange getExchange() { return exchange; }
+
+    public boolean isRunning() { return running; }
+    public void setRunning(boolean running) { this.running = running; }
+
+    public double getDt() { return dt; }
+    public void setDt(double dt) { this.dt = dt; }
+
+    public double getTargetRate() { return targetRate; }
+
+    /** Simulated seconds per real second; {@code Double.POSITIVE_INFINITY} for no limit. */
+    public void setTargetRate(double simSecondsPerSecond) { this.targetRate = simSecondsPerSecond; }
+
+    /** Steps per second achieved, averaged over about half a second. */
+    public double getMeasuredStepsPerSecond() { return measuredStepsPerSecond; }
+
+    @Override
+    public void run() {
+        long last = System.nanoTime();
+        double owed = 0; // simulated seconds we are behind the target
+        long windowStart = last;
+        long windowSteps = 0;
+        while (!stopped) {
+            long sinceWindow = System.nanoTime() - windowStart;
+            if (sinceWindow >= MEASURE_WINDOW_NANOS) {
+                measuredStepsPerSecond = windowSteps / (sinceWindow / 1e9);
+                windowStart += sinceWindow;
+                windowSteps = 0;
+            }
+            if (!running) {
+                owed = 0;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                last = System.nanoTime();
+                continue;
+            }
+
+            long batchStart = System.nanoTime();
+            double step = dt;
+            double rate = targetRate;
+            boolean unlimited = Double.isInfinite(rate);
+            owed += (batchStart - last) / 1e9 * (unlimited ? 0 : rate);
+            last = batchStart;
+
+            int taken = 0;
+            long now = batchStart;
+            while ((unlimited || owed >= step) && now - batchStart < PUBLISH_INTERVAL_NANOS && !stopped) {
+                engine.step(state, step);
+                owed -= step;
+                taken++;
+                steps++;
+                now = System.nanoTime();
+            }
+            // falling behind by more than a batch: drop the debt instead of spiralling
+            if (!unlimited && owed > step && now - batchStart >= PUBLISH_INTERVAL_NANOS) {
+                owed = 0;
+            }
+
+            windowSteps += taken;
+            if (taken > 0) {
+                exchange.back().copyFrom(state, steps);
+                exchange.publish();
+            } else {
+                // sleep until roughly one step is owed, but stay responsive
+                long wait = rate > 0 ? (long) ((step - owed) / rate * 1e9) : IDLE_PARK_NANOS;
+                LockSupport.parkNanos(Math.max(0, Math.min(wait, IDLE_PARK_NANOS)));
+            }
+        }
+    }
+}
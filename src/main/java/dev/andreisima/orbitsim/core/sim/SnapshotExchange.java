@@ -0,0 +1,39 @@
+package dev.andreisima.orbitsim.core.sim;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer between one writer (the simulation thread) and one
+ * reader (the render thread). The writer fills its back buffer and swaps it
+ * with the shared middle slot; the reader swaps its front buffer with the
+ * middle slot only when a newer snapshot is waiting. Neither side ever
+ * blocks, and the writer never touches the buffer being drawn.
+ */
+public class SnapshotExchange {
+    private static final int INDEX_MASK = 0b11;
+    private static final int FRESH = 0b100;
+
+    private final StateSnapshot[] buffers = {new StateSnapshot(), new StateSnapshot(), new StateSnapshot()};
+    // index of the middle buffer, plus FRESH if the writer published since the last read
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // writer only
+    private int front = 2; // reader only
+
+    /** Buffer the writer may fill. Valid until the next {@link #publish()}. */
+    public StateSnapshot back() {
+        return buffers[back];
+    }
+
+    /** Hands the filled back buffer to the reader. */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /** Latest published snapshot. Valid until the next call. */
+    public StateSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return buffers[front];
+    }
+}
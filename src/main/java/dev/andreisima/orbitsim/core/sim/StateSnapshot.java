@@ -0,0 +1,124 @@
+package dev.andreisima.orbitsim.core.sim;
+
+import dev.andreisima.orbitsim.core.model.Body;
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.model.TrailBuffer;
+import dev.andreisima.orbitsim.core.util.Vector2D;
+
+import java.util.Arrays;
+
+/**
+ * Copy of everything the renderer needs from a {@link SystemState}, taken on
+ * the simulation thread. Instances are recycled by {@link SnapshotExchange};
+ * a reader owns its snapshot until it acquires the next one.
+ */
+public class StateSnapshot {
+    private int count;
+    private double time;
+    private long step;
+    private double baryX, baryY;
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] mass = new double[0];
+    private double[] radius = new double[0];
+    private BodyType[] types = new BodyType[0];
+    private int[] ids = new int[0];
+    private int[] indexOfId = new int[0]; // -1 for ids not in the snapshot; only [0, idLimit) is current
+    private int idLimit;
+
+    // trails, packed back to back: body i owns [trailStart[i], trailStart[i] + trailLength[i])
+    private int[] trailStart = new int[0];
+    private int[] trailLength = new int[0];
+    private double[] trailX = new double[0];
+    private double[] trailY = new double[0];
+
+    /** Overwrites this snapshot with the current contents of {@code state}. */
+    public void copyFrom(SystemState state, long step) {
+        int n = state.size();
+        ensureCapacity(n);
+        count = n;
+        time = state.getTime();
+        this.step = step;
+        System.arraycopy(state.getX(), 0, x, 0, n);
+        System.arraycopy(state.getY(), 0, y, 0, n);
+        System.arraycopy(state.getMass(), 0, mass, 0, n);
+        System.arraycopy(state.getRadius(), 0, radius, 0, n);
+
+        int nextId = state.getNextId();
+        if (indexOfId.length < nextId) {
+            indexOfId = new int[Math.max(nextId, 2 * indexOfId.length)];
+        }
+        Arrays.fill(indexOfId, 0, nextId, -1);
+        idLimit = nextId;
+
+        double sx = 0, sy = 0, total = 0;
+        int points = 0;
+        for (int i = 0; i < n; i++) {
+            types[i] = state.getType(i);
+            ids[i] = state.getId(i);
+            indexOfId[ids[i]] = i;
+            sx += x[i] * mass[i];
+            sy += y[i] * mass[i];
+            total += mass[i];
+            TrailBuffer trail = state.getTrail(i);
+            if (trail != null) points += trail.size();
+        }
+        baryX = total == 0 ? 0 : sx / total;
+        baryY = total == 0 ? 0 : sy / total;
+
+        if (trailX.length < points) {
+            trailX = new double[Math.max(points, 2 * trailX.length)];
+            trailY = new double[trailX.length];
+        }
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            TrailBuffer trail = state.getTrail(i);
+            int length = trail == null ? 0 : trail.size();
+            if (length > 0) trail.copyTo(trailX, trailY, k);
+            trailStart[i] = k;
+            trailLength[i] = length;
+            k += length;
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (x.length >= n) return;
+        int capacity = Math.max(n, 2 * x.length);
+        x = new double[capacity];
+        y = new double[capacity];
+        mass = new double[capacity];
+        radius = new double[capacity];
+        types = Arrays.copyOf(types, capacity);
+        ids = new int[capacity];
+        trailStart = new int[capacity];
+        trailLength = new int[capacity];
+    }
+
+    public int size() { return count; }
+    public double getTime() { return time; }
+    /** Number of steps taken when this snapshot was made. */
+    public long getStep() { return step; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getMass(int i) { return mass[i]; }
+    public double getRadius(int i) { return radius[i]; }
+    public BodyType getType(int i) { return types[i]; }
+    /** Stable id of body i; see {@link SystemState#getId}. */
+    public int getId(int i) { return ids[i]; }
+
+    /** Index of the body with {@code id} in this snapshot, or -1 if it is not in it. */
+    public int indexOf(int id) {
+        return id >= 0 && id < idLimit ? indexOfId[id] : -1;
+    }
+    public double getSchwarzschildRadius(int i) { return Body.schwarzschildRadius(mass[i]); }
+
+    public int getTrailLength(int i) { return trailLength[i]; }
+    /** x of the k-th oldest trail point of body i. */
+    public double getTrailX(int i, int k) { return trailX[trailStart[i] + k]; }
+    public double getTrailY(int i, int k) { return trailY[trailStart[i] + k]; }
+
+    public Vector2D getBarycenter() {
+        return new Vector2D(baryX, baryY);
+    }
+}
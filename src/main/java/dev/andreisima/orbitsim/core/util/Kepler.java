@@ -0,0 +1,141 @@
+package dev.andreisima.orbitsim.core.util;
+
+/**
+ * Two-body helpers for setting bodies on Keplerian orbits in the plane and
+ * advancing them along those orbits.
+ * <p>
+ * Orbits are counter-clockwise. With {@code omega = 0} periapsis lies on
+ * +x, so a body at mean anomaly 0 starts at {@code (a(1 - e), 0)} moving in
+ * +y, the same convention as the perihelion starts in the presets.
+ */
+public final class Kepler {
+    private Kepler() {}
+
+    /** Solves Kepler's equation {@code E - e sin E = M} for an ellipse ({@code 0 <= e < 1}). */
+    public static double eccentricAnomaly(double meanAnomaly, double e) {
+        double m = Math.IEEEremainder(meanAnomaly, 2 * Math.PI); // in [-pi, pi]
+        // starting at pi for high eccentricity keeps Newton from overshooting
+        double ea = e < 0.8 ? m : Math.copySign(Math.PI, m);
+        for (int k = 0; k < 50; k++) {
+            double f = ea - e * Math.sin(ea) - m;
+            double d = f / (1 - e * Math.cos(ea));
+            ea -= d;
+            if (Math.abs(d) < 1e-15) break;
+        }
+        return ea;
+    }
+
+    /**
+     * Position and velocity relative to the primary of a body on an elliptic
+     * orbit.
+     *
+     * @param mu          G times the combined mass of primary and body
+     * @param a           semi-major axis in meters, > 0
+     * @param e           eccentricity in [0, 1)
+     * @param omega       argument of periapsis in radians
+     * @param meanAnomaly mean anomaly in radians
+     * @param out         receives x, y, vx, vy in its first four slots
+     */
+    public static void toCartesian(double mu, double a, double e, double omega, double meanAnomaly, double[] out) {
+        if (!(a > 0) || !(e >= 0 && e < 1)) {
+            throw new IllegalArgumentException("need a > 0 and 0 <= e < 1, got a=" + a + " e=" + e);
+        }
+        double ea = eccentricAnomaly(meanAnomaly, e);
+        double cosE = Math.cos(ea);
+        double sinE = Math.sin(ea);
+        double b = a * Math.sqrt(1 - e * e);
+        double px = a * (cosE - e);
+        double py = b * sinE;
+        double eDot = Math.sqrt(mu / (a * a * a)) / (1 - e * cosE);
+        double qx = -a * sinE * eDot;
+        double qy = b * cosE * eDot;
+
+        double c = Math.cos(omega);
+        double s = Math.sin(omega);
+        out[0] = px * c - py * s;
+        out[1] = px * s + py * c;
+        out[2] = qx * c - qy * s;
+        out[3] = qx * s + qy * c;
+    }
+
+    /**
+     * Advances a body on its two-body orbit about a fixed primary by
+     * {@code dt}, in place, for any orbit type (elliptic, parabolic or
+     * hyperbolic).
+     * <p>
+     * Uses universal variables: Kepler's equation is solved for the universal
+     * anomaly {@code s} with Laguerre–Conway iteration, which converges from
+     * the crude starting guess {@code dt / r}, and the new state follows from
+     * the Lagrange {@code f} and {@code g} functions built on the Stumpff
+     * functions. Elliptic drifts longer than a period are first reduced
+     * modulo the period. Nothing is allocated, so it can be called per body
+     * per step.
+     *
+     * @param mu G times the mass that the body orbits
+     * @param i  index of the body in the four arrays, which hold its position
+     *           and velocity relative to the primary
+     */
+    public static void drift(double mu, double[] x, double[] y, double[] vx, double[] vy, int i, double dt) {
+        double x0 = x[i], y0 = y[i], vx0 = vx[i], vy0 = vy[i];
+        double r0 = Math.sqrt(x0 * x0 + y0 * y0);
+        if (r0 == 0 || mu <= 0) {
+            x[i] = x0 + vx0 * dt;
+            y[i] = y0 + vy0 * dt;
+            return;
+        }
+        double eta = x0 * vx0 + y0 * vy0;
+        double beta = 2 * mu / r0 - (vx0 * vx0 + vy0 * vy0); // mu / a
+        if (beta > 0) {
+            double period = 2 * Math.PI * mu / (beta * Math.sqrt(beta));
+            if (Math.abs(dt) > period) {
+                dt %= period;
+            }
+        }
+        double zeta = mu - beta * r0;
+
+        // Laguerre-Conway on F(s) = r0 G1 + eta G2 + mu G3 - dt, F'(s) = r
+        double s = dt / r0;
+        double c0 = 1, c1 = 1, c2 = 0.5, c3 = 1.0 / 6;
+        double g1 = 0, g2 = 0, g3 = 0, r = r0;
+        for (int k = 0; k < 50; k++) {
+            double z = beta * s * s;
+            // Stumpff functions c0..c3 of z, by series on z / 4^q and doubling back
+            int q = 0;
+            double zr = z;
+            while (Math.abs(zr) > 0.1) {
+                zr *= 0.25;
+                q++;
+            }
+            c2 = (1 - zr / 12 * (1 - zr / 30 * (1 - zr / 56 * (1 - zr / 90 * (1 - zr / 132))))) / 2;
+            c3 = (1 - zr / 20 * (1 - zr / 42 * (1 - zr / 72 * (1 - zr / 110 * (1 - zr / 156))))) / 6;
+            c1 = 1 - zr * c3;
+            c0 = 1 - zr * c2;
+            for (; q > 0; q--) {
+                c3 = (c2 + c0 * c3) * 0.25;
+                c2 = c1 * c1 * 0.5;
+                c1 = c0 * c1;
+                c0 = 2 * c0 * c0 - 1;
+            }
+            g1 = s * c1;
+            g2 = s * s * c2;
+            g3 = s * s * s * c3;
+            double f = r0 * g1 + eta * g2 + mu * g3 - dt;
+            r = r0 * c0 + eta * g1 + mu * g2;
+            double r1 = eta * c0 + zeta * g1;
+            double disc = Math.sqrt(Math.abs(16 * r * r - 20 * f * r1));
+            double ds = -5 * f / (r + Math.copySign(disc, r));
+            s += ds;
+            if (Math.abs(ds) <= 1e-15 * Math.abs(s)) break;
+        }
+
+        // Lagrange coefficients from the last iterate's G functions
+        double f = 1 - mu * g2 / r0;
+        double g = dt - mu * g3;
+        double fd = -mu * g1 / (r * r0);
+        double gd = 1 - mu * g2 / r;
+        x[i] = f * x0 + g * vx0;
+        y[i] = f * y0 + g * vy0;
+        vx[i] = fd * x0 + gd * vx0;
+        vy[i] = fd * y0 + gd * vy0;
+    }
+}
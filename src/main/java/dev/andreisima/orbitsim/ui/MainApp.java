@@ -1,9 +1,14 @@
 package dev.andreisima.orbitsim.ui;
 
+import dev.andreisima.orbitsim.core.metrics.Metrics;
+import dev.andreisima.orbitsim.core.metrics.MetricsSampler;
 import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.ForceSolverFactory;
 import dev.andreisima.orbitsim.core.physics.LeapfrogIntegrator;
 import dev.andreisima.orbitsim.core.physics.PhysicsEngine;
+import dev.andreisima.orbitsim.core.physics.TimedForceSolver;
 import dev.andreisima.orbitsim.core.presets.PresetFactory;
+import dev.andreisima.orbitsim.core.sim.SimulationLoop;
 import dev.andreisima.orbitsim.core.util.Vector2D;
 import dev.andreisima.orbitsim.ui.controls.ControlPanel;
 import dev.andreisima.orbitsim.ui.render.Camera;
@@ -22,17 +27,26 @@ import javafx.stage.Stage;
  */
 public class MainApp extends Application {
     private final SystemState state = PresetFactory.sunEarthMoon();
-    private final PhysicsEngine physics = new PhysicsEngine(new LeapfrogIntegrator());
+    // always on: recording costs a few nanoseconds per phase
+    private final Metrics metrics = new Metrics();
+    private final MetricsSampler sampler = new MetricsSampler(metrics);
+    private final PhysicsEngine physics = new PhysicsEngine(
+            new LeapfrogIntegrator(new TimedForceSolver(ForceSolverFactory.vectorized(), metrics)));
+    // owns state and physics once started; the FX thread only reads snapshots
+    private final SimulationLoop simulation = new SimulationLoop(state, physics);
     private final Canvas canvas = new Canvas(800, 600);
     private final Camera camera = new Camera();
     private Renderer renderer;
     private ControlPanel controls;
-    private boolean running = true;
 
     @Override
     public void start(Stage stage) {
+        physics.setMetrics(metrics);
         renderer = new Renderer(canvas);
-        controls = new ControlPanel(() -> running = true, () -> running = false);
+        renderer.setMetrics(metrics);
+        renderer.setHudSource(sampler);
+        sampler.start(500);
+        controls = new ControlPanel(() -> simulation.setRunning(true), () -> simulation.setRunning(false));
 
         BorderPane root = new BorderPane();
         root.setCenter(canvas);
@@ -53,22 +67,31 @@ public class MainApp extends Application {
         double factor = targetZoom / camera.getZoom();
         camera.zoom(factor, canvas.getWidth() / 2, canvas.getHeight() / 2);
 
+        simulation.setDt(controls.getDt());
+        simulation.setTargetRate(controls.getTargetRate());
+        simulation.start();
+
 // Re-center after zoom
         centerCamera();
 
         AnimationTimer timer = new AnimationTimer() {
             @Override
             public void handle(long now) {
-                if (running) {
-                    double dt = controls.getDt();
-                    physics.step(state, dt);
-                }
-                renderer.render(state, camera);
+                simulation.setDt(controls.getDt());
+                simulation.setTargetRate(controls.getTargetRate());
+                controls.showMeasuredRate(simulation.getMeasuredStepsPerSecond());
+                renderer.render(simulation.getExchange().acquire(), camera);
             }
         };
         timer.start();
     }
 
+    @Override
+    public void stop() throws Exception {
+        simulation.stop();
+        sampler.close();
+    }
+
     private void setupInteraction(Scene scene) {
         // zoom with scroll
         canvas.setOnScroll(e -> {
@@ -95,15 +118,17 @@ public class MainApp extends Application {
         // keyboard shortcuts
         scene.setOnKeyPressed(e -> {
             if (e.getCode() == KeyCode.SPACE) {
-                running = !running;
+                simulation.setRunning(!simulation.isRunning());
             } else if (e.getCode() == KeyCode.C) {
                 centerCamera();
+            } else if (e.getCode() == KeyCode.H) {
+                renderer.setHudVisible(!renderer.isHudVisible());
             }
         });
     }
 
     private void centerCamera() {
-        Vector2D bary = state.computeBarycenter();
+        Vector2D bary = simulation.getExchange().acquire().getBarycenter();
         camera.centerOn(bary, canvas.getWidth(), canvas.getHeight());
     }
 
@@ -1,23 +1,34 @@
 package dev.andreisima.orbitsim.ui.controls;
 
 import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 
 /**
- * Basic control panel with play/pause button and time step slider.
+ * Basic control panel with play/pause button, time step slider and
+ * simulation speed controls.
  */
 public class ControlPanel extends HBox {
+    /** The speed slider is expressed against this frame rate. */
+    private static final double REFERENCE_FPS = 60;
+
     private final Button playPause = new Button("Pause");
     private final Slider dtSlider = new Slider(1, 25000, 60); // seconds per step
+    private final Slider stepsPerFrame = new Slider(1, 500, 1);
+    private final CheckBox unlimited = new CheckBox("Max speed");
+    private final Label rateLabel = new Label();
     private boolean running = true;
 
     public ControlPanel(Runnable onPlay, Runnable onPause) {
         setPadding(new Insets(5));
         setSpacing(10);
+        setAlignment(Pos.CENTER_LEFT);
 
         playPause.setOnAction(e -> {
             running = !running;
@@ -35,13 +46,35 @@ public class ControlPanel extends HBox {
         dtSlider.setMajorTickUnit(900);
         dtSlider.setMinorTickCount(4);
 
+        stepsPerFrame.setShowTickLabels(true);
+        stepsPerFrame.setMajorTickUnit(100);
+        stepsPerFrame.disableProperty().bind(unlimited.selectedProperty());
+        rateLabel.setMinWidth(110);
+
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
-        getChildren().addAll(playPause, spacer, dtSlider);
+        getChildren().addAll(playPause, new Label("Steps/frame"), stepsPerFrame, unlimited, rateLabel,
+                spacer, new Label("dt (s)"), dtSlider);
     }
 
     public double getDt() {
         return dtSlider.getValue();
     }
+
+    /**
+     * Target simulated seconds per real second: dt times the chosen steps per
+     * frame at the reference frame rate, or infinite for maximum speed.
+     */
+    public double getTargetRate() {
+        if (unlimited.isSelected()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return getDt() * Math.round(stepsPerFrame.getValue()) * REFERENCE_FPS;
+    }
+
+    /** Shows the step rate the simulation thread actually achieves. */
+    public void showMeasuredRate(double stepsPerSecond) {
+        rateLabel.setText(String.format("%.0f steps/s", stepsPerSecond));
+    }
 }
@@ -30,6 +30,15 @@ public class Camera {
         return new Vector2D(world.x * zoom + offsetX, world.y * zoom + offsetY);
     }
 
+    /** Screen x of a world x, without allocating. */
+    public double toScreenX(double worldX) {
+        return worldX * zoom + offsetX;
+    }
+
+    public double toScreenY(double worldY) {
+        return worldY * zoom + offsetY;
+    }
+
     public Vector2D screenToWorld(double x, double y) {
         return new Vector2D((x - offsetX) / zoom, (y - offsetY) / zoom);
     }
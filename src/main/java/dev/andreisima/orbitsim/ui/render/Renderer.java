@@ -1,8 +1,11 @@
 package dev.andreisima.orbitsim.ui.render;
 
-import dev.andreisima.orbitsim.core.model.Body;
+import dev.andreisima.orbitsim.core.metrics.Metrics;
+import dev.andreisima.orbitsim.core.metrics.MetricsReport;
+import dev.andreisima.orbitsim.core.metrics.MetricsSampler;
+import dev.andreisima.orbitsim.core.metrics.Phase;
 import dev.andreisima.orbitsim.core.model.BodyType;
-import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.sim.StateSnapshot;
 import dev.andreisima.orbitsim.core.util.Vector2D;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -11,21 +14,74 @@ import javafx.scene.paint.Color;
 import javafx.scene.paint.RadialGradient;
 import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.Stop;
+import javafx.scene.text.Font;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Random;
 
 /**
  * Responsible for drawing the current system state.
  */
 public class Renderer {
+    /** Trails fade in this many steps; each step is one stroke colour. */
+    private static final int TRAIL_BANDS = 8;
+    /** Glows are additive fills and expensive; only this many of the heaviest stars get one. */
+    private static final int MAX_GLOWS = 32;
+    /** Above this many bodies, bodies smaller than a pixel are drawn as sprites. */
+    private static final int CROWDED_BODIES = 1000;
+    private static final Font HUD_FONT = Font.font("Monospaced", 12);
+    private static final double HUD_LINE = 15;
+    /** Approximate advance of one character of {@link #HUD_FONT}. */
+    private static final double HUD_CHAR_WIDTH = 7.3;
+    private static final Color HUD_BACKGROUND = new Color(0, 0, 0, 0.6);
+
     private final Canvas canvas;
     private final List<Vector2D> stars = new ArrayList<>();
+    // [type][band] trail colours, from faint (oldest) to opaque
+    private final Color[][] trailColors = new Color[BodyType.values().length][TRAIL_BANDS];
+
+    // polyline scratch, grown to the longest trail drawn so far
+    private double[] lineX = new double[256];
+    private double[] lineY = new double[256];
+    private int lineLength;
+
+    // per-type paint, built once; glows use proportional gradients so one fits every size
+    private final RadialGradient[] glows = new RadialGradient[BodyType.values().length];
+    private final int[] spriteArgb = new int[BodyType.values().length];
+    private final SpriteLayer sprites = new SpriteLayer();
+
+    // bodies drawn as shapes this frame, and the stars chosen to glow (heaviest first)
+    private int[] shapes = new int[256];
+    private int shapeCount;
+    private final int[] glowing = new int[MAX_GLOWS];
+    private int glowCount;
+
+    private Metrics metrics;
+    private MetricsSampler sampler;
+    private boolean hudVisible;
+    // HUD text, rebuilt only when the sampler publishes a new report
+    private MetricsReport hudReport;
+    private final List<String> hudLines = new ArrayList<>();
 
     public Renderer(Canvas canvas) {
         this.canvas = canvas;
         generateStarfield(400);
+        for (BodyType type : BodyType.values()) {
+            Color base = colorFor(type);
+            for (int b = 0; b < TRAIL_BANDS; b++) {
+                double alpha = (b + 1.0) / TRAIL_BANDS;
+                trailColors[type.ordinal()][b] = new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+            }
+            glows[type.ordinal()] = new RadialGradient(0, 0, 0.5, 0.5, 0.5, true,
+                    CycleMethod.NO_CYCLE, new Stop(0, base), new Stop(1, Color.TRANSPARENT));
+            spriteArgb[type.ordinal()] = 0xFF000000
+                    | (int) Math.round(base.getRed() * 255) << 16
+                    | (int) Math.round(base.getGreen() * 255) << 8
+                    | (int) Math.round(base.getBlue() * 255);
+        }
     }
 
     private void generateStarfield(int count) {
@@ -37,7 +93,21 @@ public class Renderer {
         }
     }
 
-    public void render(SystemState state, Camera camera) {
+    /** Records frame times under {@link Phase#RENDER}; null for none. */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Source of the reports shown in the HUD. */
+    public void setHudSource(MetricsSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    public boolean isHudVisible() { return hudVisible; }
+    public void setHudVisible(boolean visible) { this.hudVisible = visible; }
+
+    public void render(StateSnapshot state, Camera camera) {
+        long start = System.nanoTime();
         GraphicsContext gc = canvas.getGraphicsContext2D();
         double w = canvas.getWidth();
         double h = canvas.getHeight();
@@ -51,65 +121,225 @@ public class Renderer {
         }
 
         // trails
-        for (Body b : state.getBodies()) {
-            drawTrail(gc, b, camera);
+        for (int i = 0; i < state.size(); i++) {
+            drawTrail(gc, state, i, camera);
         }
 
         // bodies
-        for (Body b : state.getBodies()) {
-            drawBody(gc, b, camera);
+        drawBodies(gc, state, camera, w, h);
+
+        if (hudVisible && sampler != null) {
+            drawHud(gc);
+        }
+        if (metrics != null) {
+            metrics.record(Phase.RENDER, System.nanoTime() - start);
         }
     }
 
-    private void drawTrail(GraphicsContext gc, Body body, Camera camera) {
-        var trail = body.getTrail();
-        if (trail.isEmpty()) return;
-        Vector2D prev = null;
-        int i = 0;
-        int n = trail.size();
-        Color base = colorFor(body.getType());
-        for (Vector2D p : trail) {
-            Vector2D screen = camera.worldToScreen(p);
-            if (prev != null) {
-                double alpha = (double) i / n;
-                gc.setStroke(new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha));
-                gc.strokeLine(prev.x, prev.y, screen.x, screen.y);
+    /** Performance overlay in the top left corner, from the latest metrics report. */
+    private void drawHud(GraphicsContext gc) {
+        MetricsReport report = sampler.latest();
+        if (report != hudReport) {
+            hudReport = report;
+            buildHudLines(report);
+        }
+        double width = 0;
+        for (String line : hudLines) {
+            width = Math.max(width, HUD_CHAR_WIDTH * line.length());
+        }
+        gc.setFill(HUD_BACKGROUND);
+        gc.fillRect(6, 6, width + 12, hudLines.size() * HUD_LINE + 10);
+        gc.setFont(HUD_FONT);
+        gc.setFill(Color.LIGHTGREEN);
+        double y = 6 + HUD_LINE;
+        for (String line : hudLines) {
+            gc.fillText(line, 12, y);
+            y += HUD_LINE;
+        }
+    }
+
+    private void buildHudLines(MetricsReport report) {
+        hudLines.clear();
+        if (report == null) {
+            hudLines.add("collecting metrics...");
+            return;
+        }
+        hudLines.add(String.format(Locale.ROOT, "bodies %d   steps/s %.0f", report.getBodies(), report.getStepsPerSecond()));
+        hudLines.add(String.format(Locale.ROOT, "merges/s %.1f   accretions/s %.1f",
+                report.getMergesPerSecond(), report.getAccretionsPerSecond()));
+        hudLines.add(String.format(Locale.ROOT, "%-12s %6s %9s %9s %9s", "phase", "/s", "mean us", "p99 us", "max us"));
+        for (Phase phase : Phase.values()) {
+            long count = report.getCount(phase);
+            if (count == 0) {
+                hudLines.add(String.format(Locale.ROOT, "%-12s %6s", phase.name().toLowerCase(Locale.ROOT), "-"));
+                continue;
             }
-            prev = screen;
-            i++;
+            hudLines.add(String.format(Locale.ROOT, "%-12s %6.0f %9.1f %9.1f %9.1f",
+                    phase.name().toLowerCase(Locale.ROOT), count / report.getSeconds(),
+                    report.getMeanNanos(phase) / 1e3, report.getP99Nanos(phase) / 1e3,
+                    report.getMaxNanos(phase) / 1e3));
         }
     }
 
-    private void drawBody(GraphicsContext gc, Body body, Camera camera) {
-        Vector2D screen = camera.worldToScreen(body.getPosition());
-        double basePx = switch (body.getType()) {
-            case STAR -> 14; case PLANET -> 8; case MOON -> 5; case ASTEROID -> 3; case BLACK_HOLE -> 10;
-        };
-        double radius = Math.max(2, Math.min(basePx, 50)); // ignore camera.getZoom() for size
+    /**
+     * Draws the bodies in level-of-detail tiers. Bodies off screen are
+     * skipped; bodies smaller than a pixel become sprites on one pixel layer
+     * if they are asteroids or the scene is crowded; the rest, including
+     * asteroids zoomed in far enough to resolve, are drawn as shapes, with a
+     * glow under the heaviest few stars only.
+     */
+    private void drawBodies(GraphicsContext gc, StateSnapshot state, Camera camera, double w, double h) {
+        int n = state.size();
+        boolean crowded = n > CROWDED_BODIES;
+        double zoom = camera.getZoom();
+        sprites.begin((int) w, (int) h);
+        shapeCount = 0;
+        glowCount = 0;
 
-        radius = Math.max(2, Math.min(radius, 50));
+        for (int i = 0; i < n; i++) {
+            BodyType type = state.getType(i);
+            double sx = camera.toScreenX(state.getX(i));
+            double sy = camera.toScreenY(state.getY(i));
+            double extent = type == BodyType.BLACK_HOLE
+                    ? 1.5 * state.getSchwarzschildRadius(i) * zoom
+                    : 2 * pixelRadius(type);
+            if (sx + extent < 0 || sx - extent > w || sy + extent < 0 || sy - extent > h) {
+                continue;
+            }
+            // sub-pixel asteroids always, other small bodies only in crowded scenes
+            boolean subPixel = state.getRadius(i) * zoom < 1;
+            if (subPixel && (type == BodyType.ASTEROID
+                    || (crowded && type != BodyType.STAR && type != BodyType.BLACK_HOLE))) {
+                sprites.plot(sx, sy, spriteArgb[type.ordinal()]);
+                continue;
+            }
+            if (shapeCount == shapes.length) {
+                shapes = Arrays.copyOf(shapes, 2 * shapes.length);
+            }
+            shapes[shapeCount++] = i;
+            if (type == BodyType.STAR) {
+                offerGlow(state, i);
+            }
+        }
+        sprites.draw(gc);
 
-        Color color = colorFor(body.getType());
+        if (glowCount > 0) {
+            gc.setGlobalBlendMode(BlendMode.ADD);
+            for (int k = 0; k < glowCount; k++) {
+                int i = glowing[k];
+                BodyType type = state.getType(i);
+                double r = 2 * pixelRadius(type);
+                gc.setFill(glows[type.ordinal()]);
+                gc.fillOval(camera.toScreenX(state.getX(i)) - r, camera.toScreenY(state.getY(i)) - r, 2 * r, 2 * r);
+            }
+            gc.setGlobalBlendMode(BlendMode.SRC_OVER);
+        }
+
+        for (int k = 0; k < shapeCount; k++) {
+            drawBody(gc, state, shapes[k], camera);
+        }
+    }
+
+    /** Keeps the {@link #MAX_GLOWS} heaviest stars, sorted by mass, heaviest first. */
+    private void offerGlow(StateSnapshot state, int body) {
+        double m = state.getMass(body);
+        if (glowCount == MAX_GLOWS && m <= state.getMass(glowing[MAX_GLOWS - 1])) {
+            return;
+        }
+        int k = glowCount < MAX_GLOWS ? glowCount++ : MAX_GLOWS - 1;
+        while (k > 0 && state.getMass(glowing[k - 1]) < m) {
+            glowing[k] = glowing[k - 1];
+            k--;
+        }
+        glowing[k] = body;
+    }
+
+    /**
+     * Draws a trail as a few polylines, one per fade band, instead of one
+     * stroke per segment. Segments whose bounding box misses the viewport are
+     * skipped, and points landing on the same pixel as the previous one are
+     * dropped.
+     */
+    private void drawTrail(GraphicsContext gc, StateSnapshot state, int body, Camera camera) {
+        int n = state.getTrailLength(body);
+        if (n < 2) return;
+        if (lineX.length < n) {
+            lineX = new double[n];
+            lineY = new double[n];
+        }
+        Color[] colors = trailColors[state.getType(body).ordinal()];
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
 
-        if (body.getType() == BodyType.BLACK_HOLE) {
-            double rs = body.getSchwarzschildRadius() * camera.getZoom();
+        lineLength = 0;
+        int band = 0;
+        double px = camera.toScreenX(state.getTrailX(body, 0));
+        double py = camera.toScreenY(state.getTrailY(body, 0));
+        for (int k = 1; k < n; k++) {
+            double sx = camera.toScreenX(state.getTrailX(body, k));
+            double sy = camera.toScreenY(state.getTrailY(body, k));
+            int b = (int) ((long) k * TRAIL_BANDS / n);
+            if (b != band) {
+                flushTrail(gc, colors[band]);
+                band = b;
+            }
+            boolean visible = Math.max(px, sx) >= 0 && Math.min(px, sx) <= w
+                    && Math.max(py, sy) >= 0 && Math.min(py, sy) <= h;
+            if (!visible) {
+                flushTrail(gc, colors[band]);
+            } else {
+                if (lineLength == 0) {
+                    lineX[0] = px;
+                    lineY[0] = py;
+                    lineLength = 1;
+                }
+                int last = lineLength - 1;
+                boolean samePixel = (int) sx == (int) lineX[last] && (int) sy == (int) lineY[last];
+                // keep the newest point so the trail reaches the body
+                if (!samePixel || k == n - 1) {
+                    lineX[lineLength] = sx;
+                    lineY[lineLength] = sy;
+                    lineLength++;
+                }
+            }
+            px = sx;
+            py = sy;
+        }
+        flushTrail(gc, colors[band]);
+    }
+
+    private void flushTrail(GraphicsContext gc, Color color) {
+        if (lineLength > 1) {
+            gc.setStroke(color);
+            gc.strokePolyline(lineX, lineY, lineLength);
+        }
+        lineLength = 0;
+    }
+
+    private void drawBody(GraphicsContext gc, StateSnapshot state, int body, Camera camera) {
+        BodyType type = state.getType(body);
+        double sx = camera.toScreenX(state.getX(body));
+        double sy = camera.toScreenY(state.getY(body));
+
+        if (type == BodyType.BLACK_HOLE) {
+            double rs = state.getSchwarzschildRadius(body) * camera.getZoom();
             gc.setFill(Color.BLACK);
-            gc.fillOval(screen.x - rs, screen.y - rs, rs * 2, rs * 2);
+            gc.fillOval(sx - rs, sy - rs, rs * 2, rs * 2);
             gc.setStroke(Color.PURPLE);
-            gc.strokeOval(screen.x - 1.5 * rs, screen.y - 1.5 * rs, rs * 3, rs * 3);
+            gc.strokeOval(sx - 1.5 * rs, sy - 1.5 * rs, rs * 3, rs * 3);
             return;
         }
 
-        // glow using radial gradient
-        RadialGradient gradient = new RadialGradient(0, 0, screen.x, screen.y, radius * 2, false,
-                CycleMethod.NO_CYCLE, new Stop(0, color), new Stop(1, Color.TRANSPARENT));
-        gc.setGlobalBlendMode(BlendMode.ADD);
-        gc.setFill(gradient);
-        gc.fillOval(screen.x - radius * 2, screen.y - radius * 2, radius * 4, radius * 4);
-        gc.setGlobalBlendMode(BlendMode.SRC_OVER);
+        double radius = pixelRadius(type);
+        gc.setFill(colorFor(type));
+        gc.fillOval(sx - radius, sy - radius, radius * 2, radius * 2);
+    }
 
-        gc.setFill(color);
-        gc.fillOval(screen.x - radius, screen.y - radius, radius * 2, radius * 2);
+    /** On-screen radius of a body's disc; sizes are fixed per type, not scaled with zoom. */
+    private static double pixelRadius(BodyType type) {
+        return switch (type) {
+            case STAR -> 14; case PLANET -> 8; case MOON -> 5; case ASTEROID -> 3; case BLACK_HOLE -> 10;
+        };
     }
 
     private Color colorFor(BodyType type) {
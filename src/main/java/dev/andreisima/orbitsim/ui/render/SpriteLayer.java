@@ -0,0 +1,68 @@
+package dev.andreisima.orbitsim.ui.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.Arrays;
+
+/**
+ * Off-screen pixel layer for bodies too small or too numerous to draw as
+ * shapes. Sprites are written straight into an ARGB array and the whole
+ * layer is uploaded and drawn with a single image call, so the cost per
+ * sprite is a few array stores. Only the pixels set in the previous frame
+ * are cleared.
+ */
+final class SpriteLayer {
+    /** Sprites are SIZE x SIZE pixel squares. */
+    private static final int SIZE = 2;
+
+    private WritableImage image;
+    private int width, height;
+    private int[] pixels = new int[0];
+    private int[] dirty = new int[64];
+    private int dirtyCount;
+
+    /** Clears the layer, resizing it if the canvas size changed. */
+    void begin(int width, int height) {
+        if (image == null || width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            image = new WritableImage(Math.max(1, width), Math.max(1, height));
+            pixels = new int[width * height];
+            dirtyCount = 0;
+            return;
+        }
+        for (int k = 0; k < dirtyCount; k++) {
+            pixels[dirty[k]] = 0;
+        }
+        dirtyCount = 0;
+    }
+
+    /** Plots a sprite centred on the given screen position. */
+    void plot(double sx, double sy, int argb) {
+        int x0 = (int) sx - SIZE / 2;
+        int y0 = (int) sy - SIZE / 2;
+        for (int y = Math.max(0, y0); y < Math.min(height, y0 + SIZE); y++) {
+            int row = y * width;
+            for (int x = Math.max(0, x0); x < Math.min(width, x0 + SIZE); x++) {
+                int p = row + x;
+                if (pixels[p] == 0) {
+                    if (dirtyCount == dirty.length) {
+                        dirty = Arrays.copyOf(dirty, 2 * dirty.length);
+                    }
+                    dirty[dirtyCount++] = p;
+                }
+                pixels[p] = argb;
+            }
+        }
+    }
+
+    /** Uploads the layer and draws it over the canvas; does nothing if empty. */
+    void draw(GraphicsContext gc) {
+        if (dirtyCount == 0) return;
+        image.getPixelWriter().setPixels(0, 0, width, height,
+                PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+        gc.drawImage(image, 0, 0);
+    }
+}
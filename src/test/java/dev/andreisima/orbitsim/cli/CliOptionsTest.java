@@ -0,0 +1,65 @@
+package dev.andreisima.orbitsim.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CliOptionsTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "--integrator foo           | Unknown integrator: foo",
+            "--solver foo               | Unknown solver: foo",
+            "--preset nope              | Unknown preset: nope",
+            "--theta -1                 | --theta must be >= 0",
+            "--theta NaN                | --theta must be >= 0",
+            "--dt 0                     | --dt must be > 0",
+            "--steps                    | Missing value for --steps",
+            "--bogus                    | Unknown option: --bogus",
+            "--checkpoint-every 5       | --checkpoint-every needs --checkpoint",
+            "--integrator wh --regularize 100 | --regularize needs the leapfrog or yoshida integrator"})
+    void reportsBadArguments(String args, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> CliOptions.parse(args.strip().split(" +")));
+        assertEquals(message.strip(), e.getMessage());
+    }
+
+    @Test
+    void reportsBadNumbers() {
+        assertThrows(NumberFormatException.class, () -> CliOptions.parse(new String[]{"--n", "ten"}));
+    }
+
+    @Test
+    void acceptsEveryListedName() {
+        for (String preset : new String[]{"sunEarthMoon", "solarSystem", "binaryStars", "belt", "disk", "plummer", "galaxies"}) {
+            assertEquals(preset, CliOptions.parse(new String[]{"--preset", preset}).preset);
+        }
+        for (String integrator : new String[]{"leapfrog", "yoshida", "wh", "wisdom-holman", "hermite", "block"}) {
+            assertEquals(integrator, CliOptions.parse(new String[]{"--integrator", integrator}).integrator);
+        }
+        for (String solver : new String[]{"direct", "parallel", "vector", "barnes-hut", "pm", "particle-mesh"}) {
+            CliOptions options = CliOptions.parse(new String[]{"--solver", solver.toUpperCase(), "--theta", "0"});
+            assertEquals(solver, options.solver);
+            assertNotNull(options.createIntegrator(null));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"100", "8", "0", "-256", "384"})
+    void rejectsGridsThatAreNotPowersOfTwoFromSixteen(String grid) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> CliOptions.parse(new String[]{"--grid", grid, "--solver", "pm"}));
+        assertEquals("--grid must be a power of two >= 16", e.getMessage());
+    }
+
+    @Test
+    void acceptsPowerOfTwoGrids() {
+        assertEquals(16, CliOptions.parse(new String[]{"--grid", "16"}).grid);
+        assertEquals(1024, CliOptions.parse(new String[]{"--grid", "1024", "--solver", "pm"}).grid);
+    }
+}
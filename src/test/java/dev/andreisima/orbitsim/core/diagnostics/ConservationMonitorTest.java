@@ -0,0 +1,149 @@
+package dev.andreisima.orbitsim.core.diagnostics;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.physics.BarnesHutForceSolver;
+import dev.andreisima.orbitsim.core.physics.DirectForceSolver;
+import dev.andreisima.orbitsim.core.physics.ForceSolver;
+import dev.andreisima.orbitsim.core.physics.LeapfrogIntegrator;
+import dev.andreisima.orbitsim.core.physics.ParallelDirectForceSolver;
+import dev.andreisima.orbitsim.core.physics.PhysicsEngine;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConservationMonitorTest {
+    /** Index of Jupiter in the solarSystem preset. */
+    private static final int JUPITER = 5;
+
+    static Stream<Arguments> solvers() {
+        // the particle mesh is left out: its potential is the mesh's, not the pair sum
+        return Stream.of(
+                Arguments.of(new DirectForceSolver(), 1e-12),
+                Arguments.of(new ParallelDirectForceSolver(), 1e-12),
+                Arguments.of(new BarnesHutForceSolver(0), 1e-12),
+                Arguments.of(new BarnesHutForceSolver(0.5), 1e-2));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void solverPotentialMatchesTheDirectSum(ForceSolver solver, double tolerance) {
+        for (SystemState state : new SystemState[] {
+                PresetFactory.plummerSphere(500, 1, 1.0), beltOfTestParticles()}) {
+            solver.computeAccelerations(state);
+            double reference = Conservation.potentialEnergy(state);
+            assertEquals(reference, solver.getPotentialEnergy(), tolerance * Math.abs(reference));
+        }
+    }
+
+    @Test
+    void engineSamplesTheSolverPotential() {
+        SystemState state = PresetFactory.solarSystem();
+        PhysicsEngine engine = new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver()));
+        ConservationMonitor monitor = new ConservationMonitor(1);
+        engine.setConservationMonitor(monitor);
+        engine.step(state, 86400);
+        ConservationSample sample = monitor.latest();
+        assertTrue(sample.isPotentialFromSolver());
+        double reference = Conservation.potentialEnergy(state);
+        assertEquals(reference, sample.getPotentialEnergy(), 1e-12 * Math.abs(reference));
+    }
+
+    @Test
+    void measuresDriftFromTheReference() {
+        SystemState state = PresetFactory.solarSystem();
+        ConservationMonitor monitor = new ConservationMonitor(1);
+        ConservationSample first = monitor.sample(state, 0, Double.NaN);
+        assertTrue(first.isRebaselined());
+        assertEquals(0, first.getEnergyDrift());
+        double e0 = energy(state);
+        double l0 = Conservation.angularMomentum(state);
+
+        speedUpJupiter(state, 1.001);
+        ConservationSample second = monitor.sample(state, 1, Double.NaN);
+        assertFalse(second.isRebaselined());
+        assertEquals((energy(state) - e0) / Math.abs(e0), second.getEnergyDrift(), 1e-15);
+        assertEquals((Conservation.angularMomentum(state) - l0) / Math.abs(l0),
+                second.getAngularMomentumDrift(), 1e-15);
+        assertEquals(Math.abs(second.getEnergyDrift()), monitor.getMaxDrift());
+    }
+
+    @Test
+    void resetsTheReferenceWhenTheBodyCountChanges() {
+        SystemState state = PresetFactory.solarSystem();
+        ConservationMonitor monitor = new ConservationMonitor(1);
+        monitor.sample(state, 0, Double.NaN);
+
+        state.removeBody(state.size() - 1);
+        ConservationSample merged = monitor.sample(state, 1, Double.NaN);
+        assertTrue(merged.isRebaselined());
+        assertEquals(0, merged.getEnergyDrift());
+        double e0 = energy(state);
+
+        speedUpJupiter(state, 1.001);
+        ConservationSample after = monitor.sample(state, 2, Double.NaN);
+        assertFalse(after.isRebaselined());
+        assertEquals((energy(state) - e0) / Math.abs(e0), after.getEnergyDrift(), 1e-15);
+    }
+
+    @Test
+    void flagsAndKeepsGoing() {
+        SystemState state = PresetFactory.solarSystem();
+        ConservationMonitor monitor = new ConservationMonitor(1);
+        monitor.setDriftLimit(1e-6, ConservationMonitor.Action.FLAG);
+        monitor.sample(state, 0, Double.NaN);
+        monitor.sample(state, 1, Double.NaN);
+        assertFalse(monitor.isFlagged());
+
+        speedUpJupiter(state, 1.01);
+        monitor.sample(state, 2, Double.NaN);
+        assertTrue(monitor.isFlagged());
+        // stays flagged once the drift is back under the limit
+        speedUpJupiter(state, 1 / 1.01);
+        monitor.sample(state, 3, Double.NaN);
+        assertTrue(monitor.isFlagged());
+        assertEquals(4, monitor.getSeries().size());
+    }
+
+    @Test
+    void abortsWithTheOffendingSample() {
+        SystemState state = PresetFactory.solarSystem();
+        ConservationMonitor monitor = new ConservationMonitor(1);
+        monitor.setDriftLimit(1e-6, ConservationMonitor.Action.ABORT);
+        monitor.sample(state, 0, Double.NaN);
+
+        speedUpJupiter(state, 1.01);
+        DriftLimitExceededException e = assertThrows(DriftLimitExceededException.class,
+                () -> monitor.sample(state, 7, Double.NaN));
+        assertEquals(7, e.getSample().getStep());
+        assertSame(monitor.latest(), e.getSample());
+        assertTrue(monitor.isFlagged());
+    }
+
+    /** The solar system plus a belt of massive asteroids that only feel the others. */
+    private static SystemState beltOfTestParticles() {
+        SystemState state = PresetFactory.asteroidBelt(300, 1, 0.01);
+        state.setTestParticleType(BodyType.ASTEROID, true);
+        return state;
+    }
+
+    private static void speedUpJupiter(SystemState state, double factor) {
+        assertEquals("Jupiter", state.getName(JUPITER));
+        state.getVx()[JUPITER] *= factor;
+        state.getVy()[JUPITER] *= factor;
+    }
+
+    private static double energy(SystemState state) {
+        return Conservation.kineticEnergy(state) + Conservation.potentialEnergy(state);
+    }
+}
@@ -0,0 +1,59 @@
+package dev.andreisima.orbitsim.core.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AsciiNumbersTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-0", "+1", "42", ".5", "5.", "-2.5", "1e3", "1E+3", "1e-3", "-2.5e-7",
+            "6.67430e-11", "1.9885e30", "6.9634E8", "1e22", "1e23", "1e-22", "1e-23", "123456789012345",
+            "1234567890123456", "12345678901234567890", "0.1", "0.30000000000000004", "9007199254740993",
+            "1e308", "1.8e308", "1e400", "1e-400", "2.2250738585072014E-308", "4.9e-324", "0e999",
+            "00012.5000", "NaN", "Infinity", "-Infinity"})
+    void matchesParseDouble(String s) {
+        assertParses(s);
+    }
+
+    @Test
+    void matchesParseDoubleOnRandomNumbers() {
+        SplittableRandom rnd = new SplittableRandom(17);
+        for (int k = 0; k < 100_000; k++) {
+            double v = Double.longBitsToDouble(rnd.nextLong());
+            if (Double.isNaN(v)) continue;
+            assertParses(Double.toString(v));
+            assertParses(String.format(Locale.ROOT, "%." + rnd.nextInt(1, 18) + "e", v));
+            // decimal digits and an exponent near the range of the fast path
+            long digits = rnd.nextLong(1, 1_000_000_000_000_000L);
+            assertParses(digits + "e" + rnd.nextInt(-40, 41));
+            assertParses(digits / 1000 + "." + digits % 1000 + "E" + rnd.nextInt(-40, 41));
+        }
+    }
+
+    @Test
+    void parsesPartOfAnArray() {
+        byte[] b = "x,-1.5e3,y".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(-1500.0, AsciiNumbers.parseDouble(b, 2, 8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", "+", ".", "e5", "1e", "1e+", "1.2.3", "1,5", "abc", "0x10", "1 2"})
+    void rejectsWhatParseDoubleRejects(String s) {
+        byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+        assertThrows(NumberFormatException.class, () -> AsciiNumbers.parseDouble(b, 0, b.length));
+    }
+
+    private static void assertParses(String s) {
+        byte[] b = s.getBytes(StandardCharsets.US_ASCII);
+        assertEquals(Double.doubleToRawLongBits(Double.parseDouble(s)),
+                Double.doubleToRawLongBits(AsciiNumbers.parseDouble(b, 0, b.length)), s);
+    }
+}
@@ -0,0 +1,159 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryCheckpointTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsEveryField() throws IOException {
+        SystemState state = sample();
+        Path file = dir.resolve("state.ckpt");
+        BinaryCheckpoint.write(state, file);
+        SystemState read = BinaryCheckpoint.read(file);
+
+        int n = state.size();
+        assertEquals(n, read.size());
+        assertEquals(state.getMassiveCount(), read.getMassiveCount());
+        assertEquals(state.getTime(), read.getTime());
+        assertEquals(state.getNextId(), read.getNextId());
+        assertArrayEquals(Arrays.copyOf(state.getMass(), n), Arrays.copyOf(read.getMass(), n));
+        assertArrayEquals(Arrays.copyOf(state.getRadius(), n), Arrays.copyOf(read.getRadius(), n));
+        assertArrayEquals(Arrays.copyOf(state.getX(), n), Arrays.copyOf(read.getX(), n));
+        assertArrayEquals(Arrays.copyOf(state.getY(), n), Arrays.copyOf(read.getY(), n));
+        assertArrayEquals(Arrays.copyOf(state.getVx(), n), Arrays.copyOf(read.getVx(), n));
+        assertArrayEquals(Arrays.copyOf(state.getVy(), n), Arrays.copyOf(read.getVy(), n));
+        for (int i = 0; i < n; i++) {
+            assertEquals(state.getType(i), read.getType(i));
+            assertEquals(state.getName(i), read.getName(i));
+            assertEquals(state.getId(i), read.getId(i));
+            assertEquals(i, read.indexOf(read.getId(i)));
+            assertEquals(state.isTestParticle(i), read.isTestParticle(i));
+        }
+        // a body added after the restore does not reuse a saved id
+        int added = read.addBody(null, BodyType.MOON, 1, 1, 0, 0, 0, 0);
+        assertEquals(state.getNextId(), read.getId(added));
+    }
+
+    @Test
+    void readsVersion1WithFreshIds() throws IOException {
+        // three bodies, the last a test particle, with names
+        double[] mass = {2e30, 6e24, 0};
+        ByteBuffer buf = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(BinaryCheckpoint.MAGIC).putInt(1).putInt(3).putInt(1 | 2).putDouble(42).putLong(2);
+        for (double[] a : new double[][] {mass, {7e8, 6e6, 1}, {0, 1.5e11, 3e11}, {0, 0, 1},
+                {0, 0, 1}, {0, 3e4, 2e4}}) {
+            for (double v : a) buf.putDouble(v);
+        }
+        buf.put((byte) BodyType.STAR.ordinal()).put((byte) BodyType.PLANET.ordinal())
+                .put((byte) BodyType.ASTEROID.ordinal());
+        putName(buf, "Sun");
+        putName(buf, null);
+        putName(buf, "Cérès");
+        Path file = write(buf);
+
+        SystemState state = BinaryCheckpoint.read(file);
+        assertEquals(3, state.size());
+        assertEquals(2, state.getMassiveCount());
+        assertEquals(42, state.getTime());
+        assertArrayEquals(mass, Arrays.copyOf(state.getMass(), 3));
+        assertEquals(3e4, state.getVy()[1]);
+        assertEquals(BodyType.ASTEROID, state.getType(2));
+        assertNull(state.getName(1));
+        assertEquals("Cérès", state.getName(2));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, state.indexOf(state.getId(i)));
+        }
+        assertEquals(3, state.getNextId());
+    }
+
+    @Test
+    void rejectsEveryTruncation() throws IOException {
+        Path file = dir.resolve("full.ckpt");
+        BinaryCheckpoint.write(sample(), file);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length = 0; length < bytes.length; length++) {
+            Path cut = dir.resolve("cut.ckpt");
+            Files.write(cut, Arrays.copyOf(bytes, length));
+            assertThrows(IOException.class, () -> BinaryCheckpoint.read(cut), "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsBadMagicVersionAndType() throws IOException {
+        Path file = dir.resolve("good.ckpt");
+        SystemState state = sample();
+        BinaryCheckpoint.write(state, file);
+        byte[] good = Files.readAllBytes(file);
+
+        byte[] magic = good.clone();
+        magic[0] ^= 1;
+        assertThrows(IOException.class, () -> BinaryCheckpoint.read(write(magic)));
+
+        byte[] version = good.clone();
+        version[4] = 99;
+        assertThrows(IOException.class, () -> BinaryCheckpoint.read(write(version)));
+
+        byte[] type = good.clone();
+        type[32 + 48 * state.size()] = (byte) BodyType.values().length;
+        assertThrows(IOException.class, () -> BinaryCheckpoint.read(write(type)));
+
+        byte[] duplicateId = good.clone();
+        int ids = 32 + 49 * state.size() + 4;
+        System.arraycopy(duplicateId, ids, duplicateId, ids + 4, 4);
+        assertThrows(IOException.class, () -> BinaryCheckpoint.read(write(duplicateId)));
+    }
+
+    /**
+     * Massive bodies and test particles with null, empty and non-ASCII names,
+     * and ids with a gap left by a removed body.
+     */
+    private static SystemState sample() {
+        SystemState state = new SystemState();
+        String[] names = {"Sun", null, "Jupiter", "", "Ganymède", "木星", null};
+        BodyType[] types = BodyType.values();
+        for (int i = 0; i < names.length; i++) {
+            state.addBody(names[i], types[i % types.length], i % 3 == 2 ? 0 : 1e20 * (i + 1), 1e3 * (i + 1),
+                    1e9 * i, -2e9 * i, 1e3 * i, -0.5 * i, i % 3 == 2);
+        }
+        state.removeBody(1);
+        state.setTime(1.25e7);
+        return state;
+    }
+
+    private static void putName(ByteBuffer buf, String name) {
+        if (name == null) {
+            buf.putInt(-1);
+            return;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buf.putInt(bytes.length).put(bytes);
+    }
+
+    private Path write(ByteBuffer buf) throws IOException {
+        return write(Arrays.copyOf(buf.array(), buf.position()));
+    }
+
+    private Path write(byte[] bytes) throws IOException {
+        Path file = Files.createTempFile(dir, "case", ".ckpt");
+        Files.write(file, bytes);
+        return file;
+    }
+}
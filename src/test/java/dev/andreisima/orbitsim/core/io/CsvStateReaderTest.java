@@ -0,0 +1,121 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvStateReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsCartesianAndKeplerRows() throws IOException {
+        SystemState state = read("""
+                # a comment, then a header and a blank line
+                name,type,mass,radius,x,y,vx,vy
+
+                Sun,STAR,1.9885e30,6.9634e8,1e9,-2e9,10,-20\r
+                Earth, planet ,5.972e24,6.371e6,Sun,1.496e11,0.0167,102.9,100.5\r
+                Moon,MOON,7.342e22,1.737e6,Earth,3.844e8,0.0549,318.15,135.27
+                Mars,PLANET,6.417e23,3.39e6,Sun,2.279e11,0.0934,286.5,19.4
+                """);
+        assertEquals(4, state.size());
+        assertEquals("Sun", state.getName(0));
+        assertEquals(BodyType.PLANET, state.getType(1));
+        assertEquals(1e9, state.getX()[0]);
+        assertEquals(-20, state.getVy()[0]);
+        assertOrbit(state, 1, 0, 1.496e11, 0.0167, 102.9, 100.5);
+        assertOrbit(state, 2, 1, 3.844e8, 0.0549, 318.15, 135.27);
+        assertOrbit(state, 3, 0, 2.279e11, 0.0934, 286.5, 19.4);
+    }
+
+    @Test
+    void readsQuotedFields() throws IOException {
+        SystemState state = read("""
+                "Alpha Centauri, A",STAR,2.2e30,8.5e8,0,0,0,0
+                "The ""Planet""\" , PLANET ,"6e24",6e6, "Alpha Centauri, A" ,1e11,0,0,0
+                "",ASTEROID,1e15,1e3,"The ""Planet""\",1e8,0.1,0,0
+                """);
+        assertEquals("Alpha Centauri, A", state.getName(0));
+        assertEquals("The \"Planet\"", state.getName(1));
+        assertEquals(6e24, state.getMass()[1]);
+        assertEquals("", state.getName(2));
+        assertOrbit(state, 1, 0, 1e11, 0, 0, 0);
+        assertOrbit(state, 2, 1, 1e8, 0.1, 0, 0);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Moon,MOON,1,1,0,0,0                       | expected 8 or 9 columns, found 7",
+            "Moon,MOON,1,1,0,0,0,0,0,0                 | expected 8 or 9 columns, found 10",
+            "Moon,COMET,1,1,0,0,0,0                    | unknown body type COMET",
+            "Moon,MOON,1,1,0,zero,0,0                  | zero",
+            "Moon,MOON,1,1,Pluto,1e8,0,0,0             | primary Pluto must be listed before",
+            "Moon,MOON,1,1,Sun,1e8,1.5,0,0             | e=1.5",
+            "\"Moon,MOON,1,1,0,0,0,0                   | unterminated quoted field",
+            "\"Moon\"x,MOON,1,1,0,0,0,0                | unexpected text after quoted field 1"})
+    void reportsTheLineOfABadRow(String row, String message) throws IOException {
+        Path file = write("name,type,mass,radius,x,y,vx,vy\nSun,STAR,2e30,7e8,0,0,0,0\n" + row.strip() + "\n");
+        IOException e = assertThrows(IOException.class, () -> CsvStateReader.read(file));
+        assertTrue(e.getMessage().startsWith(file + ":3: "), e.getMessage());
+        assertTrue(e.getMessage().contains(message.strip()), e.getMessage());
+    }
+
+    /** Many primaries, each named by rows far apart, across several read blocks. */
+    @Test
+    void findsPrimariesInALargeCatalog() throws IOException {
+        int planets = 3000, moons = 20;
+        StringBuilder csv = new StringBuilder("Sun,STAR,2e30,7e8,0,0,0,0\n");
+        for (int p = 0; p < planets; p++) {
+            csv.append("P").append(p).append(",PLANET,6e24,6e6,Sun,").append(1e10 * (p + 1)).append(",0,0,")
+                    .append(p % 360).append('\n');
+        }
+        for (int k = 0; k < moons; k++) {
+            for (int p = 0; p < planets; p++) {
+                csv.append("M").append(p).append('_').append(k).append(",MOON,7e22,1.7e6,P").append(p)
+                        .append(",").append(1e8 * (k + 1)).append(",0.01,0,").append(k).append('\n');
+            }
+        }
+        SystemState state = read(csv.toString());
+        assertEquals(1 + planets + planets * moons, state.size());
+        int last = state.size() - 1;
+        assertEquals("M" + (planets - 1) + "_" + (moons - 1), state.getName(last));
+        assertOrbit(state, last, planets, 1e8 * moons, 0.01, 0, moons - 1);
+    }
+
+    private static void assertOrbit(SystemState state, int body, int primary, double a, double e,
+                                    double omega, double meanAnomaly) {
+        double[] orbit = new double[4];
+        double mu = Constants.G * (state.getMass()[primary] + state.getMass()[body]);
+        Kepler.toCartesian(mu, a, e, Math.toRadians(omega), Math.toRadians(meanAnomaly), orbit);
+        double tolerance = 1e-12 * a;
+        assertEquals(state.getX()[primary] + orbit[0], state.getX()[body], tolerance);
+        assertEquals(state.getY()[primary] + orbit[1], state.getY()[body], tolerance);
+        assertEquals(state.getVx()[primary] + orbit[2], state.getVx()[body], 1e-9);
+        assertEquals(state.getVy()[primary] + orbit[3], state.getVy()[body], 1e-9);
+    }
+
+    private SystemState read(String csv) throws IOException {
+        return CsvStateReader.read(write(csv));
+    }
+
+    private Path write(String csv) throws IOException {
+        Path file = Files.createTempFile(dir, "bodies", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStateReaderTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsAnArrayOfBodies() throws IOException {
+        SystemState state = read("""
+                [
+                  {"name": "Sun", "type": "STAR", "mass": 1.9885E+30, "radius": 6.9634e8,
+                   "x": -1e9, "y": 2e9, "vx": 0.5, "vy": -7},
+                  {"type": "planet", "name": "Earth", "mass": 5.972e24, "radius": 6.371e6,
+                   "primary": "Sun", "a": 1.496e11, "e": 0.0167, "omega": 102.9, "M": 100.5},
+                  {"name": null, "type": "ASTEROID", "mass": 1e15}
+                ]
+                """);
+        assertEquals(3, state.size());
+        assertEquals(1.9885e30, state.getMass()[0]);
+        assertEquals(-7, state.getVy()[0]);
+        assertEquals(BodyType.PLANET, state.getType(1));
+        assertNull(state.getName(2));
+        assertEquals(0, state.getX()[2]);
+        assertEquals(0, state.getRadius()[2]);
+
+        double[] orbit = new double[4];
+        Kepler.toCartesian(Constants.G * (1.9885e30 + 5.972e24), 1.496e11, 0.0167,
+                Math.toRadians(102.9), Math.toRadians(100.5), orbit);
+        assertEquals(-1e9 + orbit[0], state.getX()[1], 1e-1);
+        assertEquals(2e9 + orbit[1], state.getY()[1], 1e-1);
+        assertEquals(0.5 + orbit[2], state.getVx()[1], 1e-9);
+        assertEquals(-7 + orbit[3], state.getVy()[1], 1e-9);
+    }
+
+    @Test
+    void readsABodiesMemberAndSkipsUnknownOnes() throws IOException {
+        SystemState state = read("""
+                {"version": 3, "meta": {"tags": ["a", {"b": [true, false, null]}], "note": "x\\"y"},
+                 "bodies": [
+                   {"name": "Caf\\u00e9 \\"Star\\" \\\\ \\/", "type": "STAR", "mass": 1e30, "extra": [1, 2]},
+                   {"name": "Kuiper", "type": "ASTEROID", "mass": 1e18, "x": 6e12}
+                 ],
+                 "after": 1}
+                """);
+        assertEquals(2, state.size());
+        assertEquals("Café \"Star\" \\ /", state.getName(0));
+        assertEquals(6e12, state.getX()[1]);
+    }
+
+    @Test
+    void readsAnEmptyArray() throws IOException {
+        assertEquals(0, read(" [ ] ").size());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "[{\"name\": \"a\", \"mass\": 1}]                    | has no type",
+            "[{\"type\": \"COMET\"}]                             | unknown body type COMET",
+            "[{\"type\": \"STAR\", \"mass\": 1.2.3}]             | bad number 1.2.3",
+            "[{\"type\": \"STAR\", \"primary\": \"Sun\", \"a\": 1}] | primary Sun must be listed before",
+            "[{\"type\": \"STAR\"}] x                            | unexpected content after the document",
+            "[{\"type\": \"STAR\"                                | expected ',' or '}'",
+            "[{\"name\": \"a}]                                   | unterminated string",
+            "{\"stars\": []}                                     | no \"bodies\" array",
+            "{\"bodies\": [], \"bodies\": []}                    | duplicate \"bodies\" member",
+            "{\"bodies\": [{\"type\": \"STAR\"}], \"x\": 1, \"bodies\": [{\"type\": \"STAR\"}]} | duplicate \"bodies\" member",
+            "42                                                  | expected '[' or '{'"})
+    void reportsBadInput(String json, String message) throws IOException {
+        Path file = write(json.strip());
+        IOException e = assertThrows(IOException.class, () -> JsonStateReader.read(file));
+        assertTrue(e.getMessage().startsWith(file + ": "), e.getMessage());
+        assertTrue(e.getMessage().contains(message.strip()), e.getMessage());
+    }
+
+    private SystemState read(String json) throws IOException {
+        return JsonStateReader.read(write(json));
+    }
+
+    private Path write(String json) throws IOException {
+        Path file = Files.createTempFile(dir, "bodies", ".json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        return file;
+    }
+}
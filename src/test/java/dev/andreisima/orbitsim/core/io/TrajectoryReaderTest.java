@@ -0,0 +1,174 @@
+package dev.andreisima.orbitsim.core.io;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrajectoryReaderTest {
+    private static final int FRAMES = 40;
+    private static final int KEYFRAME_INTERVAL = 8;
+    /** Frames read out of order: around keyframes, backwards, and repeated. */
+    private static final int[] SEEKS = {39, 0, 17, 16, 8, 7, 9, 23, 24, 24, 31, 32, 33, 5, 12, 11, 38};
+
+    @TempDir
+    Path dir;
+
+    /** Values of one recorded frame, copied when it was written. */
+    private record Expected(long step, double time, double[] x, double[] y, double[] vx, double[] vy,
+                            double[] mass, BodyType[] types, int[] ids) {
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void seeksAcrossKeyframes(boolean compressed) throws IOException {
+        Path file = dir.resolve("run.orbt");
+        List<Expected> expected = record(file, compressed, false);
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(FRAMES, reader.frameCount());
+            for (int n : SEEKS) {
+                assertFrame(expected.get(n), reader.read(n));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void followsBodiesWhenTheCountChanges(boolean compressed) throws IOException {
+        Path file = dir.resolve("merges.orbt");
+        List<Expected> expected = record(file, compressed, true);
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            for (int n : SEEKS) {
+                assertFrame(expected.get(n), reader.read(n));
+            }
+            for (int n = 0; n < FRAMES; n++) {
+                assertEquals(expected.get(n).step(), reader.stepOf(n));
+                assertFrame(expected.get(n), reader.read(n));
+            }
+            // body 5 keeps its id while removals move it to other indices
+            int first = reader.read(0).indexOf(5);
+            double mass = reader.read(0).getMass(first);
+            assertEquals(mass, reader.read(FRAMES - 1).getMass(reader.read(FRAMES - 1).indexOf(5)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void scansTheDataFileWithoutAnIndex(boolean compressed) throws IOException {
+        Path file = dir.resolve("noindex.orbt");
+        List<Expected> expected = record(file, compressed, true);
+        Files.delete(TrajectoryFormat.indexFile(file));
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(FRAMES, reader.frameCount());
+            for (int n : SEEKS) {
+                assertFrame(expected.get(n), reader.read(n));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false, true", "true, true", "false, false", "true, false"})
+    void dropsATornLastFrame(boolean compressed, boolean withIndex) throws IOException {
+        Path file = dir.resolve("torn.orbt");
+        List<Expected> expected = record(file, compressed, false);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 3);
+        }
+        if (!withIndex) {
+            Files.delete(TrajectoryFormat.indexFile(file));
+        }
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(FRAMES - 1, reader.frameCount());
+            assertFrame(expected.get(FRAMES - 2), reader.read(FRAMES - 2));
+        }
+    }
+
+    /**
+     * Writes {@link #FRAMES} steps of a small system and returns what each
+     * frame should read back as. With {@code merges}, bodies are removed and
+     * added along the way.
+     */
+    private static List<Expected> record(Path file, boolean compressed, boolean merges) throws IOException {
+        SystemState state = new SystemState();
+        for (int i = 0; i < 12; i++) {
+            state.addBody(null, BodyType.values()[i % BodyType.values().length], 1e20 * (i + 1), 1,
+                    1e9 * i, -1e9 * i, 10.0 * i, -3.0 * i, i >= 9);
+        }
+        List<Expected> expected = new ArrayList<>();
+        try (TrajectoryWriter writer = new TrajectoryWriter(file, 1, compressed, 2, KEYFRAME_INTERVAL)) {
+            for (long step = 0; step < FRAMES; step++) {
+                if (merges && (step == 10 || step == 11 || step == 26)) {
+                    state.removeBody(step == 26 ? state.size() - 1 : 0);
+                }
+                if (merges && step == 30) {
+                    state.addBody(null, BodyType.MOON, 7e19, 1, 3e9, 3e9, 1, 1);
+                }
+                int n = state.size();
+                double[] x = state.getX(), y = state.getY(), vx = state.getVx(), vy = state.getVy();
+                for (int i = 0; i < n; i++) {
+                    x[i] += vx[i] * 3600;
+                    y[i] += vy[i] * 3600;
+                    vx[i] *= 1.001;
+                    vy[i] -= 1e-3 * step;
+                }
+                state.setTime(3600.0 * step);
+                writer.accept(state, step);
+                expected.add(expect(state, step));
+            }
+        }
+        return expected;
+    }
+
+    private static Expected expect(SystemState state, long step) {
+        int n = state.size();
+        BodyType[] types = new BodyType[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            types[i] = state.getType(i);
+            ids[i] = state.getId(i);
+        }
+        return new Expected(step, state.getTime(), Arrays.copyOf(state.getX(), n), Arrays.copyOf(state.getY(), n),
+                Arrays.copyOf(state.getVx(), n), Arrays.copyOf(state.getVy(), n),
+                Arrays.copyOf(state.getMass(), n), types, ids);
+    }
+
+    private static void assertFrame(Expected expected, TrajectoryFrame frame) {
+        int n = expected.ids().length;
+        assertEquals(n, frame.size());
+        assertEquals(expected.step(), frame.getStep());
+        assertEquals(expected.time(), frame.getTime());
+        double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n], mass = new double[n];
+        BodyType[] types = new BodyType[n];
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = frame.getX(i);
+            y[i] = frame.getY(i);
+            vx[i] = frame.getVx(i);
+            vy[i] = frame.getVy(i);
+            mass[i] = frame.getMass(i);
+            types[i] = frame.getType(i);
+            ids[i] = frame.getId(i);
+        }
+        assertArrayEquals(expected.x(), x);
+        assertArrayEquals(expected.y(), y);
+        assertArrayEquals(expected.vx(), vx);
+        assertArrayEquals(expected.vy(), vy);
+        assertArrayEquals(expected.mass(), mass);
+        assertArrayEquals(expected.types(), types);
+        assertArrayEquals(expected.ids(), ids);
+    }
+}
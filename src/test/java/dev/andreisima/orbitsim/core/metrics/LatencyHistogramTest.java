@@ -0,0 +1,68 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyHistogramTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0",
+            "1, 0",
+            "2, 1",
+            "3, 1",
+            "4, 2",
+            "1023, 9",
+            "1024, 10",
+            "1025, 10",
+            "9223372036854775807, 62"})
+    void bucketsByPowerOfTwo(long nanos, int bucket) {
+        assertEquals(bucket, LatencyHistogram.bucketOf(nanos));
+    }
+
+    @Test
+    void recordsCountSumAndMax() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(5);
+        h.record(1500);
+        h.record(-7); // clock going backwards counts as 0
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        h.copyTo(counts);
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[2]);
+        assertEquals(1, counts[10]);
+        assertEquals(3, h.count());
+        assertEquals(1505, h.sum());
+        assertEquals(1500, h.takeMax());
+        assertEquals(0, h.takeMax());
+    }
+
+    @Test
+    void interpolatesInsideABucket() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        counts[10] = 4; // four values in [1024, 2048)
+        assertEquals(1024, LatencyHistogram.quantile(counts, 4, 0));
+        assertEquals(1280, LatencyHistogram.quantile(counts, 4, 0.25));
+        assertEquals(1536, LatencyHistogram.quantile(counts, 4, 0.5));
+        assertEquals(2048, LatencyHistogram.quantile(counts, 4, 1));
+    }
+
+    @Test
+    void walksAcrossBuckets() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        counts[0] = 2; // [0, 2)
+        counts[3] = 2; // [8, 16)
+        assertEquals(1, LatencyHistogram.quantile(counts, 4, 0.25));
+        assertEquals(2, LatencyHistogram.quantile(counts, 4, 0.5));
+        assertEquals(12, LatencyHistogram.quantile(counts, 4, 0.75));
+        assertEquals(16, LatencyHistogram.quantile(counts, 4, 1));
+    }
+
+    @Test
+    void emptyHistogramHasZeroQuantiles() {
+        assertEquals(0, LatencyHistogram.quantile(new long[LatencyHistogram.BUCKETS], 0, 0.99));
+    }
+}
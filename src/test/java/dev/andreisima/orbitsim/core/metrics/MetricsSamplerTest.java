@@ -0,0 +1,100 @@
+package dev.andreisima.orbitsim.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsSamplerTest {
+
+    @Test
+    void reportsEachWindowOnItsOwn() {
+        Metrics metrics = new Metrics();
+        MetricsSampler sampler = new MetricsSampler(metrics);
+        List<MetricsReport> reports = new ArrayList<>();
+        sampler.addListener(reports::add);
+        assertNull(sampler.latest());
+
+        for (long nanos : new long[] {1000, 2000, 3000}) {
+            metrics.record(Phase.FORCE, nanos);
+        }
+        for (int k = 0; k < 5; k++) {
+            metrics.countStep(40);
+        }
+        metrics.countMerge();
+        metrics.countMerge();
+        MetricsReport first = sampler.sample();
+        assertSame(first, sampler.latest());
+        assertEquals(List.of(first), reports);
+        assertEquals(3, first.getCount(Phase.FORCE));
+        assertEquals(2000, first.getMeanNanos(Phase.FORCE));
+        assertEquals(3000, first.getMaxNanos(Phase.FORCE));
+        assertTrue(first.getP99Nanos(Phase.FORCE) <= 3000);
+        assertEquals(5, first.getSteps());
+        assertEquals(40, first.getBodies());
+        assertRate(5, first, first.getStepsPerSecond());
+        assertRate(2, first, first.getMergesPerSecond());
+        assertRate(0, first, first.getAccretionsPerSecond());
+
+        // only what happened since the first sample
+        metrics.record(Phase.FORCE, 100);
+        metrics.countStep(39);
+        metrics.countAccretion();
+        MetricsReport second = sampler.sample();
+        assertEquals(1, second.getCount(Phase.FORCE));
+        assertEquals(100, second.getMeanNanos(Phase.FORCE));
+        assertEquals(100, second.getMaxNanos(Phase.FORCE));
+        // halfway through its bucket, [64, 128)
+        assertEquals(96, second.getP50Nanos(Phase.FORCE));
+        assertEquals(6, second.getSteps());
+        assertRate(1, second, second.getStepsPerSecond());
+        assertRate(0, second, second.getMergesPerSecond());
+        assertRate(1, second, second.getAccretionsPerSecond());
+
+        MetricsReport idle = sampler.sample();
+        assertEquals(0, idle.getCount(Phase.FORCE));
+        assertEquals(0, idle.getMeanNanos(Phase.FORCE));
+        assertEquals(0, idle.getP99Nanos(Phase.FORCE));
+        assertEquals(0, idle.getStepsPerSecond());
+        assertEquals(3, reports.size());
+    }
+
+    @Test
+    void splitsForceTimeOutOfTheStep() {
+        Metrics metrics = new Metrics();
+        MetricsSampler sampler = new MetricsSampler(metrics);
+        metrics.addForceTime(300);
+        metrics.addForceTime(200);
+        metrics.endIntegration(800);
+        metrics.endIntegration(50); // no force time in this one
+        MetricsReport report = sampler.sample();
+        assertEquals(1, report.getCount(Phase.FORCE));
+        assertEquals(500, report.getMeanNanos(Phase.FORCE));
+        assertEquals(2, report.getCount(Phase.INTEGRATION));
+        assertEquals(175, report.getMeanNanos(Phase.INTEGRATION));
+    }
+
+    @Test
+    void servesTheLatestWindowInMicroseconds() {
+        Metrics metrics = new Metrics();
+        MetricsSampler sampler = new MetricsSampler(metrics);
+        assertEquals(0.0, sampler.getPhaseMeanMicros().get("force"));
+        metrics.record(Phase.COLLISION, 4000);
+        sampler.sample();
+        Map<String, Double> mean = sampler.getPhaseMeanMicros();
+        assertEquals(Phase.values().length, mean.size());
+        assertEquals(4.0, mean.get("collision"));
+        assertEquals(4.0, sampler.getPhaseMaxMicros().get("collision"));
+        assertEquals(0.0, mean.get("render"));
+    }
+
+    private static void assertRate(long events, MetricsReport report, double rate) {
+        assertEquals(events / report.getSeconds(), rate, 1e-12 * rate);
+    }
+}
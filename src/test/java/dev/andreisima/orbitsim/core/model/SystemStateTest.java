@@ -0,0 +1,228 @@
+package dev.andreisima.orbitsim.core.model;
+
+import dev.andreisima.orbitsim.core.util.Vector2D;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SystemStateTest {
+
+    /**
+     * Random adds, swap-removes, compactions and group changes. Every body
+     * carries its id in x, so a body that lost its data would show up too.
+     */
+    @Test
+    void idsFollowBodiesThroughEveryChange() {
+        SystemState state = new SystemState();
+        // id -> whether that body is a test particle
+        Map<Integer, Boolean> alive = new HashMap<>();
+        SplittableRandom rnd = new SplittableRandom(11);
+        int lastId = -1;
+        for (int op = 0; op < 5_000; op++) {
+            int n = state.size();
+            int choice = n == 0 ? 0 : rnd.nextInt(6);
+            switch (choice) {
+                case 0, 1 -> {
+                    boolean test = rnd.nextBoolean();
+                    int id = state.getNextId();
+                    int i = state.addBody(null, BodyType.PLANET, 1, 1, id, 0, 0, 0, test);
+                    assertEquals(id, state.getId(i));
+                    alive.put(id, test);
+                }
+                case 2 -> {
+                    int count = rnd.nextInt(1, 5);
+                    int first = state.addBodies(count, BodyType.ASTEROID);
+                    for (int i = first; i < first + count; i++) {
+                        state.getX()[i] = state.getId(i);
+                        alive.put(state.getId(i), state.isTestParticle(i));
+                    }
+                }
+                case 3 -> {
+                    int i = rnd.nextInt(n);
+                    alive.remove(state.getId(i));
+                    state.removeBody(i);
+                }
+                case 4 -> {
+                    boolean[] removed = new boolean[n];
+                    for (int i = 0; i < n; i++) {
+                        removed[i] = rnd.nextInt(8) == 0;
+                        if (removed[i]) alive.remove(state.getId(i));
+                    }
+                    state.removeBodies(removed);
+                }
+                default -> {
+                    int i = rnd.nextInt(n);
+                    boolean test = rnd.nextBoolean();
+                    alive.put(state.getId(i), test);
+                    state.setTestParticle(i, test);
+                }
+            }
+            assertTrue(state.getNextId() > lastId, "ids are never reused");
+            lastId = state.getNextId() - 1;
+            checkIds(state, alive);
+        }
+    }
+
+    @Test
+    void removedIdsAreNotFound() {
+        SystemState state = new SystemState();
+        for (int i = 0; i < 100; i++) {
+            state.addBody(null, BodyType.PLANET, 1, 1, i, 0, 0, 0, false);
+        }
+        state.removeBody(0); // id 99 moves into slot 0
+        boolean[] removed = new boolean[state.size()];
+        removed[0] = removed[1] = true;
+        state.removeBodies(removed);
+        assertEquals(-1, state.indexOf(0));
+        assertEquals(-1, state.indexOf(1));
+        assertEquals(-1, state.indexOf(99));
+        assertEquals(-1, state.indexOf(100));
+        assertEquals(-1, state.indexOf(-1));
+        assertEquals(97, state.size());
+    }
+
+    @Test
+    void restoredIdsMustBeDistinctAndInRange() {
+        SystemState state = new SystemState();
+        state.addBodies(3, BodyType.PLANET);
+        state.restoreIds(new int[]{40, 7, 12}, 41);
+        assertEquals(1, state.indexOf(7));
+        assertEquals(-1, state.indexOf(8));
+        assertEquals(3, state.addBody(null, BodyType.PLANET, 1, 1, 0, 0, 0, 0, false));
+        assertEquals(41, state.getId(3));
+
+        SystemState other = new SystemState();
+        other.addBodies(2, BodyType.PLANET);
+        assertThrows(IllegalArgumentException.class, () -> other.restoreIds(new int[]{3, 3}, 4));
+        assertThrows(IllegalArgumentException.class, () -> other.restoreIds(new int[]{0, 4}, 4));
+        assertThrows(IllegalArgumentException.class, () -> other.restoreIds(new int[]{0}, 4));
+    }
+
+    @Test
+    void testParticleTypeMovesBodiesAcrossTheBoundary() {
+        SystemState state = new SystemState();
+        Body a = add(state, "a", BodyType.PLANET, 1);
+        Body b = add(state, "b", BodyType.ASTEROID, 2);
+        Body c = add(state, "c", BodyType.PLANET, 3);
+        Body d = add(state, "d", BodyType.ASTEROID, 4);
+        int idB = b.getId();
+        long before = state.getModCount();
+
+        state.setTestParticleType(BodyType.ASTEROID, true);
+        assertTrue(state.getModCount() > before);
+        assertEquals(2, state.getMassiveCount());
+        assertOrder(state, "a", "c", "b", "d");
+        assertEquals(2, b.getIndex());
+        assertTrue(b.isTestParticle() && d.isTestParticle());
+        assertFalse(a.isTestParticle() || c.isTestParticle());
+        assertEquals(2, state.indexOf(idB));
+        assertEquals(2, state.getX()[2]);
+
+        // later bodies of the type join the test particles; massive ones go before them
+        state.addBody("e", BodyType.ASTEROID, 5, 1, 5, 0, 0, 0);
+        state.addBody("f", BodyType.PLANET, 6, 1, 6, 0, 0, 0);
+        assertEquals(3, state.getMassiveCount());
+        assertOrder(state, "a", "c", "f", "b", "d", "e");
+        assertEquals(3, b.getIndex());
+
+        state.setTestParticleType(BodyType.ASTEROID, false);
+        assertFalse(state.isTestParticleType(BodyType.ASTEROID));
+        assertEquals(6, state.getMassiveCount());
+        assertOrder(state, "a", "c", "f", "b", "d", "e");
+        assertFalse(b.isTestParticle());
+    }
+
+    @Test
+    void bodyHandlesMoveAcrossTheBoundary() {
+        SystemState state = new SystemState();
+        Body a = add(state, "a", BodyType.PLANET, 1);
+        Body b = add(state, "b", BodyType.PLANET, 2);
+        Body c = add(state, "c", BodyType.PLANET, 3);
+        Body d = add(state, "d", BodyType.PLANET, 4);
+
+        a.setTestParticle(true);
+        assertEquals(3, state.getMassiveCount());
+        assertOrder(state, "b", "c", "d", "a");
+        assertTrue(a.isTestParticle());
+        assertEquals(1, a.getPosition().x);
+
+        // the next one becomes the first test particle
+        c.setTestParticle(true);
+        assertOrder(state, "b", "d", "c", "a");
+        assertEquals(2, c.getIndex());
+
+        a.setTestParticle(false);
+        assertEquals(3, state.getMassiveCount());
+        assertOrder(state, "b", "d", "a", "c");
+        assertEquals(2, a.getIndex());
+        assertEquals(1, state.getX()[a.getIndex()]);
+        assertEquals(1, b.getIndex() + d.getIndex());
+
+        // unchanged group: nothing moves
+        long before = state.getModCount();
+        a.setTestParticle(false);
+        assertEquals(before, state.getModCount());
+    }
+
+    @Test
+    void detachedTestParticlesJoinTheirGroup() {
+        SystemState state = new SystemState();
+        Body probe = new Body("probe", BodyType.ASTEROID, 1, 1, new Vector2D(9, 0), new Vector2D(0, 0));
+        probe.setTestParticle(true);
+        add(state, "a", BodyType.PLANET, 1);
+        state.addBody(probe);
+        add(state, "b", BodyType.PLANET, 2);
+        assertOrder(state, "a", "b", "probe");
+        assertTrue(probe.isTestParticle());
+        assertEquals(2, probe.getIndex());
+        assertEquals(9, probe.getPosition().x);
+    }
+
+    @Test
+    void massiveBodyAddedAfterTestParticlesGoesFirst() {
+        SystemState state = new SystemState();
+        int p = state.addBody("p", BodyType.ASTEROID, 0, 1, 1, 0, 0, 0, true);
+        int q = state.addBody("q", BodyType.ASTEROID, 0, 1, 2, 0, 0, 0, true);
+        int idP = state.getId(p), idQ = state.getId(q);
+        int m = state.addBody("m", BodyType.STAR, 1e30, 1, 3, 0, 0, 0, false);
+        assertEquals(0, m);
+        assertEquals(1, state.getMassiveCount());
+        assertOrder(state, "m", "p", "q");
+        assertEquals(1, state.indexOf(idP));
+        assertEquals(2, state.indexOf(idQ));
+        assertEquals(2, state.getX()[2]);
+    }
+
+    private static Body add(SystemState state, String name, BodyType type, double x) {
+        Body body = new Body(name, type, 1, 1, new Vector2D(x, 0), new Vector2D(0, 0));
+        state.addBody(body);
+        return body;
+    }
+
+    private static void assertOrder(SystemState state, String... names) {
+        assertEquals(names.length, state.size());
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], state.getName(i), "index " + i);
+        }
+    }
+
+    private static void checkIds(SystemState state, Map<Integer, Boolean> alive) {
+        assertEquals(alive.size(), state.size());
+        for (int i = 0; i < state.size(); i++) {
+            int id = state.getId(i);
+            assertEquals(i, state.indexOf(id), "index of id " + id);
+            assertEquals(id, state.getX()[i], "data of id " + id);
+            assertEquals(alive.get(id), state.isTestParticle(i), "group of id " + id);
+        }
+        for (int id = 0; id < state.getNextId(); id++) {
+            if (!alive.containsKey(id)) assertEquals(-1, state.indexOf(id), "removed id " + id);
+        }
+    }
+}
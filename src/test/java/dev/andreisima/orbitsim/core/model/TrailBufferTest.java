@@ -0,0 +1,91 @@
+package dev.andreisima.orbitsim.core.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrailBufferTest {
+
+    @Test
+    void keepsTheNewestPointsOldestFirst() {
+        TrailBuffer trail = filled(4, 7);
+        assertEquals(4, trail.size());
+        assertPoints(trail, 4, 5, 6, 7);
+        assertEquals(7, trail.lastX());
+        assertEquals(-7, trail.lastY());
+    }
+
+    @Test
+    void shrinksWhileFull() {
+        // wrapped, with the oldest point in the middle of the arrays
+        TrailBuffer trail = filled(4, 7);
+        trail.setCapacity(2);
+        assertEquals(2, trail.capacity());
+        assertPoints(trail, 6, 7);
+        trail.add(8, -8);
+        assertPoints(trail, 7, 8);
+    }
+
+    @Test
+    void growsWhileFull() {
+        TrailBuffer trail = filled(4, 7);
+        trail.setCapacity(6);
+        assertPoints(trail, 4, 5, 6, 7);
+        for (int k = 8; k <= 10; k++) {
+            trail.add(k, -k);
+        }
+        assertPoints(trail, 5, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    void shrinksWhilePartlyFilled() {
+        TrailBuffer trail = filled(4, 2);
+        trail.setCapacity(3);
+        assertPoints(trail, 1, 2);
+        trail.add(3, -3);
+        trail.add(4, -4);
+        assertPoints(trail, 2, 3, 4);
+    }
+
+    @Test
+    void copiesAcrossTheWrap() {
+        TrailBuffer trail = filled(4, 6);
+        double[] x = new double[6];
+        double[] y = new double[6];
+        trail.copyTo(x, y, 1);
+        assertArrayEquals(new double[] {0, 3, 4, 5, 6, 0}, x);
+        assertArrayEquals(new double[] {0, -3, -4, -5, -6, 0}, y);
+    }
+
+    @Test
+    void copiesNothingWhenEmpty() {
+        double[] x = {9};
+        new TrailBuffer(4).copyTo(x, new double[1], 0);
+        assertArrayEquals(new double[] {9}, x);
+    }
+
+    @Test
+    void rejectsAnEmptyCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new TrailBuffer(0));
+        assertThrows(IllegalArgumentException.class, () -> new TrailBuffer(1).setCapacity(0));
+    }
+
+    /** A buffer of {@code capacity} that has been given points (k, -k) for k = 1..count. */
+    private static TrailBuffer filled(int capacity, int count) {
+        TrailBuffer trail = new TrailBuffer(capacity);
+        for (int k = 1; k <= count; k++) {
+            trail.add(k, -k);
+        }
+        return trail;
+    }
+
+    private static void assertPoints(TrailBuffer trail, double... expected) {
+        assertEquals(expected.length, trail.size());
+        for (int k = 0; k < expected.length; k++) {
+            assertEquals(expected[k], trail.getX(k), "x " + k);
+            assertEquals(-expected[k], trail.getY(k), "y " + k);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BarnesHutForceSolverTest {
+
+    @Test
+    void matchesDirectSummationAtDefaultTheta() {
+        SystemState state = TestStates.uniformDisk(3000, 300, 1e11, 1);
+        double[][] ref = TestStates.directAccelerations(state);
+        DirectForceSolver direct = new DirectForceSolver();
+        direct.computeAccelerations(state);
+        double potential = direct.getPotentialEnergy();
+
+        BarnesHutForceSolver solver = new BarnesHutForceSolver();
+        solver.computeAccelerations(state);
+
+        double error = TestStates.relativeRmsError(state, ref[0], ref[1]);
+        assertTrue(error < 1e-3, "relative RMS force error " + error);
+        assertEquals(potential, solver.getPotentialEnergy(), 1e-2 * Math.abs(potential));
+    }
+
+    @Test
+    void thetaZeroIsDirectSummation() {
+        SystemState state = TestStates.uniformDisk(500, 50, 1e11, 2);
+        double[][] ref = TestStates.directAccelerations(state);
+        new BarnesHutForceSolver(0).computeAccelerations(state);
+        assertTrue(TestStates.relativeRmsError(state, ref[0], ref[1]) < 1e-12);
+    }
+
+    @Test
+    void reusesTheTreeBetweenCalls() {
+        SystemState state = TestStates.uniformDisk(2000, 200, 1e11, 3);
+        BarnesHutForceSolver solver = new BarnesHutForceSolver();
+        Runnable step = () -> solver.computeAccelerations(state);
+        TestStates.allocatedBytes(step, 200); // grow the node pool and warm up
+        long bytes = TestStates.allocatedBytes(step, 100);
+        assertTrue(bytes < 100 * 16, bytes + " bytes allocated in 100 calls");
+    }
+}
@@ -0,0 +1,112 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.diagnostics.Conservation;
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockTimestepIntegratorTest {
+    private static final double DAY = 86400;
+    private static final double YEAR = 365.25 * DAY;
+    private static final double AU = 1.495978707e11;
+    private static final double SUN = 1.9885e30;
+    private static final double MU = Constants.G * SUN;
+
+    @Test
+    void energyErrorFallsWithEta() {
+        // a Jupiter-mass planet on an e = 0.6 orbit, 100 years in eighth-year blocks
+        double previous = Double.POSITIVE_INFINITY;
+        for (double eta : new double[] {0.04, 0.02, 0.01, 0.005}) {
+            SystemState state = new SystemState();
+            double m = 1e-3 * SUN, e = 0.6;
+            double mu = Constants.G * (SUN + m);
+            double r = AU * (1 + e);
+            double v = Math.sqrt(mu * (1 - e) / r);
+            state.addBody("star", BodyType.STAR, SUN, 7e8, -r * m / (SUN + m), 0, 0, -v * m / (SUN + m), false);
+            state.addBody("planet", BodyType.PLANET, m, 7e7, r * SUN / (SUN + m), 0, 0, v * SUN / (SUN + m), false);
+            double error = maxEnergyError(state, new BlockTimestepIntegrator(eta, 20), YEAR / 8, 800);
+            // about 1.6e-3, 1.9e-4, 2.6e-5 and 4.3e-6
+            assertTrue(error < previous / 4, "eta " + eta + ": " + error + " after " + previous);
+            previous = error;
+        }
+    }
+
+    @Test
+    void testParticleFollowsKepler() {
+        double previous = Double.POSITIVE_INFINITY;
+        for (double eta : new double[] {0.02, 0.01, 0.005}) {
+            SystemState state = new SystemState();
+            state.addBody("sun", BodyType.STAR, SUN, 7e8, 0, 0, 0, 0, false);
+            double[] o = new double[4];
+            Kepler.toCartesian(MU, AU, 0.5, 0.3, 1.0, o);
+            state.addBody("p", BodyType.ASTEROID, 0, 1, o[0], o[1], o[2], o[3], true);
+            BlockTimestepIntegrator integrator = new BlockTimestepIntegrator(eta, 20);
+            for (int k = 0; k < 160; k++) {
+                integrator.step(state, YEAR / 16);
+            }
+            double error = keplerError(state, o, 10 * YEAR);
+            // about 1.7e-3, 3.9e-4 and 8.4e-5 AU
+            assertTrue(error < 3e-3 * AU, "eta " + eta + ": " + error / AU + " AU");
+            assertTrue(error < previous / 3, "eta " + eta + ": " + error + " after " + previous);
+            previous = error;
+        }
+    }
+
+    @Test
+    void deepensWithinABlock() {
+        // a flyby past the sun at 1 AU inside a single block: the particle
+        // starts on the block step and must subdivide as it closes in
+        SystemState state = new SystemState();
+        state.addBody("sun", BodyType.STAR, SUN, 7e8, 0, 0, 0, 0, false);
+        double[] start = {-20 * AU, AU, 3e4, 0};
+        state.addBody("p", BodyType.ASTEROID, 0, 1, start[0], start[1], start[2], start[3], true);
+        double t = 40 * AU / 3e4;
+        new BlockTimestepIntegrator(0.02, 20).step(state, t);
+        double error = keplerError(state, start, t);
+        // about 1.2e-4 AU, as with many shorter blocks
+        assertTrue(error < 1e-3 * AU, error / AU + " AU");
+    }
+
+    @Test
+    void conservesMomentumAcrossLevels() {
+        SystemState state = PresetFactory.solarSystem();
+        double scale = 0;
+        for (int i = 0; i < state.size(); i++) {
+            scale += state.getMass()[i] * Math.hypot(state.getVx()[i], state.getVy()[i]);
+        }
+        BlockTimestepIntegrator integrator = new BlockTimestepIntegrator(0.02, 12);
+        double[] p = new double[2];
+        for (int k = 0; k < 2000; k++) {
+            integrator.step(state, 2 * DAY);
+            Conservation.momentum(state, p);
+            // rounding only, about 1e-14; bounded rather than growing with time
+            assertTrue(Math.hypot(p[0], p[1]) < 1e-12 * scale, "step " + k + ": " + Math.hypot(p[0], p[1]));
+        }
+    }
+
+    /** Distance between the particle (index 1) and Kepler's answer from {@code start} after {@code t}. */
+    private static double keplerError(SystemState state, double[] start, double t) {
+        double[] x = {start[0]}, y = {start[1]}, vx = {start[2]}, vy = {start[3]};
+        Kepler.drift(MU, x, y, vx, vy, 0, t);
+        return Math.hypot(state.getX()[1] - x[0], state.getY()[1] - y[0]);
+    }
+
+    private static double maxEnergyError(SystemState state, Integrator integrator, double dt, int steps) {
+        double e0 = energy(state);
+        double max = 0;
+        for (int k = 0; k < steps; k++) {
+            integrator.step(state, dt);
+            max = Math.max(max, Math.abs((energy(state) - e0) / e0));
+        }
+        return max;
+    }
+
+    private static double energy(SystemState state) {
+        return Conservation.kineticEnergy(state) + Conservation.potentialEnergy(state);
+    }
+}
@@ -0,0 +1,96 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Merges found through the collision grid must be the ones a plain pairwise
+ * pass finds: for each body in index order, absorb every later body it
+ * touches that is still there, with reaches fixed at the start of the step.
+ */
+class CollisionBroadPhaseTest {
+    private static final double FIELD = 1e6;
+    private static final double RADIUS = 1e3;
+
+    @ParameterizedTest
+    @CsvSource({
+            // bodies, test particles, stars, mean radius multiple
+            "2000, 0, 0, 1",
+            "2000, 300, 0, 1",
+            "2000, 300, 6, 1",
+            "3000, 500, 6, 4",
+            "500, 100, 3, 10"})
+    void matchesAPairwisePass(int n, int testParticles, int stars, double crowding) {
+        SplittableRandom rnd = new SplittableRandom(n + 31L * stars);
+        SystemState state = new SystemState();
+        double field = FIELD / crowding;
+        for (int i = 0; i < n; i++) {
+            boolean star = i < stars;
+            // stars reach far past LARGE_REACH_FACTOR times the mean, so they skip the grid
+            double radius = star ? 60 * RADIUS : RADIUS * rnd.nextDouble(0.5, 1.5);
+            state.addBody(null, star ? BodyType.STAR : BodyType.ASTEROID, rnd.nextDouble(1, 2), radius,
+                    rnd.nextDouble(field), rnd.nextDouble(field), 0, 0, i >= n - testParticles);
+        }
+        assertMatchesPairwisePass(state);
+    }
+
+    /** A body touching two others that do not touch each other goes to the lower of them, once. */
+    @Test
+    void claimsAVictimOnce() {
+        SystemState state = new SystemState();
+        for (int k = 0; k < 40; k++) {
+            double x = k * 10 * RADIUS;
+            state.addBody(null, BodyType.ASTEROID, 1, RADIUS, x, 0, 0, 0, false);
+            state.addBody(null, BodyType.ASTEROID, 1, RADIUS, x + 2.5 * RADIUS, 0, 0, 0, false);
+        }
+        // victims in the middle of each pair, after both absorbers
+        for (int k = 0; k < 40; k++) {
+            state.addBody(null, BodyType.ASTEROID, 1, RADIUS, k * 10 * RADIUS + 1.25 * RADIUS, 0, 0, 0, k % 2 == 0);
+        }
+        // a star touching a pair whose members also touch a victim between them
+        state.addBody(null, BodyType.STAR, 1, 8 * RADIUS, 5 * RADIUS, 6 * RADIUS, 0, 0, false);
+        assertMatchesPairwisePass(state);
+    }
+
+    private static void assertMatchesPairwisePass(SystemState state) {
+        int n = state.size();
+        double[] x = state.getX().clone();
+        double[] y = state.getY().clone();
+        double[] radius = state.getRadius().clone();
+        double[] mass = state.getMass().clone();
+        boolean[] removed = new boolean[n];
+        int massive = state.getMassiveCount();
+        for (int i = 0; i < n; i++) {
+            if (removed[i]) continue;
+            for (int j = i + 1; j < n; j++) {
+                if (removed[j] || (i >= massive && j >= massive)) continue;
+                double dx = x[j] - x[i], dy = y[j] - y[i], contact = radius[i] + radius[j];
+                if (dx * dx + dy * dy < contact * contact) {
+                    mass[i] += mass[j];
+                    removed[j] = true;
+                }
+            }
+        }
+        int survivors = 0;
+        for (boolean r : removed) if (!r) survivors++;
+        assertTrue(survivors < n, "no contacts in the scene");
+
+        // ids are the initial indices
+        new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver())).step(state, 1e-3);
+
+        assertEquals(survivors, state.size());
+        for (int id = 0; id < n; id++) {
+            int i = state.indexOf(id);
+            assertEquals(!removed[id], i >= 0, "id " + id);
+            if (i >= 0) assertEquals(mass[id], state.getMass()[i], 1e-12 * mass[id], "mass of id " + id);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.diagnostics.Conservation;
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+import dev.andreisima.orbitsim.core.util.Constants;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EncounterRegularizerTest {
+    private static final double DAY = 86400;
+    /** Separation of the binaryStars preset; its period is about 70 days. */
+    private static final double SEPARATION = 5.0e10;
+
+    @Test
+    void keepsTheBinaryOnItsOrbit() {
+        // 20 years in 2-day steps, as quoted in the README
+        double plain = maxEnergyError(null);
+        double regularized = maxEnergyError(new EncounterRegularizer(100));
+        assertTrue(plain > 1e-4, "leapfrog alone " + plain);
+        assertTrue(regularized < 1e-12, "regularized " + regularized);
+    }
+
+    @Test
+    void pairsATightBinary() {
+        SystemState state = PresetFactory.binaryStars();
+        EncounterRegularizer regularizer = detect(state, new EncounterRegularizer(100));
+        assertEquals(1, regularizer.getPairCount());
+        assertEquals(1, regularizer.pairedWith(0));
+    }
+
+    @Test
+    void skipsAPairWithTooLongAPeriod() {
+        // 70 days is longer than 10 steps of 2 days
+        SystemState state = PresetFactory.binaryStars();
+        assertEquals(0, detect(state, new EncounterRegularizer(10)).getPairCount());
+    }
+
+    @Test
+    void skipsAnUnboundPair() {
+        SystemState state = PresetFactory.binaryStars();
+        // twice the circular speed is above the escape speed
+        for (int i = 0; i < 2; i++) {
+            state.getVx()[i] *= 2;
+            state.getVy()[i] *= 2;
+        }
+        state.markModified();
+        assertEquals(0, detect(state, new EncounterRegularizer(100)).getPairCount());
+    }
+
+    @Test
+    void skipsAPairDisturbedByAPassingStar() {
+        // a heavy star racing past, unbound to either member, whose tide on
+        // the binary is several times the binary's own pull
+        SystemState disturbed = PresetFactory.binaryStars();
+        disturbed.addBody("passer", BodyType.STAR, 1e32, 6e8, 0, 3 * SEPARATION, 1e6, 0, false);
+        assertEquals(0, detect(disturbed, new EncounterRegularizer(100)).getPairCount());
+
+        SystemState distant = PresetFactory.binaryStars();
+        distant.addBody("passer", BodyType.STAR, 1e32, 6e8, 0, 100 * SEPARATION, 1e6, 0, false);
+        assertEquals(1, detect(distant, new EncounterRegularizer(100)).pairedWith(0));
+    }
+
+    @Test
+    void pairsOnlyMutualNearestNeighbours() {
+        // a moon tight around star B: B is nearer the moon than star A, so A's
+        // nearest candidate does not pick it back and A stays unpaired
+        SystemState state = PresetFactory.binaryStars();
+        double r = SEPARATION / 20;
+        double v = Math.sqrt(Constants.G * state.getMass()[1] / r);
+        state.addBody("moon", BodyType.MOON, 1e22, 1e6, state.getX()[1] + r, state.getY()[1],
+                state.getVx()[1], state.getVy()[1] + v, false);
+        EncounterRegularizer regularizer = detect(state, new EncounterRegularizer(100));
+        assertEquals(1, regularizer.getPairCount());
+        assertEquals(2, regularizer.pairedWith(1));
+        assertEquals(-1, regularizer.pairedWith(0));
+    }
+
+    private static EncounterRegularizer detect(SystemState state, EncounterRegularizer regularizer) {
+        new DirectForceSolver().computeAccelerations(state);
+        regularizer.detect(state, 2 * DAY);
+        return regularizer;
+    }
+
+    private static double maxEnergyError(EncounterRegularizer regularizer) {
+        SystemState state = PresetFactory.binaryStars();
+        LeapfrogIntegrator integrator = new LeapfrogIntegrator(new DirectForceSolver(), regularizer);
+        double e0 = energy(state);
+        double max = 0;
+        for (int k = 0; k < 3650; k++) {
+            integrator.step(state, 2 * DAY);
+            max = Math.max(max, Math.abs((energy(state) - e0) / e0));
+        }
+        return max;
+    }
+
+    private static double energy(SystemState state) {
+        return Conservation.kineticEnergy(state) + Conservation.potentialEnergy(state);
+    }
+}
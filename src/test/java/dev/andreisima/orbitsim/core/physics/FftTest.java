@@ -0,0 +1,67 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FftTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 8, 64, 1024})
+    void matchesTheDefinition(int n) {
+        SplittableRandom rnd = new SplittableRandom(n);
+        double[] re = new double[n + 3], im = new double[n + 3];
+        for (int k = 0; k < re.length; k++) {
+            re[k] = rnd.nextDouble(-1, 1);
+            im[k] = rnd.nextDouble(-1, 1);
+        }
+        int offset = 3; // the transform must stay inside its slice
+        double[] inRe = re.clone(), inIm = im.clone();
+        new Fft(n).transform(re, im, offset, false);
+
+        for (int k = 0; k < n; k++) {
+            double sumRe = 0, sumIm = 0;
+            for (int j = 0; j < n; j++) {
+                double angle = -2 * Math.PI * ((long) j * k % n) / n;
+                sumRe += inRe[offset + j] * Math.cos(angle) - inIm[offset + j] * Math.sin(angle);
+                sumIm += inRe[offset + j] * Math.sin(angle) + inIm[offset + j] * Math.cos(angle);
+            }
+            assertEquals(sumRe, re[offset + k], 1e-12 * n);
+            assertEquals(sumIm, im[offset + k], 1e-12 * n);
+        }
+        for (int k = 0; k < offset; k++) {
+            assertEquals(inRe[k], re[k]);
+            assertEquals(inIm[k], im[k]);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 256, 4096})
+    void inverseUndoesForwardUpToScale(int n) {
+        SplittableRandom rnd = new SplittableRandom(n + 1);
+        double[] re = new double[n], im = new double[n];
+        for (int k = 0; k < n; k++) {
+            re[k] = rnd.nextDouble(-1e6, 1e6);
+            im[k] = rnd.nextDouble(-1e6, 1e6);
+        }
+        double[] inRe = re.clone(), inIm = im.clone();
+        Fft fft = new Fft(n);
+        fft.transform(re, im, 0, false);
+        fft.transform(re, im, 0, true);
+        for (int k = 0; k < n; k++) {
+            assertEquals(inRe[k], re[k] / n, 1e-13 * 1e6 * Math.log(2 * n));
+            assertEquals(inIm[k], im[k] / n, 1e-13 * 1e6 * Math.log(2 * n));
+        }
+    }
+
+    @Test
+    void rejectsOtherLengths() {
+        assertThrows(IllegalArgumentException.class, () -> new Fft(0));
+        assertThrows(IllegalArgumentException.class, () -> new Fft(12));
+    }
+}
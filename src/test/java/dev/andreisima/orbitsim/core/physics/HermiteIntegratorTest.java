@@ -0,0 +1,69 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HermiteIntegratorTest {
+    private static final double DT = TestStates.YEAR / 100;
+
+    @Test
+    void errorFallsAsTheFourthPowerOfTheStep() {
+        // about 3.5e-5, 2.2e-6 and 1.4e-7 AU after a year
+        double previous = Double.NaN;
+        for (int steps : new int[] {200, 400, 800}) {
+            SystemState state = TestStates.eccentricOrbit();
+            HermiteIntegrator integrator = new HermiteIntegrator();
+            for (int k = 0; k < steps; k++) {
+                integrator.step(state, TestStates.YEAR / steps);
+            }
+            double error = TestStates.keplerError(state, TestStates.YEAR);
+            if (!Double.isNaN(previous)) {
+                double ratio = previous / error;
+                assertTrue(ratio > 12 && ratio < 20, steps + " steps: error ratio " + ratio);
+            }
+            previous = error;
+        }
+    }
+
+    @Test
+    void reusesThePredictedEvaluation() {
+        // the kernel runs once per step: the second step starts from the
+        // forces at the predicted state, not from a fresh evaluation at the
+        // corrected one, which would move the particle slightly differently
+        SystemState reused = TestStates.eccentricOrbit();
+        HermiteIntegrator integrator = new HermiteIntegrator();
+        integrator.step(reused, DT);
+        integrator.step(reused, DT);
+
+        SystemState fresh = TestStates.eccentricOrbit();
+        new HermiteIntegrator().step(fresh, DT);
+        new HermiteIntegrator().step(fresh, DT);
+
+        assertFalse(Arrays.equals(positions(fresh), positions(reused)));
+    }
+
+    @Test
+    void reevaluatesOnceTheStateChanges() {
+        SystemState marked = TestStates.eccentricOrbit();
+        HermiteIntegrator integrator = new HermiteIntegrator();
+        integrator.step(marked, DT);
+        marked.markModified();
+        integrator.step(marked, DT);
+
+        SystemState fresh = TestStates.eccentricOrbit();
+        new HermiteIntegrator().step(fresh, DT);
+        new HermiteIntegrator().step(fresh, DT);
+
+        assertArrayEquals(positions(fresh), positions(marked));
+    }
+
+    private static double[] positions(SystemState state) {
+        return new double[] {state.getX()[1], state.getY()[1], state.getVx()[1], state.getVy()[1]};
+    }
+}
@@ -0,0 +1,45 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelDirectForceSolverTest {
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    /** 40 bodies fit in one leaf task; 3000 are split across the pool. */
+    @ParameterizedTest
+    @ValueSource(ints = {40, 3000})
+    void matchesSerialSolver(int n) {
+        SystemState state = TestStates.uniformDisk(n, n / 10, 1e11, n);
+        DirectForceSolver serial = new DirectForceSolver();
+        double[][] ref = TestStates.directAccelerations(state);
+        serial.computeAccelerations(state);
+        double potential = serial.getPotentialEnergy();
+
+        ParallelDirectForceSolver solver = new ParallelDirectForceSolver(pool);
+        solver.computeAccelerations(state);
+
+        // only the summation order differs
+        double error = TestStates.relativeRmsError(state, ref[0], ref[1]);
+        assertTrue(error < 1e-12, "relative RMS force error " + error);
+        assertEquals(potential, solver.getPotentialEnergy(), 1e-12 * Math.abs(potential));
+    }
+}
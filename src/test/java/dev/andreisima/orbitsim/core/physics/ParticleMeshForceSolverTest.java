@@ -0,0 +1,131 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParticleMeshForceSolverTest {
+    private static final double R = 1e11;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        // three workers split the column blocks unevenly
+        pool = new ForkJoinPool(3);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    /**
+     * A Gaussian disk on a lattice finer than the mesh, so direct summation
+     * gives the smooth field, with test particles outside it. Forces inside
+     * carry the cell-scale softening, an error of order cell / scale length
+     * that halves with each doubling of the grid; outside they converge fast.
+     */
+    @Test
+    void matchesDirectSummationOnASmoothDisk() {
+        SystemState state = gaussianDisk();
+        int n = state.size(), massive = state.getMassiveCount();
+        double[][] ref = TestStates.directAccelerations(state);
+        DirectForceSolver direct = new DirectForceSolver();
+        direct.computeAccelerations(state);
+        double potential = direct.getPotentialEnergy();
+
+        ParticleMeshForceSolver coarse = new ParticleMeshForceSolver(128, pool);
+        coarse.computeAccelerations(state);
+        double coarseInside = error(state, ref, 0, massive);
+
+        ParticleMeshForceSolver fine = new ParticleMeshForceSolver(256, pool);
+        fine.computeAccelerations(state);
+        double inside = error(state, ref, 0, massive);
+        double outside = error(state, ref, massive, n);
+
+        assertTrue(inside < 0.06, "relative RMS force error inside the disk " + inside);
+        assertTrue(inside < 0.6 * coarseInside, "inside error " + inside + " at g=256, " + coarseInside + " at g=128");
+        assertTrue(outside < 1e-3, "relative RMS force error outside the disk " + outside);
+        assertEquals(potential, fine.getPotentialEnergy(), 0.03 * Math.abs(potential));
+    }
+
+    @Test
+    void matchesNewtonAroundAPointMass() {
+        SystemState state = new SystemState();
+        state.addBody(null, BodyType.STAR, 2e30, 1, 0, 0, 0, 0, false);
+        SplittableRandom rnd = new SplittableRandom(5);
+        for (int k = 0; k < 200; k++) {
+            double r = R * rnd.nextDouble(0.15, 1.0), phi = rnd.nextDouble() * 2 * Math.PI;
+            state.addBody(null, BodyType.ASTEROID, 0, 1, r * Math.cos(phi), r * Math.sin(phi), 0, 0, true);
+        }
+        double[][] ref = TestStates.directAccelerations(state);
+        new ParticleMeshForceSolver(256, pool).computeAccelerations(state);
+
+        // no self-force on the lone massive body, up to FFT roundoff
+        assertEquals(0, state.getAx()[0], 1e-12);
+        assertEquals(0, state.getAy()[0], 1e-12);
+        for (int i = 1; i < state.size(); i++) {
+            double error = Math.hypot(state.getAx()[i] - ref[0][i], state.getAy()[i] - ref[1][i])
+                    / Math.hypot(ref[0][i], ref[1][i]);
+            assertTrue(error < 0.01, "relative force error " + error + " at body " + i);
+        }
+    }
+
+    @Test
+    void doesNotDependOnThePool() {
+        SystemState state = gaussianDisk();
+        new ParticleMeshForceSolver(128, pool).computeAccelerations(state);
+        double[] ax = Arrays.copyOf(state.getAx(), state.size());
+        double[] ay = Arrays.copyOf(state.getAy(), state.size());
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            new ParticleMeshForceSolver(128, single).computeAccelerations(state);
+        } finally {
+            single.shutdown();
+        }
+        // deposit stripes differ, so only the summation order changes
+        assertTrue(TestStates.relativeRmsError(state, ax, ay) < 1e-12);
+    }
+
+    /** Disk of radius R on a 140 x 140 lattice, masses falling off with scale 0.3 R, and a ring of test particles. */
+    private static SystemState gaussianDisk() {
+        SystemState state = new SystemState();
+        int side = 140;
+        double spacing = 2 * R / side, sigma = 0.3 * R;
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                double x = -R + (i + 0.5) * spacing, y = -R + (j + 0.5) * spacing;
+                double rSq = x * x + y * y;
+                if (rSq > R * R) continue;
+                state.addBody(null, BodyType.STAR, 1e27 * Math.exp(-rSq / (2 * sigma * sigma)), 1, x, y, 0, 0, false);
+            }
+        }
+        SplittableRandom rnd = new SplittableRandom(3);
+        for (int k = 0; k < 500; k++) {
+            double r = R * rnd.nextDouble(1.05, 2.0), phi = rnd.nextDouble() * 2 * Math.PI;
+            state.addBody(null, BodyType.ASTEROID, 0, 1, r * Math.cos(phi), r * Math.sin(phi), 0, 0, true);
+        }
+        return state;
+    }
+
+    /** Relative RMS error of the state's accelerations against {@code ref} over bodies [from, to). */
+    private static double error(SystemState state, double[][] ref, int from, int to) {
+        double err = 0, norm = 0;
+        for (int i = from; i < to; i++) {
+            double dx = state.getAx()[i] - ref[0][i];
+            double dy = state.getAy()[i] - ref[1][i];
+            err += dx * dx + dy * dy;
+            norm += ref[0][i] * ref[0][i] + ref[1][i] * ref[1][i];
+        }
+        return Math.sqrt(err / norm);
+    }
+}
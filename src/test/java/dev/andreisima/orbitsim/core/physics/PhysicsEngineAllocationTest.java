@@ -0,0 +1,43 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A steady-state {@link PhysicsEngine#step} must not allocate: once the
+ * trails are full and the solver's buffers have grown, the calling thread's
+ * allocated-bytes counter should stay put.
+ */
+class PhysicsEngineAllocationTest {
+    private static final int WARMUP_STEPS = 2_000;
+    private static final int MEASURED_STEPS = 500;
+    /** Slack for the odd allocation outside our control, such as JIT deoptimization. */
+    private static final long BYTES_PER_STEP = 8;
+
+    @Test
+    void directStepDoesNotAllocate() {
+        assertStepDoesNotAllocate(new DirectForceSolver());
+    }
+
+    @Test
+    void barnesHutStepDoesNotAllocate() {
+        assertStepDoesNotAllocate(new BarnesHutForceSolver());
+    }
+
+    private static void assertStepDoesNotAllocate(ForceSolver solver) {
+        // far enough apart that nothing merges, so the body count stays fixed
+        SystemState state = TestStates.uniformDisk(400, 40, 1e11, 7);
+        PhysicsEngine engine = new PhysicsEngine(new LeapfrogIntegrator(solver));
+        Runnable step = () -> engine.step(state, 3600);
+
+        TestStates.allocatedBytes(step, WARMUP_STEPS);
+        long bytes = TestStates.allocatedBytes(step, MEASURED_STEPS);
+
+        assertEquals(400, state.size());
+        assertTrue(bytes <= BYTES_PER_STEP * MEASURED_STEPS,
+                bytes / (double) MEASURED_STEPS + " bytes allocated per step");
+    }
+}
@@ -0,0 +1,155 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.model.TrailBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhysicsEngineTest {
+    private static final int SIDE = 8;
+    private static final double SPACING = 1e9;
+
+    /**
+     * Touching pairs on a lattice of light bodies, with test particles after
+     * them. Three merges are swap-removed one by one, twenty are compacted
+     * out in one pass; either way every survivor keeps its id, and each pair
+     * leaves one body, with the pair's mass, under the lower index's id.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {3, 20})
+    void idsSurviveMerges(int pairs) {
+        int n = SIDE * SIDE;
+        SystemState state = new SystemState();
+        for (int i = 0; i < n; i++) {
+            // distinct masses, small enough that nothing moves in one step
+            state.addBody(null, BodyType.PLANET, i + 1, 1e3, (i % SIDE) * SPACING, (i / SIDE) * SPACING, 0, 0, false);
+        }
+        for (int i = 0; i < 10; i++) {
+            state.addBody(null, BodyType.ASTEROID, 0, 1, -SPACING, i * SPACING, 0, 0, true);
+        }
+        // move the second body of each pair next to the first, from a shuffled order
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        SplittableRandom rnd = new SplittableRandom(pairs);
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = order[i]; order[i] = order[j]; order[j] = t;
+        }
+        int[] partner = new int[n];
+        Arrays.fill(partner, -1);
+        for (int k = 0; k < pairs; k++) {
+            int a = Math.min(order[2 * k], order[2 * k + 1]);
+            int b = Math.max(order[2 * k], order[2 * k + 1]);
+            state.getX()[b] = state.getX()[a] + 10;
+            state.getY()[b] = state.getY()[a];
+            partner[a] = b;
+            partner[b] = a;
+        }
+        // ids are the initial indices here
+        double[] x = Arrays.copyOf(state.getX(), state.size());
+        double[] y = Arrays.copyOf(state.getY(), state.size());
+
+        new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver())).step(state, 1);
+
+        assertEquals(n + 10 - pairs, state.size());
+        for (int id = 0; id < n + 10; id++) {
+            int i = state.indexOf(id);
+            if (id < n && partner[id] >= 0) {
+                boolean survivor = id < partner[id];
+                assertEquals(survivor, i >= 0, "merged id " + id);
+                if (survivor) assertEquals(id + 1 + partner[id] + 1, state.getMass()[i], 1e-9);
+                continue;
+            }
+            assertTrue(i >= 0, "id " + id + " vanished");
+            assertEquals(id, state.getId(i));
+            assertEquals(id >= n, state.isTestParticle(i));
+            assertEquals(x[id], state.getX()[i], 1);
+            assertEquals(y[id], state.getY()[i], 1);
+            if (id < n) assertEquals(id + 1, state.getMass()[i]);
+        }
+    }
+
+    @Test
+    void recordsTrailsEveryIntervalSteps() {
+        SystemState state = cruising(1);
+        PhysicsEngine engine = new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver()));
+        engine.setTrailInterval(3);
+        for (int k = 0; k < 10; k++) {
+            engine.step(state, 1);
+        }
+        // after steps 3, 6 and 9
+        TrailBuffer trail = state.getTrail(0);
+        assertEquals(3, trail.size());
+        assertEquals(3 * SPACING, trail.getX(0), 1e-6);
+        assertEquals(9 * SPACING, trail.getX(2), 1e-6);
+    }
+
+    @Test
+    void skipsTrailPointsCloserThanTheSpacing() {
+        SystemState state = cruising(1);
+        PhysicsEngine engine = new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver()));
+        engine.setTrailSpacing(2.5 * SPACING);
+        for (int k = 0; k < 10; k++) {
+            engine.step(state, 1);
+        }
+        // the first point, then every third step once the body is 2.5 steps on
+        TrailBuffer trail = state.getTrail(0);
+        assertEquals(4, trail.size());
+        for (int k = 0; k < 4; k++) {
+            assertEquals((1 + 3 * k) * SPACING, trail.getX(k), 1e-6);
+        }
+    }
+
+    /** Each trail gets min(trail length, budget / n rounded down to a power of two). */
+    @ParameterizedTest
+    @CsvSource({
+            "3, 1000, 200",   // 333 -> 256, capped by the length
+            "7, 1000, 128",   // 142 -> 128
+            "7, 5, 1",        // less than a point each still keeps one
+            "64, 4096, 64"})
+    void splitsTheTrailBudget(int n, int budget, int expected) {
+        SystemState state = cruising(n);
+        PhysicsEngine engine = new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver()));
+        engine.setTrailBudget(budget);
+        engine.step(state, 1);
+        for (int i = 0; i < n; i++) {
+            assertEquals(expected, state.getTrail(i).capacity());
+        }
+    }
+
+    @Test
+    void growsTrailsAsBodiesLeave() {
+        SystemState state = cruising(8);
+        PhysicsEngine engine = new PhysicsEngine(new LeapfrogIntegrator(new DirectForceSolver()));
+        engine.setTrailBudget(512);
+        engine.step(state, 1);
+        assertEquals(64, state.getTrail(0).capacity());
+        for (int k = 0; k < 4; k++) {
+            state.removeBody(state.size() - 1);
+        }
+        engine.step(state, 1);
+        assertEquals(128, state.getTrail(0).capacity());
+        assertEquals(2, state.getTrail(0).size());
+    }
+
+    /**
+     * {@code n} massless bodies far apart, each moving SPACING meters per
+     * second along x, so positions after whole steps are exact.
+     */
+    private static SystemState cruising(int n) {
+        SystemState state = new SystemState();
+        for (int i = 0; i < n; i++) {
+            state.addBody(null, BodyType.ASTEROID, 0, 1, 0, i * 1e3 * SPACING, SPACING, 0, false);
+        }
+        return state;
+    }
+}
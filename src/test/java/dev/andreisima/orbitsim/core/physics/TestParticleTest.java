@@ -0,0 +1,123 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test particles feel the massive bodies and pull on nothing: the massive
+ * bodies move exactly as if the test particles were not there, even though
+ * the particles here are as heavy as the massive bodies.
+ */
+class TestParticleTest {
+    private static final int N = 400;
+    private static final int TEST_PARTICLES = 100;
+
+    static Stream<Arguments> solvers() {
+        return Stream.of(
+                Arguments.of("direct", (Supplier<ForceSolver>) DirectForceSolver::new),
+                Arguments.of("parallel", (Supplier<ForceSolver>) ParallelDirectForceSolver::new),
+                Arguments.of("vectorized", (Supplier<ForceSolver>) ForceSolverFactory::vectorized),
+                Arguments.of("barnes-hut", (Supplier<ForceSolver>) BarnesHutForceSolver::new),
+                Arguments.of("particle mesh", (Supplier<ForceSolver>) ParticleMeshForceSolver::new));
+    }
+
+    static Stream<Arguments> integrators() {
+        return Stream.of(
+                Arguments.of("leapfrog", (Supplier<Integrator>) LeapfrogIntegrator::new),
+                Arguments.of("yoshida", (Supplier<Integrator>) YoshidaIntegrator::new),
+                Arguments.of("hermite", (Supplier<Integrator>) HermiteIntegrator::new),
+                Arguments.of("block", (Supplier<Integrator>) BlockTimestepIntegrator::new));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("solvers")
+    void testParticleMassPullsOnNothing(String name, Supplier<ForceSolver> solver) {
+        SystemState light = TestStates.uniformDisk(N, TEST_PARTICLES, 1e11, 7);
+        SystemState heavy = TestStates.uniformDisk(N, TEST_PARTICLES, 1e11, 7);
+        for (int i = heavy.getMassiveCount(); i < N; i++) {
+            heavy.getMass()[i] = 1e30;
+        }
+        solver.get().computeAccelerations(light);
+        solver.get().computeAccelerations(heavy);
+        assertMassiveEqual(light.getAx(), heavy.getAx(), 0);
+        assertMassiveEqual(light.getAy(), heavy.getAy(), 0);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("solvers")
+    void massiveBodiesDoNotSeeTestParticles(String name, Supplier<ForceSolver> solver) {
+        // the mesh spans the test particles too, so removing them changes its resolution
+        Assumptions.assumeFalse(name.equals("particle mesh"));
+        SystemState with = TestStates.uniformDisk(N, TEST_PARTICLES, 1e11, 7);
+        SystemState without = withoutTestParticles(TestStates.uniformDisk(N, TEST_PARTICLES, 1e11, 7));
+        solver.get().computeAccelerations(with);
+        solver.get().computeAccelerations(without);
+        assertMassiveEqual(without.getAx(), with.getAx(), 0);
+        assertMassiveEqual(without.getAy(), with.getAy(), 0);
+    }
+
+    @Test
+    void testParticlesAddNoJerk() {
+        SystemState with = TestStates.uniformDisk(N, TEST_PARTICLES, 1e11, 7);
+        SystemState without = withoutTestParticles(TestStates.uniformDisk(N, TEST_PARTICLES, 1e11, 7));
+        double[] jx = new double[N], jy = new double[N];
+        double[] jx0 = new double[N], jy0 = new double[N];
+        JerkKernel.evaluateAll(with, jx, jy);
+        JerkKernel.evaluateAll(without, jx0, jy0);
+        assertMassiveEqual(without.getAx(), with.getAx(), 0);
+        assertMassiveEqual(jx0, jx, 0);
+        assertMassiveEqual(jy0, jy, 0);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("integrators")
+    void testParticlesDoNotMoveMassiveBodies(String name, Supplier<Integrator> integrator) {
+        // a collapsing disk would amplify rounding chaotically, so the planets
+        // here, with a belt of test particles in the block integrator's way
+        SystemState with = PresetFactory.asteroidBelt(200, 7, 0.05);
+        with.setTestParticleType(BodyType.ASTEROID, true);
+        SystemState without = PresetFactory.asteroidBelt(200, 7, 0.05);
+        without.setTestParticleType(BodyType.ASTEROID, true);
+        withoutTestParticles(without);
+        Integrator a = integrator.get();
+        Integrator b = integrator.get();
+        for (int k = 0; k < 100; k++) {
+            a.step(with, 86400);
+            b.step(without, 86400);
+        }
+        assertEquals(without.size(), with.getMassiveCount());
+        for (int i = 0; i < without.size(); i++) {
+            // the block integrator drifts in different pieces when particles add step ends
+            double scale = Math.hypot(without.getX()[i], without.getY()[i]);
+            assertEquals(without.getX()[i], with.getX()[i], 1e-12 * scale, "body " + i);
+            assertEquals(without.getY()[i], with.getY()[i], 1e-12 * scale, "body " + i);
+        }
+    }
+
+    private static SystemState withoutTestParticles(SystemState state) {
+        boolean[] removed = new boolean[state.size()];
+        for (int i = state.getMassiveCount(); i < state.size(); i++) {
+            removed[i] = true;
+        }
+        state.removeBodies(removed);
+        return state;
+    }
+
+    private static void assertMassiveEqual(double[] expected, double[] actual, double delta) {
+        int massive = N - TEST_PARTICLES;
+        for (int i = 0; i < massive; i++) {
+            assertEquals(expected[i], actual[i], delta, "body " + i);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import com.sun.management.ThreadMXBean;
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import dev.andreisima.orbitsim.core.util.Kepler;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible body sets for the solver and integrator tests.
+ */
+final class TestStates {
+    static final double AU = 1.495978707e11;
+    static final double YEAR = 365.25 * 86400;
+    private static final double SUN = 1.9885e30;
+
+    private TestStates() {}
+
+    /**
+     * The sun at rest and a test particle (index 1) on an orbit with a 1 AU
+     * semi-major axis and eccentricity 0.5.
+     */
+    static SystemState eccentricOrbit() {
+        SystemState state = new SystemState();
+        state.addBody("sun", BodyType.STAR, SUN, 7e8, 0, 0, 0, 0, false);
+        double[] o = orbitStart();
+        state.addBody("p", BodyType.ASTEROID, 0, 1, o[0], o[1], o[2], o[3], true);
+        return state;
+    }
+
+    /** Distance, in AU, of the {@link #eccentricOrbit} particle from where Kepler puts it after {@code t}. */
+    static double keplerError(SystemState state, double t) {
+        double[] o = orbitStart();
+        double[] x = {o[0]}, y = {o[1]}, vx = {o[2]}, vy = {o[3]};
+        Kepler.drift(Constants.G * SUN, x, y, vx, vy, 0, t);
+        return Math.hypot(state.getX()[1] - x[0], state.getY()[1] - y[0]) / AU;
+    }
+
+    private static double[] orbitStart() {
+        double[] o = new double[4];
+        Kepler.toCartesian(Constants.G * SUN, AU, 0.5, 0.3, 1.0, o);
+        return o;
+    }
+
+    /**
+     * {@code n} equal masses spread uniformly over a disk of radius
+     * {@code radius}, at rest, the last {@code testParticles} of them test
+     * particles.
+     */
+    static SystemState uniformDisk(int n, int testParticles, double radius, long seed) {
+        SystemState state = new SystemState();
+        SplittableRandom rnd = new SplittableRandom(seed);
+        for (int i = 0; i < n; i++) {
+            double r = radius * Math.sqrt(rnd.nextDouble());
+            double phi = rnd.nextDouble() * 2 * Math.PI;
+            state.addBody(null, BodyType.ASTEROID, 1e24, 1e3,
+                    r * Math.cos(phi), r * Math.sin(phi), 0, 0, i >= n - testParticles);
+        }
+        return state;
+    }
+
+    /** Root mean square of |a - ref| over the root mean square of |ref|. */
+    static double relativeRmsError(SystemState state, double[] refAx, double[] refAy) {
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double err = 0, norm = 0;
+        for (int i = 0; i < state.size(); i++) {
+            double dx = ax[i] - refAx[i];
+            double dy = ay[i] - refAy[i];
+            err += dx * dx + dy * dy;
+            norm += refAx[i] * refAx[i] + refAy[i] * refAy[i];
+        }
+        return Math.sqrt(err / norm);
+    }
+
+    /** Accelerations of the direct solver, as reference values. */
+    static double[][] directAccelerations(SystemState state) {
+        new DirectForceSolver().computeAccelerations(state);
+        return new double[][] {
+                Arrays.copyOf(state.getAx(), state.size()),
+                Arrays.copyOf(state.getAy(), state.size())
+        };
+    }
+
+    /** Bytes the current thread allocates while running {@code action} {@code times} times. */
+    static long allocatedBytes(Runnable action, int times) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            throw new IllegalStateException("this JVM does not count allocated bytes per thread");
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int k = 0; k < times; k++) {
+            action.run();
+        }
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+}
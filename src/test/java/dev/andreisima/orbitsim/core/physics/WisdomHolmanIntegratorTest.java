@@ -0,0 +1,71 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.diagnostics.Conservation;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.presets.PresetFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WisdomHolmanIntegratorTest {
+    private static final double DAY = 86400;
+    /** 200 years in 8-day steps. */
+    private static final int STEPS = (int) (200 * 365.25 / 8);
+
+    @Test
+    void keepsTheSolarSystemEnergyBounded() {
+        double wh = maxEnergyError(new WisdomHolmanIntegrator());
+        double leapfrog = maxEnergyError(new LeapfrogIntegrator());
+        // about 3e-7 against 3e-4 for leapfrog at the same step
+        assertTrue(wh < 2e-6, "Wisdom-Holman relative energy error " + wh);
+        assertTrue(wh < leapfrog / 100, "Wisdom-Holman " + wh + ", leapfrog " + leapfrog);
+    }
+
+    @Test
+    void preservesTheBarycenter() {
+        SystemState state = PresetFactory.solarSystem();
+        double[] start = barycenter(state);
+        double[] momentum = new double[2];
+        double scale = 0;
+        for (int i = 0; i < state.size(); i++) {
+            scale += state.getMass()[i] * Math.hypot(state.getVx()[i], state.getVy()[i]);
+        }
+        WisdomHolmanIntegrator integrator = new WisdomHolmanIntegrator();
+        for (int k = 0; k < STEPS; k++) {
+            integrator.step(state, 8 * DAY);
+            double[] c = barycenter(state);
+            // the preset starts with zero momentum, so the barycenter stays put
+            assertEquals(start[0], c[0], 1.0);
+            assertEquals(start[1], c[1], 1.0);
+        }
+        Conservation.momentum(state, momentum);
+        assertEquals(0, Math.hypot(momentum[0], momentum[1]), 1e-12 * scale);
+    }
+
+    private static double maxEnergyError(Integrator integrator) {
+        SystemState state = PresetFactory.solarSystem();
+        double e0 = energy(state);
+        double max = 0;
+        for (int k = 0; k < STEPS; k++) {
+            integrator.step(state, 8 * DAY);
+            max = Math.max(max, Math.abs((energy(state) - e0) / e0));
+        }
+        return max;
+    }
+
+    private static double energy(SystemState state) {
+        return Conservation.kineticEnergy(state) + Conservation.potentialEnergy(state);
+    }
+
+    private static double[] barycenter(SystemState state) {
+        double m = 0, x = 0, y = 0;
+        for (int i = 0; i < state.size(); i++) {
+            double mi = state.getMass()[i];
+            m += mi;
+            x += mi * state.getX()[i];
+            y += mi * state.getY()[i];
+        }
+        return new double[] {x / m, y / m};
+    }
+}
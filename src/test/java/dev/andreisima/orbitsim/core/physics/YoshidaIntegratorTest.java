@@ -0,0 +1,71 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class YoshidaIntegratorTest {
+
+    @Test
+    void errorFallsAsTheFourthPowerOfTheStep() {
+        // about 1.1e-4, 6.7e-6 and 4.2e-7 AU after a year
+        double previous = Double.NaN;
+        for (int steps : new int[] {200, 400, 800}) {
+            SystemState state = TestStates.eccentricOrbit();
+            YoshidaIntegrator integrator = new YoshidaIntegrator();
+            for (int k = 0; k < steps; k++) {
+                integrator.step(state, TestStates.YEAR / steps);
+            }
+            double error = TestStates.keplerError(state, TestStates.YEAR);
+            if (!Double.isNaN(previous)) {
+                double ratio = previous / error;
+                assertTrue(ratio > 12 && ratio < 20, steps + " steps: error ratio " + ratio);
+            }
+            previous = error;
+        }
+    }
+
+    @Test
+    void reusesTheLastEvaluation() {
+        CountingSolver solver = new CountingSolver();
+        YoshidaIntegrator integrator = new YoshidaIntegrator(solver);
+        SystemState state = TestStates.eccentricOrbit();
+        for (int k = 0; k < 10; k++) {
+            integrator.step(state, TestStates.YEAR / 100);
+        }
+        // one evaluation to start, then three per step
+        assertEquals(1 + 3 * 10, solver.count);
+    }
+
+    @Test
+    void reevaluatesOnceTheStateChanges() {
+        CountingSolver solver = new CountingSolver();
+        YoshidaIntegrator integrator = new YoshidaIntegrator(solver);
+        SystemState state = TestStates.eccentricOrbit();
+        integrator.step(state, TestStates.YEAR / 100);
+        assertEquals(4, solver.count);
+
+        state.getX()[1] *= 1.01;
+        state.markModified();
+        integrator.step(state, TestStates.YEAR / 100);
+        assertEquals(8, solver.count);
+
+        // a different state never sees another's forces
+        integrator.step(TestStates.eccentricOrbit(), TestStates.YEAR / 100);
+        assertEquals(12, solver.count);
+    }
+
+    /** Direct summation that counts its evaluations. */
+    private static final class CountingSolver implements ForceSolver {
+        private final DirectForceSolver delegate = new DirectForceSolver();
+        int count;
+
+        @Override
+        public void computeAccelerations(SystemState state) {
+            count++;
+            delegate.computeAccelerations(state);
+        }
+    }
+}
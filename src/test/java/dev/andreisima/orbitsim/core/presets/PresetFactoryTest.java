@@ -0,0 +1,54 @@
+package dev.andreisima.orbitsim.core.presets;
+
+import dev.andreisima.orbitsim.core.diagnostics.Conservation;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PresetFactoryTest {
+    private static final double PARSEC = 3.0857e16;
+
+    @Test
+    void plummerSphereIsInVirialEquilibrium() {
+        SystemState state = PresetFactory.plummerSphere(3000, 1, 1.0);
+        assertEquals(1.0, virialRatio(state), 1e-9);
+
+        SystemState cold = PresetFactory.plummerSphere(3000, 1, 0.5);
+        assertEquals(0.25, virialRatio(cold), 1e-9);
+    }
+
+    @Test
+    void largePlummerSphereIsCloseToVirialEquilibrium() {
+        // W comes from a sample of the stars here
+        assertEquals(1.0, virialRatio(PresetFactory.plummerSphere(30_000, 2, 1.0)), 0.03);
+    }
+
+    @Test
+    void plummerSphereIsProjected() {
+        // projected, half the mass lies within one scale radius; in 3D it is 1.305 of them
+        SystemState state = PresetFactory.plummerSphere(100_000, 3, 1.0);
+        double[] r = new double[state.size()];
+        for (int i = 0; i < r.length; i++) {
+            r[i] = Math.hypot(state.getX()[i], state.getY()[i]);
+        }
+        Arrays.sort(r);
+        assertEquals(1.0, r[r.length / 2] / PARSEC, 0.02);
+    }
+
+    @Test
+    void generatorsAreReproducible() {
+        SystemState a = PresetFactory.plummerSphere(40_000, 4, 1.0);
+        SystemState b = PresetFactory.plummerSphere(40_000, 4, 1.0);
+        assertArrayEquals(Arrays.copyOf(a.getX(), a.size()), Arrays.copyOf(b.getX(), b.size()));
+        assertArrayEquals(Arrays.copyOf(a.getVy(), a.size()), Arrays.copyOf(b.getVy(), b.size()));
+    }
+
+    /** 2K / |W|, with W summed over every pair. */
+    private static double virialRatio(SystemState state) {
+        return 2 * Conservation.kineticEnergy(state) / -Conservation.potentialEnergy(state);
+    }
+}
@@ -0,0 +1,46 @@
+package dev.andreisima.orbitsim.core.sim;
+
+import dev.andreisima.orbitsim.core.model.BodyType;
+import dev.andreisima.orbitsim.core.model.SystemState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StateSnapshotTest {
+
+    @Test
+    void forgetsIdsAboveTheCurrentState() {
+        SystemState big = new SystemState();
+        for (int i = 0; i < 50; i++) {
+            big.addBody(null, BodyType.PLANET, 1, 1, i, 0, 0, 0, false);
+        }
+        SystemState small = new SystemState();
+        for (int i = 0; i < 3; i++) {
+            small.addBody(null, BodyType.PLANET, 1, 1, i, 0, 0, 0, false);
+        }
+        small.removeBody(0);
+
+        StateSnapshot snapshot = new StateSnapshot();
+        snapshot.copyFrom(big, 1);
+        assertEquals(40, snapshot.indexOf(40));
+        snapshot.copyFrom(small, 2);
+        // the id map is bigger than the small state needs; stale entries must not leak
+        assertEquals(-1, snapshot.indexOf(40));
+        assertEquals(-1, snapshot.indexOf(3));
+        assertEquals(-1, snapshot.indexOf(0));
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(i, snapshot.indexOf(snapshot.getId(i)));
+        }
+
+        // a map grown past nextId, with ids never written, must not answer 0 either
+        SystemState grown = new SystemState();
+        for (int i = 0; i < 60; i++) {
+            grown.addBody(null, BodyType.PLANET, 1, 1, i, 0, 0, 0, false);
+        }
+        StateSnapshot fresh = new StateSnapshot();
+        fresh.copyFrom(small, 1);
+        fresh.copyFrom(grown, 2);
+        fresh.copyFrom(small, 3);
+        assertEquals(-1, fresh.indexOf(59));
+    }
+}
@@ -0,0 +1,127 @@
+package dev.andreisima.orbitsim.core.util;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeplerTest {
+    private static final double MU = Constants.G * 1.9885e30;
+    private static final double AU = 1.495978707e11;
+    private static final double DAY = 86400;
+
+    /**
+     * Drifts a body from true anomaly {@code nu0} for {@code days} and
+     * compares it with the closed-form solution of Kepler's equation.
+     */
+    @ParameterizedTest(name = "e={1} dt={4} d")
+    @CsvSource({
+            // q (AU), e, omega (deg), nu0 (deg), days, prograde, relative tolerance
+            "1.0,     0.0,     0,    0,     100,      true,  1e-11",
+            "1.0,     0.0167,  103,  40,    200,      true,  1e-11",
+            "0.3,     0.6,     -20,  170,   -55,      true,  1e-11",
+            "0.5,     0.9,     250,  -30,   400,      false, 1e-11",
+            "1.0,     0.97,    12,   100,   -3000,    true,  1e-10",
+            "1.0,     0.9999,  60,   -90,   80,       true,  1e-9",
+            "1.0,     1.0,     0,    0,     120,      true,  1e-9",
+            "1.0,     1.0,     200,  150,   -400,     false, 1e-9",
+            "1.0,     1.0001,  60,   -90,   80,       false, 1e-9",
+            "2.0,     1.5,     30,   -60,   300,      true,  1e-11",
+            "0.1,     8.0,     -45,  20,    -40,      true,  1e-11",
+            "0.8,     0.3,     77,   10,    365250.7, true,  1e-10",
+            "0.8,     0.3,     77,   10,    -365250.7, false, 1e-10"})
+    void matchesKeplersEquation(double qAu, double e, double omegaDeg, double nu0Deg, double days,
+                                boolean prograde, double tolerance) {
+        double q = qAu * AU;
+        double omega = Math.toRadians(omegaDeg);
+        double nu0 = Math.toRadians(nu0Deg);
+        double dt = days * DAY;
+
+        double[] start = state(q, e, omega, nu0, prograde);
+        double[] x = {start[0]}, y = {start[1]}, vx = {start[2]}, vy = {start[3]};
+        Kepler.drift(MU, x, y, vx, vy, 0, dt);
+
+        double[] expected = state(q, e, omega, advance(q, e, nu0, dt), prograde);
+        double r = Math.hypot(expected[0], expected[1]);
+        double v = Math.hypot(expected[2], expected[3]);
+        assertEquals(expected[0], x[0], tolerance * r, "x");
+        assertEquals(expected[1], y[0], tolerance * r, "y");
+        assertEquals(expected[2], vx[0], tolerance * v, "vx");
+        assertEquals(expected[3], vy[0], tolerance * v, "vy");
+    }
+
+    /** Drifting forward and back again returns to the start. */
+    @ParameterizedTest
+    @CsvSource({"0.2, 30", "0.99, 500", "1.0, 200", "3.0, 100"})
+    void isReversible(double e, double days) {
+        double[] start = state(AU, e, 1.0, 0.5, true);
+        double[] x = {start[0]}, y = {start[1]}, vx = {start[2]}, vy = {start[3]};
+        Kepler.drift(MU, x, y, vx, vy, 0, days * DAY);
+        Kepler.drift(MU, x, y, vx, vy, 0, -days * DAY);
+        assertEquals(start[0], x[0], 1e-10 * AU);
+        assertEquals(start[1], y[0], 1e-10 * AU);
+        assertEquals(start[2], vx[0], 1e-10 * Math.hypot(start[2], start[3]));
+        assertEquals(start[3], vy[0], 1e-10 * Math.hypot(start[2], start[3]));
+    }
+
+    /**
+     * Position and velocity at true anomaly {@code nu} on the conic with
+     * periapsis distance {@code q} and eccentricity {@code e}, periapsis at
+     * angle {@code omega}; a retrograde orbit is the prograde one mirrored.
+     */
+    private static double[] state(double q, double e, double omega, double nu, boolean prograde) {
+        double p = q * (1 + e);
+        double r = p / (1 + e * Math.cos(nu));
+        double speed = Math.sqrt(MU / p);
+        double px = r * Math.cos(nu);
+        double py = r * Math.sin(nu);
+        double pvx = -speed * Math.sin(nu);
+        double pvy = speed * (e + Math.cos(nu));
+        if (!prograde) {
+            py = -py;
+            pvy = -pvy;
+        }
+        double c = Math.cos(omega), s = Math.sin(omega);
+        return new double[] {px * c - py * s, px * s + py * c, pvx * c - pvy * s, pvx * s + pvy * c};
+    }
+
+    /** True anomaly {@code dt} after {@code nu0}, from Kepler's or Barker's equation. */
+    private static double advance(double q, double e, double nu0, double dt) {
+        if (e < 1) {
+            double a = q / (1 - e);
+            double e0 = 2 * Math.atan2(Math.sqrt(1 - e) * Math.sin(nu0 / 2), Math.sqrt(1 + e) * Math.cos(nu0 / 2));
+            double m = e0 - e * Math.sin(e0) + Math.sqrt(MU / (a * a * a)) * dt;
+            double turns = Math.floor(m / (2 * Math.PI) + 0.5);
+            m -= 2 * Math.PI * turns;
+            // Newton from a start that converges for every e < 1
+            double ea = m + 0.85 * e * Math.signum(m);
+            for (int k = 0; k < 100; k++) {
+                ea -= (ea - e * Math.sin(ea) - m) / (1 - e * Math.cos(ea));
+            }
+            return 2 * Math.atan2(Math.sqrt(1 + e) * Math.sin(ea / 2), Math.sqrt(1 - e) * Math.cos(ea / 2));
+        }
+        if (e > 1) {
+            double a = q / (e - 1);
+            double f0 = 2 * atanh(Math.sqrt((e - 1) / (e + 1)) * Math.tan(nu0 / 2));
+            double m = e * Math.sinh(f0) - f0 + Math.sqrt(MU / (a * a * a)) * dt;
+            double f = asinh(m / e);
+            for (int k = 0; k < 100; k++) {
+                f -= (e * Math.sinh(f) - f - m) / (e * Math.cosh(f) - 1);
+            }
+            return 2 * Math.atan(Math.sqrt((e + 1) / (e - 1)) * Math.tanh(f / 2));
+        }
+        // Barker: D + D^3 / 3 = sqrt(mu / (2 q^3)) (t - T), with D = tan(nu / 2)
+        double d0 = Math.tan(nu0 / 2);
+        double b = d0 + d0 * d0 * d0 / 3 + Math.sqrt(MU / (2 * q * q * q)) * dt;
+        double w = Math.cbrt(1.5 * b + Math.sqrt(2.25 * b * b + 1));
+        return 2 * Math.atan(w - 1 / w);
+    }
+
+    private static double atanh(double x) {
+        return 0.5 * Math.log((1 + x) / (1 - x));
+    }
+
+    private static double asinh(double x) {
+        return Math.log(x + Math.sqrt(x * x + 1));
+    }
+}
@@ -0,0 +1,91 @@
+package dev.andreisima.orbitsim.core.physics;
+
+import dev.andreisima.orbitsim.core.model.SystemState;
+import dev.andreisima.orbitsim.core.util.Constants;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Exact direct summation using the incubating Java Vector API. For each body
+ * the pull of several other bodies is computed at once, one per SIMD lane.
+ * <p>
+ * Only compiled with {@code -PvectorApi=true}; obtain it through
+ * {@link ForceSolverFactory#vectorized()}, which falls back to the scalar
+ * solver when the module is missing. Only the massive bodies are summed as
+ * sources; test particles just receive.
+ */
+public class VectorForceSolver implements ForceSolver {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private double potentialEnergy = Double.NaN;
+
+    @Override
+    public void computeAccelerations(SystemState state) {
+        int n = state.size();
+        int massive = state.getMassiveCount();
+        double[] x = state.getX();
+        double[] y = state.getY();
+        double[] m = state.getMass();
+        double[] ax = state.getAx();
+        double[] ay = state.getAy();
+        double epsSq = Constants.SOFTENING * Constants.SOFTENING;
+        int upper = SPECIES.loopBound(massive);
+        int lanes = SPECIES.length();
+        double potential = 0;
+
+        for (int i = 0; i < n; i++) {
+            double xi = x[i], yi = y[i];
+            DoubleVector vxi = DoubleVector.broadcast(SPECIES, xi);
+            DoubleVector vyi = DoubleVector.broadcast(SPECIES, yi);
+            DoubleVector accX = DoubleVector.zero(SPECIES);
+            DoubleVector accY = DoubleVector.zero(SPECIES);
+            DoubleVector accP = DoubleVector.zero(SPECIES);
+
+            // the i == j lane adds no force: dx = dy = 0 and the softening keeps r^3 > 0;
+            // its softened potential G m_i / eps is masked out
+            int j = 0;
+            for (; j < upper; j += lanes) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vxi);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vyi);
+                DoubleVector distSq = dx.fma(dx, dy.mul(dy)).add(epsSq);
+                // softened inverse cube: G * m_j / (r^2 * sqrt(r^2))
+                DoubleVector factor = DoubleVector.fromArray(SPECIES, m, j).mul(Constants.G)
+                        .div(distSq.mul(distSq.lanewise(VectorOperators.SQRT)));
+                accX = dx.fma(factor, accX);
+                accY = dy.fma(factor, accY);
+                DoubleVector pot = factor.mul(distSq);
+                if (i - j >= 0 && i - j < lanes) {
+                    pot = pot.blend(0.0, VectorMask.fromLong(SPECIES, 1L << (i - j)));
+                }
+                accP = accP.add(pot);
+            }
+            double axi = accX.reduceLanes(VectorOperators.ADD);
+            double ayi = accY.reduceLanes(VectorOperators.ADD);
+            double poti = accP.reduceLanes(VectorOperators.ADD);
+
+            // scalar tail
+            for (; j < massive; j++) {
+                if (j == i) continue;
+                double dx = x[j] - xi;
+                double dy = y[j] - yi;
+                double distSq = dx * dx + dy * dy + epsSq;
+                double factor = Constants.G * m[j] / (distSq * Math.sqrt(distSq));
+                axi += dx * factor;
+                ayi += dy * factor;
+                poti += factor * distSq;
+            }
+            ax[i] = axi;
+            ay[i] = ayi;
+            if (i < massive) potential += m[i] * poti;
+        }
+        // every pair was seen from both sides
+        potentialEnergy = -0.5 * potential;
+    }
+
+    @Override
+    public double getPotentialEnergy() {
+        return potentialEnergy;
+    }
+}